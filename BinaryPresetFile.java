@@ -0,0 +1,351 @@
+/**
+ * BinaryPresetFile Class
+ * Stores presets in a compact binary file instead of one decimal coordinate per line. The file is memory-mapped, so a preset is decoded straight from the mapping into a grid without being copied or boxed first.
+ *
+ * Layout (big-endian):
+ *   header:     magic "LIFEPRS1", int version, int preset count, long offset of the name table
+ *   payloads:   one per preset, either a bitmap of rows of 64-Cell words, or run lengths of alternating dead and alive Cells in row order, as variable-length integers
+ *   name table: per preset, a UTF-8 name (short length + bytes), int width, int height, byte encoding, long payload offset, int payload length
+ */
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class BinaryPresetFile {
+	private static final byte[] MAGIC = "LIFEPRS1".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+	static final byte BITMAP = 0;
+	static final byte RUN_LENGTH = 1;
+	private File file;
+	private MappedByteBuffer buffer;
+	private ArrayList<String> names;
+	private HashMap<String, Integer> entries;	// Preset name -> position of its entry in the name table
+
+	/**
+	 * Opens a binary presets file, mapping it into memory and reading its name table.
+	 * @param file
+	 * @throws IOException if the file cannot be read or is not a binary presets file.
+	 */
+	public BinaryPresetFile(File file) throws IOException {
+		this.file = file;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());	// The mapping stays valid after the channel is closed
+		}
+
+		/* Check the header */
+		byte[] magic = new byte[MAGIC.length];
+		if (buffer.limit() < HEADER_SIZE) {
+			throw new IOException("Not a binary presets file: " + file);
+		}
+		buffer.get(0, magic);
+		if (!java.util.Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a binary presets file: " + file);
+		}
+		if (buffer.getInt(8) != VERSION) {
+			throw new IOException("Unsupported binary presets version " + buffer.getInt(8) + ": " + file);
+		}
+
+		/* Index the name table */
+		int count = buffer.getInt(12);
+		int position = (int) buffer.getLong(16);
+		names = new ArrayList<String>();
+		entries = new HashMap<String, Integer>();
+
+		for (int i = 0; i < count; i++) {
+			int nameLength = buffer.getShort(position) & 0xffff;
+			byte[] name = new byte[nameLength];
+			buffer.get(position + 2, name);
+			String presetName = new String(name, StandardCharsets.UTF_8);
+
+			names.add(presetName);
+			entries.put(presetName, position + 2 + nameLength);
+			position += 2 + nameLength + 21;	// width, height, encoding, offset, length
+		}
+	}
+
+	/**
+	 * Returns whether the given file starts like a binary presets file.
+	 * @param file
+	 * @return binary
+	 */
+	public static boolean isBinary(File file) {
+		byte[] magic = new byte[MAGIC.length];
+
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			in.readFully(magic);
+			return java.util.Arrays.equals(magic, MAGIC);
+
+		} catch (IOException e) {
+			return false;
+
+		}
+	}
+
+	/**
+	 * Returns the file that the presets are read from.
+	 * @return file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the names of the presets in the file, in the order they were written.
+	 * @return presetNames
+	 */
+	public String[] getPresetNames() {
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Returns whether the file has a preset of the given name.
+	 * @param presetName
+	 * @return found
+	 */
+	public boolean hasPreset(String presetName) {
+		return entries.containsKey(presetName);
+	}
+
+	/**
+	 * Returns the number of columns of a preset.
+	 * @param presetName
+	 * @return width
+	 */
+	public int getWidth(String presetName) {
+		return buffer.getInt(entry(presetName));
+	}
+
+	/**
+	 * Returns the number of rows of a preset.
+	 * @param presetName
+	 * @return height
+	 */
+	public int getHeight(String presetName) {
+		return buffer.getInt(entry(presetName) + 4);
+	}
+
+	/**
+	 * Decodes a preset into a grid, with the top left Cell of the preset placed at the given row and column. Cells that fall outside of the grid are dropped. The grid is not cleared first.
+	 * @param presetName
+	 * @param grid
+	 * @param top - row of the grid for the first row of the preset.
+	 * @param left - column of the grid for the first column of the preset.
+	 */
+	public void load(String presetName, Grid grid, int top, int left) {
+		int entry = entry(presetName);
+		int width = buffer.getInt(entry);
+		int height = buffer.getInt(entry + 4);
+		byte encoding = buffer.get(entry + 8);
+		int offset = (int) buffer.getLong(entry + 9);
+		int length = buffer.getInt(entry + 17);
+
+		if (encoding == BITMAP) {
+			loadBitmap(grid, top, left, width, height, offset);
+
+		} else {
+			loadRunLength(grid, top, left, width, offset, offset + length);
+
+		}
+	}
+
+	/**
+	 * Decodes a bitmap payload. When the preset lines up with the words of the grid, whole words are copied across.
+	 */
+	private void loadBitmap(Grid grid, int top, int left, int width, int height, int offset) {
+		int wordsPerRow = BitGrid.wordsFor(width);
+
+		for (int row = 0; row < height; row++) {
+			int gridRow = top + row;
+			if (gridRow < 0 || gridRow >= grid.getHeight()) {
+				continue;
+			}
+
+			for (int word = 0; word < wordsPerRow; word++) {
+				long bits = buffer.getLong(offset + 8*(row*wordsPerRow + word));
+				int column = left + word*Grid.WORD_SIZE;
+
+				if (left % Grid.WORD_SIZE == 0 && column >= 0 && column + Grid.WORD_SIZE <= grid.getWidth()) {
+					int gridWord = column / Grid.WORD_SIZE;
+					grid.setWord(gridRow, gridWord, grid.getWord(gridRow, gridWord) | bits);
+					continue;
+				}
+
+				while (bits != 0) {	// Otherwise set each living Cell on its own
+					int bit = Long.numberOfTrailingZeros(bits);
+					setAlive(grid, gridRow, column + bit);
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes a run-length payload.
+	 */
+	private void loadRunLength(Grid grid, int top, int left, int width, int offset, int end) {
+		ByteBuffer runs = buffer.duplicate();
+		runs.position(offset);
+		runs.limit(end);
+		long cell = 0;
+		boolean alive = false;	// Runs start with the dead Cells
+
+		while (runs.hasRemaining()) {
+			long run = readVarLong(runs);
+
+			if (alive) {
+				for (long i = cell; i < cell + run; i++) {
+					setAlive(grid, top + (int) (i / width), left + (int) (i % width));
+				}
+			}
+			cell += run;
+			alive = !alive;
+		}
+	}
+
+	/**
+	 * Sets a Cell of the grid to alive, if it lies inside the grid.
+	 */
+	private static void setAlive(Grid grid, int row, int column) {
+		if (row >= 0 && row < grid.getHeight() && column >= 0 && column < grid.getWidth()) {
+			grid.setAlive(row, column, true);
+		}
+	}
+
+	/**
+	 * Returns the position of a preset's entry in the name table, just after its name.
+	 * @param presetName
+	 * @return position
+	 */
+	private int entry(String presetName) {
+		Integer position = entries.get(presetName);
+
+		if (position == null) {
+			throw new IllegalArgumentException("No such preset: " + presetName);
+		}
+
+		return position;
+	}
+
+	/**
+	 * Writes presets into a new binary presets file, replacing the file if it exists. Each preset is stored as a bitmap or as run lengths, whichever is smaller.
+	 * @param file
+	 * @param presetNames
+	 * @param patterns - the Cells of each preset, of any size.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(File file, String[] presetNames, Grid[] patterns) throws IOException {
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		DataOutputStream tableOut = new DataOutputStream(table);
+		long offset = HEADER_SIZE;
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			/* Header, with the name table offset filled in once it is known */
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(presetNames.length);
+			out.writeLong(0);
+
+			for (int i = 0; i < presetNames.length; i++) {
+				Grid pattern = patterns[i];
+				byte[] runLengths = encodeRunLength(pattern);
+				int bitmapLength = 8 * pattern.getWordsPerRow() * pattern.getHeight();
+				byte encoding = runLengths.length < bitmapLength ? RUN_LENGTH : BITMAP;
+				int length = encoding == RUN_LENGTH ? runLengths.length : bitmapLength;
+
+				if (encoding == RUN_LENGTH) {
+					out.write(runLengths);
+
+				} else {
+					for (int row = 0; row < pattern.getHeight(); row++) {
+
+						for (int word = 0; word < pattern.getWordsPerRow(); word++) {
+							out.writeLong(pattern.getWord(row, word));
+						}
+					}
+
+				}
+
+				byte[] name = presetNames[i].getBytes(StandardCharsets.UTF_8);
+				tableOut.writeShort(name.length);
+				tableOut.write(name);
+				tableOut.writeInt(pattern.getWidth());
+				tableOut.writeInt(pattern.getHeight());
+				tableOut.writeByte(encoding);
+				tableOut.writeLong(offset);
+				tableOut.writeInt(length);
+				offset += length;
+			}
+
+			tableOut.flush();
+			table.writeTo(out);
+		}
+
+		try (RandomAccessFile header = new RandomAccessFile(file, "rw")) {
+			header.seek(16);
+			header.writeLong(offset);
+		}
+	}
+
+	/**
+	 * Encodes the Cells of a pattern as run lengths of alternating dead and alive Cells in row order, starting with the dead.
+	 * @param pattern
+	 * @return runLengths
+	 */
+	private static byte[] encodeRunLength(Grid pattern) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long run = 0;
+		boolean alive = false;
+
+		for (int row = 0; row < pattern.getHeight(); row++) {
+
+			for (int column = 0; column < pattern.getWidth(); column++) {
+
+				if (pattern.isAlive(row, column) != alive) {
+					writeVarLong(out, run);
+					run = 0;
+					alive = !alive;
+				}
+				run++;
+			}
+		}
+		if (alive) {
+			writeVarLong(out, run);	// A trailing dead run is left off
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes a non-negative number in 7-bit groups, lowest first, with the high bit set on every group but the last.
+	 */
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	/**
+	 * Reads a number written by writeVarLong.
+	 */
+	private static long readVarLong(ByteBuffer in) {
+		long value = 0;
+
+		for (int shift = 0; ; shift += 7) {
+			byte group = in.get();
+			value |= (long) (group & 0x7f) << shift;
+
+			if (group >= 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ * BitGrid Class
+ * A Grid that packs the world into a single long array, one bit per Cell and 64 Cells per word. Uses an eighth of the memory of a boolean[][] world.
+ * The halo is stored in the same array, as an extra row above and below and an extra word on either side of every row, so reading it costs no more than reading the world.
+ */
+public class BitGrid implements Grid {
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	private int stride;	// Words per row, counting the halo words on either side
+	private long[] words;	// Rows from -1 to height, each from word -1 to wordsPerRow
+
+	/**
+	 * Initializes an empty world of the given size.
+	 * @param width - number of columns.
+	 * @param height - number of rows.
+	 */
+	public BitGrid(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("World size must be positive: " + width + "x" + height);
+		}
+
+		long size = ((long) wordsFor(width) + 2) * ((long) height + 2);
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("World is too large for a single array: " + width + "x" + height);
+		}
+
+		this.width = width;
+		this.height = height;
+		wordsPerRow = wordsFor(width);
+		stride = wordsPerRow + 2;
+		words = new long[(int) size];
+	}
+
+	/**
+	 * Returns the number of words needed to hold a row of the given width.
+	 * @param width
+	 * @return words
+	 */
+	public static int wordsFor(int width) {
+		return (width + WORD_SIZE - 1) / WORD_SIZE;
+	}
+
+	/**
+	 * Returns a mask of the bits of the last word in a row that lie inside the world.
+	 * @param width
+	 * @return mask
+	 */
+	public static long lastWordMask(int width) {
+		int used = width % WORD_SIZE;
+		return used == 0 ? -1L : (1L << used) - 1;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	public boolean isAlive(int row, int column) {
+		return (words[index(row, column/WORD_SIZE)] & (1L << column)) != 0;	// Shift distance is taken mod 64
+	}
+
+	public void setAlive(int row, int column, boolean alive) {
+		int index = index(row, column/WORD_SIZE);
+
+		if (alive) {
+			words[index] |= 1L << column;
+
+		} else {
+			words[index] &= ~(1L << column);
+
+		}
+	}
+
+	public long getWord(int row, int word) {
+		return words[index(row, word)];
+	}
+
+	public void setWord(int row, int word, long bits) {
+		words[index(row, word)] = bits;
+	}
+
+	/**
+	 * Returns the position of a word in the array, past the halo row above and the halo word on the left.
+	 * @param row
+	 * @param word
+	 * @return index
+	 */
+	int index(int row, int word) {
+		return (row + 1)*stride + word + 1;
+	}
+
+	/**
+	 * Returns the array that holds the words, halo included, for engines that work on several words at once. Word w of row r is at index(r, w), and the words of a row follow each other.
+	 * @return words
+	 */
+	long[] getArray() {
+		return words;
+	}
+
+	public void clear() {
+		java.util.Arrays.fill(words, 0L);
+	}
+
+	public long getPopulation() {
+		long population = 0;
+
+		for (int row = 0; row < height; row++) {
+			int start = index(row, 0);
+
+			for (int i = start; i < start + wordsPerRow; i++) {
+				population += Long.bitCount(words[i]);
+			}
+		}
+
+		return population;
+	}
+
+	public void copyFrom(Grid other) {
+		checkSameSize(other);
+
+		if (other instanceof BitGrid) {
+			System.arraycopy(((BitGrid) other).words, 0, words, 0, words.length);
+			return;
+		}
+
+		for (int row = -1; row <= height; row++) {
+
+			for (int word = -1; word <= wordsPerRow; word++) {
+				setWord(row, word, other.getWord(row, word));
+
+			}
+		}
+	}
+
+	public void load(boolean[][] worldStatus) {
+		clear();
+
+		for (int row = 0; row < worldStatus.length && row < height; row++) {
+
+			for (int column = 0; column < worldStatus[row].length && column < width; column++) {
+
+				if (worldStatus[row][column]) {
+					setAlive(row, column, true);
+				}
+			}
+		}
+	}
+
+	public boolean[][] toArray() {
+		boolean[][] worldStatus = new boolean[height][width];
+
+		for (int row = 0; row < height; row++) {
+
+			for (int column = 0; column < width; column++) {
+				worldStatus[row][column] = isAlive(row, column);
+
+			}
+		}
+
+		return worldStatus;
+	}
+
+	/**
+	 * Throws an IllegalArgumentException if the given world is not the same size as this one.
+	 * @param other
+	 */
+	void checkSameSize(Grid other) {
+		if (other.getWidth() != width || other.getHeight() != height) {
+			throw new IllegalArgumentException("World sizes differ: " + width + "x" + height + " and " + other.getWidth() + "x" + other.getHeight());
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * BitSliceEngine Class
+ * Simulates a day on 64 Cells at a time. The eight neighbor words of each word are lined up with it by shifting, and added together with half-adder and full-adder logic so that every bit of the sum is computed for all 64 Cells in a handful of bitwise operations.
+ * There are no branches and no memory allocation inside the loop. Conway's Life has its own kernel; other rules finish the count with one more adder and look the result up through the masks of the Rule.
+ */
+public class BitSliceEngine implements StepEngine {
+	private Rule rule = Rule.CONWAY;
+
+	public void setRule(Rule rule) {
+		this.rule = rule;
+	}
+
+	/**
+	 * Returns the rule being simulated.
+	 * @return rule
+	 */
+	public Rule getRule() {
+		return rule;
+	}
+
+	public void step(Grid current, Grid next) {
+		stepRows(current, next, 0, current.getHeight());
+	}
+
+	/**
+	 * Simulates a day for a band of rows only. Rows outside of the band are read but never written, so separate bands may be simulated at the same time.
+	 * @param current - the existing generation.
+	 * @param next - the grid that receives the new generation.
+	 * @param fromRow - first row of the band.
+	 * @param toRow - row just past the end of the band.
+	 */
+	public void stepRows(Grid current, Grid next, int fromRow, int toRow) {
+		int lastWord = current.getWordsPerRow() - 1;
+		long edgeMask = BitGrid.lastWordMask(current.getWidth());
+		Rule rule = this.rule;
+		boolean conway = rule.isConway();	// Decided once, so the loop always takes the same side
+
+		for (int row = fromRow; row < toRow; row++) {
+			/* The Cells beyond the edges are read from the halo, so there is nothing to check */
+			long abovePrev = current.getWord(row - 1, -1);
+			long currentPrev = current.getWord(row, -1);
+			long belowPrev = current.getWord(row + 1, -1);
+			long above = current.getWord(row - 1, 0);
+			long middle = current.getWord(row, 0);
+			long below = current.getWord(row + 1, 0);
+
+			for (int word = 0; word <= lastWord; word++) {
+				long aboveNext = current.getWord(row - 1, word + 1);
+				long currentNext = current.getWord(row, word + 1);
+				long belowNext = current.getWord(row + 1, word + 1);
+
+				next.setWord(row, word, conway
+						? nextWord(abovePrev, above, aboveNext, currentPrev, middle, currentNext, belowPrev, below, belowNext)
+						: nextWord(rule, abovePrev, above, aboveNext, currentPrev, middle, currentNext, belowPrev, below, belowNext));
+
+				abovePrev = above;
+				currentPrev = middle;
+				belowPrev = below;
+				above = aboveNext;
+				middle = currentNext;
+				below = belowNext;
+			}
+
+			next.setWord(row, lastWord, next.getWord(row, lastWord) & edgeMask);	// Keep the bits past the right edge of the world dead
+		}
+	}
+
+	/**
+	 * Computes the next statuses of the 64 Cells in a word from the 3x3 block of words around it.
+	 * @return newWord
+	 */
+	static long nextWord(long abovePrev, long above, long aboveNext, long currentPrev, long current, long currentNext, long belowPrev, long below, long belowNext) {
+		/* Line up the west and east neighbors of every Cell with the Cell itself */
+		long aboveWest = (above << 1) | (abovePrev >>> 63);
+		long aboveEast = (above >>> 1) | (aboveNext << 63);
+		long west = (current << 1) | (currentPrev >>> 63);
+		long east = (current >>> 1) | (currentNext << 63);
+		long belowWest = (below << 1) | (belowPrev >>> 63);
+		long belowEast = (below >>> 1) | (belowNext << 63);
+
+		/* Add up each row of neighbors: full adders above and below, a half adder beside */
+		long aboveHalf = aboveWest ^ above;
+		long aboveOnes = aboveHalf ^ aboveEast;
+		long aboveTwos = (aboveWest & above) | (aboveHalf & aboveEast);
+		long middleOnes = west ^ east;
+		long middleTwos = west & east;
+		long belowHalf = belowWest ^ below;
+		long belowOnes = belowHalf ^ belowEast;
+		long belowTwos = (belowWest & below) | (belowHalf & belowEast);
+
+		/* Add the three rows together. A count of 8 wraps to 0, which is dead either way */
+		long onesHalf = aboveOnes ^ middleOnes;
+		long ones = onesHalf ^ belowOnes;
+		long onesCarry = (aboveOnes & middleOnes) | (onesHalf & belowOnes);
+		long twosHalf = aboveTwos ^ middleTwos;
+		long twosSum = twosHalf ^ belowTwos;
+		long twosCarry = (aboveTwos & middleTwos) | (twosHalf & belowTwos);
+		long twos = twosSum ^ onesCarry;
+		long fours = twosCarry ^ (twosSum & onesCarry);
+
+		/* Alive with 2 or 3 neighbors, or dead with exactly 3 */
+		return twos & ~fours & (ones | current);
+	}
+
+	/**
+	 * Computes the next statuses of the 64 Cells in a word from the 3x3 block of words around it, under any rule. The count is added up as in the Conway kernel, but carried on into the eights so that 8 neighbors can be told from none.
+	 * @return newWord
+	 */
+	static long nextWord(Rule rule, long abovePrev, long above, long aboveNext, long currentPrev, long current, long currentNext, long belowPrev, long below, long belowNext) {
+		long aboveWest = (above << 1) | (abovePrev >>> 63);
+		long aboveEast = (above >>> 1) | (aboveNext << 63);
+		long west = (current << 1) | (currentPrev >>> 63);
+		long east = (current >>> 1) | (currentNext << 63);
+		long belowWest = (below << 1) | (belowPrev >>> 63);
+		long belowEast = (below >>> 1) | (belowNext << 63);
+
+		long aboveHalf = aboveWest ^ above;
+		long aboveOnes = aboveHalf ^ aboveEast;
+		long aboveTwos = (aboveWest & above) | (aboveHalf & aboveEast);
+		long middleOnes = west ^ east;
+		long middleTwos = west & east;
+		long belowHalf = belowWest ^ below;
+		long belowOnes = belowHalf ^ belowEast;
+		long belowTwos = (belowWest & below) | (belowHalf & belowEast);
+
+		long onesHalf = aboveOnes ^ middleOnes;
+		long ones = onesHalf ^ belowOnes;
+		long onesCarry = (aboveOnes & middleOnes) | (onesHalf & belowOnes);
+		long twosHalf = aboveTwos ^ middleTwos;
+		long twosSum = twosHalf ^ belowTwos;
+		long twosCarry = (aboveTwos & middleTwos) | (twosHalf & belowTwos);
+		long twos = twosSum ^ onesCarry;
+		long fours = twosCarry ^ (twosSum & onesCarry);
+		long eights = twosCarry & twosSum & onesCarry;
+
+		return rule.apply(current, ones, twos, fours, eights);
+	}
+}
@@ -0,0 +1,490 @@
+/**
+ * BoardBatch Class
+ * Simulates a great many small, independent worlds together, such as soups on boards of Life.WORLD_EDGE Cells square. The boards are stored transposed: rather than packing the Cells of a row into a word, every word holds the same Cell of 64 different boards, one bit lane per board. A day is then the same adder logic as in BitSliceEngine, but run once per Cell of a board on its eight neighboring words, and it advances 64 boards at a time with no shifting.
+ * Boards are grouped 64 to a slice. After every day the batch notes, for each board, whether it died out, became a still life or became an oscillator of period 2, by comparing it with the two days before, which costs a few bitwise operations per Cell for the whole slice. A board found to have settled is retired: it keeps the generation it settled on, and a slice whose boards are all retired is skipped altogether, until new boards are loaded into its lanes.
+ */
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class BoardBatch {
+	private static final int LANES = 64;	// Boards in a slice, one per bit of a word
+	private int boards;
+	private int width;
+	private int height;
+	private int slices;
+	private int stride;	// Words per row of a slice, counting the halo on either side
+	private int sliceWords;	// Words per slice, halo rows included
+	private long[][] buffers;	// The current and the last generation of every slice, taking turns
+	private int[] phase;	// Buffer holding the current generation of each slice
+	private long[] active;	// Boards still running in each slice
+	private long[] extinct;	// Boards that died out, in each slice
+	private int[] periods;	// Period of each board once settled, or 0
+	private long[] loadedOn;	// Day count of the batch when each board was loaded
+	private long[] settledOn;	// Days after loading that each board settled on, or -1
+	private long generation;
+	private Rule rule = Rule.CONWAY;
+	private Topology topology = Topology.DEAD;
+
+	/**
+	 * Initializes a batch of empty boards of the standard size. Every board is retired until it is loaded.
+	 * @param boards - number of boards.
+	 */
+	public BoardBatch(int boards) {
+		this(boards, Life.WORLD_EDGE, Life.WORLD_EDGE);
+	}
+
+	/**
+	 * Initializes a batch of empty boards of the given size. Every board is retired until it is loaded.
+	 * @param boards - number of boards.
+	 * @param width - columns of every board.
+	 * @param height - rows of every board.
+	 */
+	public BoardBatch(int boards, int width, int height) {
+		if (boards <= 0 || width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Batch must hold boards of positive size: " + boards + " of " + width + "x" + height);
+		}
+
+		this.boards = boards;
+		this.width = width;
+		this.height = height;
+		slices = (boards + LANES - 1) / LANES;
+		stride = width + 2;
+		sliceWords = stride * (height + 2);
+		buffers = new long[][] {new long[slices*sliceWords], new long[slices*sliceWords]};
+		phase = new int[slices];
+		active = new long[slices];
+		extinct = new long[slices];
+		periods = new int[boards];
+		loadedOn = new long[boards];
+		settledOn = new long[boards];
+		Arrays.fill(settledOn, -1);
+	}
+
+	/**
+	 * Returns the number of boards in the batch.
+	 * @return boards
+	 */
+	public int getBoards() {
+		return boards;
+	}
+
+	/**
+	 * Returns the number of columns of every board.
+	 * @return width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows of every board.
+	 * @return height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the rule the boards are simulated with.
+	 * @return rule
+	 */
+	public Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * Sets the rule that the following days are simulated with, for every board.
+	 * @param rule
+	 */
+	public void setRule(Rule rule) {
+		this.rule = rule;
+	}
+
+	/**
+	 * Returns what lies beyond the edges of the boards.
+	 * @return topology
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Sets what lies beyond the edges of every board from the next day on.
+	 * @param topology
+	 */
+	public void setTopology(Topology topology) {
+		if (topology == Topology.DEAD && this.topology != Topology.DEAD) {	// The halo is only filled in while wrapping, so clear what was left there
+			for (long[] buffer : buffers) {
+
+				for (int slice = 0; slice < slices; slice++) {
+
+					for (int column = -1; column <= width; column++) {
+						buffer[index(slice, -1, column)] = 0;
+						buffer[index(slice, height, column)] = 0;
+					}
+					for (int row = 0; row < height; row++) {
+						buffer[index(slice, row, -1)] = 0;
+						buffer[index(slice, row, width)] = 0;
+					}
+				}
+			}
+		}
+		this.topology = topology;
+	}
+
+	/**
+	 * Returns the number of days simulated since the batch was created.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the position of a Cell of a slice in the buffers, past the halo row above and the halo column on the left.
+	 * @param slice
+	 * @param row
+	 * @param column
+	 * @return index
+	 */
+	private int index(int slice, int row, int column) {
+		return slice*sliceWords + (row + 1)*stride + column + 1;
+	}
+
+	/**
+	 * Sets a board to the given statuses and starts it running, whether or not it had finished. Cells outside of the array are dead.
+	 * @param board
+	 * @param worldStatus
+	 */
+	public void load(int board, boolean[][] worldStatus) {
+		int slice = board / LANES;
+		long lane = 1L << board;	// Shift distance is taken mod 64
+
+		for (int row = 0; row < height; row++) {
+
+			for (int column = 0; column < width; column++) {
+				boolean alive = row < worldStatus.length && column < worldStatus[row].length && worldStatus[row][column];
+				setLane(index(slice, row, column), lane, alive);
+			}
+		}
+
+		start(board);
+	}
+
+	/**
+	 * Fills a board at random and starts it running, just as Life.randomize fills a world of the same size, so that the same seed gives the same board.
+	 * @param board
+	 * @param density - probability of a Cell being alive, from 0 to 1.
+	 * @param seed
+	 */
+	public void randomize(int board, double density, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		int slice = board / LANES;
+		long lane = 1L << board;
+
+		for (int row = 0; row < height; row++) {
+
+			for (int column = 0; column < width; column++) {
+				setLane(index(slice, row, column), lane, random.nextDouble() < density);
+			}
+		}
+
+		start(board);
+	}
+
+	/**
+	 * Sets the lane of a board in a Cell of both buffers, so that the board starts out with no days behind it that differ from it.
+	 * @param index
+	 * @param lane
+	 * @param alive
+	 */
+	private void setLane(int index, long lane, boolean alive) {
+		for (long[] buffer : buffers) {
+			buffer[index] = alive ? buffer[index] | lane : buffer[index] & ~lane;
+		}
+	}
+
+	/**
+	 * Marks a board as running from the current day.
+	 * @param board
+	 */
+	private void start(int board) {
+		int slice = board / LANES;
+		long lane = 1L << board;
+
+		active[slice] |= lane;
+		extinct[slice] &= ~lane;
+		periods[board] = 0;
+		loadedOn[board] = generation;
+		settledOn[board] = -1;
+	}
+
+	/**
+	 * Stops simulating a board, leaving it as it is. It runs again once it is loaded.
+	 * @param board
+	 */
+	public void retire(int board) {
+		active[board / LANES] &= ~(1L << board);
+	}
+
+	/**
+	 * Returns whether a board is still running, that is it was loaded and has neither settled nor been retired.
+	 * @param board
+	 * @return active
+	 */
+	public boolean isActive(int board) {
+		return (active[board / LANES] & 1L << board) != 0;
+	}
+
+	/**
+	 * Returns the number of boards still running.
+	 * @return count
+	 */
+	public int getActiveCount() {
+		int count = 0;
+
+		for (int slice = 0; slice < slices; slice++) {
+			count += Long.bitCount(active[slice]);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns whether a board has settled, by dying out, becoming a still life or becoming an oscillator of period 2.
+	 * @param board
+	 * @return settled
+	 */
+	public boolean isSettled(int board) {
+		return periods[board] > 0;
+	}
+
+	/**
+	 * Returns whether a board settled by dying out.
+	 * @param board
+	 * @return extinct
+	 */
+	public boolean isExtinct(int board) {
+		return (extinct[board / LANES] & 1L << board) != 0;
+	}
+
+	/**
+	 * Returns the period a board settled into: 1 for a still life or an extinct board, 2 for an oscillator, or 0 if it has not settled. Longer periods are not detected, and such boards run until retired.
+	 * @param board
+	 * @return period
+	 */
+	public int getPeriod(int board) {
+		return periods[board];
+	}
+
+	/**
+	 * Returns the first day of the cycle that a board settled into, counting from when it was loaded, like CycleDetector.getGeneration less the period. For an extinct board, this is the first day it was empty.
+	 * @param board
+	 * @return days - or -1 if the board has not settled.
+	 */
+	public long getSettledOn(int board) {
+		return settledOn[board];
+	}
+
+	/**
+	 * Returns whether a Cell of a board is alive.
+	 * @param board
+	 * @param row
+	 * @param column
+	 * @return alive
+	 */
+	public boolean isAlive(int board, int row, int column) {
+		int slice = board / LANES;
+		return (buffers[phase[slice]][index(slice, row, column)] & 1L << board) != 0;
+	}
+
+	/**
+	 * Returns the number of living Cells on a board.
+	 * @param board
+	 * @return population
+	 */
+	public int getPopulation(int board) {
+		int population = 0;
+
+		for (int row = 0; row < height; row++) {
+
+			for (int column = 0; column < width; column++) {
+
+				if (isAlive(board, row, column)) {
+					population++;
+				}
+			}
+		}
+
+		return population;
+	}
+
+	/**
+	 * Returns the statuses of the Cells of a board, as Life.getWorldStatus does for a world.
+	 * @param board
+	 * @return worldStatus
+	 */
+	public boolean[][] getBoard(int board) {
+		boolean[][] worldStatus = new boolean[height][width];
+
+		for (int row = 0; row < height; row++) {
+
+			for (int column = 0; column < width; column++) {
+				worldStatus[row][column] = isAlive(board, row, column);
+
+			}
+		}
+
+		return worldStatus;
+	}
+
+	/**
+	 * Simulates days until every board has settled or been retired, or until the given number of days have passed.
+	 * @param maxDays
+	 * @return days - number of days simulated.
+	 */
+	public long run(long maxDays) {
+		long days = 0;
+
+		while (days < maxDays && getActiveCount() > 0) {
+			step();
+			days++;
+		}
+
+		return days;
+	}
+
+	/**
+	 * Simulates a day on every slice that has boards running, then retires the boards that settled on it.
+	 */
+	public void step() {
+		boolean conway = rule.isConway();	// Decided once, so the loop always takes the same side
+
+		for (int slice = 0; slice < slices; slice++) {
+
+			if (active[slice] != 0) {
+				stepSlice(slice, conway);
+			}
+		}
+
+		generation++;
+	}
+
+	/**
+	 * Simulates a day on the 64 boards of a slice, writing the new generation over the one before the current, and notes which of the running boards settled.
+	 * @param slice
+	 * @param conway - whether the rule is Conway's Life, which has its own kernel.
+	 */
+	private void stepSlice(int slice, boolean conway) {
+		long[] current = buffers[phase[slice]];
+		long[] next = buffers[phase[slice] ^ 1];	// Holds the day before, which is compared with the new day as it is overwritten
+		long running = active[slice];
+		long changed = 0;	// Boards that differ from the day before
+		long changedTwice = 0;	// Boards that differ from two days before
+		long alive = 0;	// Boards with a living Cell
+
+		if (topology != Topology.DEAD) {
+			refreshHalo(current, slice);
+		}
+
+		for (int row = 0; row < height; row++) {
+			int start = index(slice, row, 0);
+
+			for (int i = start; i < start + width; i++) {
+				/* The eight neighbors of the Cell are the same Cell of the neighboring positions, so they are already lined up */
+				long aboveWest = current[i - stride - 1];
+				long above = current[i - stride];
+				long aboveEast = current[i - stride + 1];
+				long west = current[i - 1];
+				long middle = current[i];
+				long east = current[i + 1];
+				long belowWest = current[i + stride - 1];
+				long below = current[i + stride];
+				long belowEast = current[i + stride + 1];
+
+				/* Add them up as BitSliceEngine does: full adders above and below, a half adder beside, then the three rows together */
+				long aboveHalf = aboveWest ^ above;
+				long aboveOnes = aboveHalf ^ aboveEast;
+				long aboveTwos = (aboveWest & above) | (aboveHalf & aboveEast);
+				long middleOnes = west ^ east;
+				long middleTwos = west & east;
+				long belowHalf = belowWest ^ below;
+				long belowOnes = belowHalf ^ belowEast;
+				long belowTwos = (belowWest & below) | (belowHalf & belowEast);
+
+				long onesHalf = aboveOnes ^ middleOnes;
+				long ones = onesHalf ^ belowOnes;
+				long onesCarry = (aboveOnes & middleOnes) | (onesHalf & belowOnes);
+				long twosHalf = aboveTwos ^ middleTwos;
+				long twosSum = twosHalf ^ belowTwos;
+				long twosCarry = (aboveTwos & middleTwos) | (twosHalf & belowTwos);
+				long twos = twosSum ^ onesCarry;
+				long fours = twosCarry ^ (twosSum & onesCarry);
+
+				long newWord = conway
+						? twos & ~fours & (ones | middle)
+						: rule.apply(middle, ones, twos, fours, twosCarry & twosSum & onesCarry);
+				newWord = middle ^ ((newWord ^ middle) & running);	// Boards that are not running keep their Cells
+
+				changed |= newWord ^ middle;
+				changedTwice |= newWord ^ next[i];
+				alive |= newWord;
+				next[i] = newWord;
+			}
+		}
+
+		phase[slice] ^= 1;
+
+		/* Retire the boards that died out, stood still, or came back to the day before */
+		long died = running & ~alive;
+		long stood = running & alive & ~changed;
+		long oscillated = running & alive & changed & ~changedTwice;
+		long settled = died | stood | oscillated;
+
+		extinct[slice] |= died;
+		active[slice] &= ~settled;
+		while (settled != 0) {
+			int lane = Long.numberOfTrailingZeros(settled);
+			int board = slice*LANES + lane;
+			long days = generation + 1 - loadedOn[board];
+			long bit = 1L << lane;
+
+			if ((died & bit) != 0) {
+				periods[board] = 1;
+				settledOn[board] = days;
+
+			} else if ((stood & bit) != 0) {
+				periods[board] = 1;
+				settledOn[board] = days - 1;
+
+			} else {
+				periods[board] = 2;
+				settledOn[board] = days - 2;
+
+			}
+			settled &= settled - 1;
+		}
+	}
+
+	/**
+	 * Fills in the halo of a slice with the Cells beyond the edges of its boards, as Topology.refreshHalo does for a grid: the opposite edge, mirrored at the top and bottom on a Klein bottle.
+	 * @param buffer
+	 * @param slice
+	 */
+	private void refreshHalo(long[] buffer, int slice) {
+		boolean mirrored = topology == Topology.KLEIN_BOTTLE;
+
+		for (int column = 0; column < width; column++) {
+			int from = mirrored ? width - 1 - column : column;
+
+			buffer[index(slice, -1, column)] = buffer[index(slice, height - 1, from)];
+			buffer[index(slice, height, column)] = buffer[index(slice, 0, from)];
+		}
+
+		/* Halo columns, for the halo rows as well so that the corners are filled in */
+		for (int row = -1; row <= height; row++) {
+			buffer[index(slice, row, -1)] = buffer[index(slice, row, width - 1)];
+			buffer[index(slice, row, width)] = buffer[index(slice, row, 0)];
+		}
+	}
+}
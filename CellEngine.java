@@ -0,0 +1,108 @@
+/**
+ * CellEngine Class
+ * Simulates a day by looking at the neighborhood of each Cell one at a time, applying the pseudocode from chapter 9 Exc.14 through the table of the Rule, which gives the next status of every 3x3 neighborhood. Words with nothing alive around them are skipped as a whole.
+ */
+public class CellEngine implements StepEngine {
+	private Grid world;	// The generation currently being simulated
+	private long[] neighborhood;	// The 8 neighbor words of the word being simulated, lined up with it
+	private byte[] table = Rule.CONWAY.getTable();	// Next status of every neighborhood under the rule being simulated
+
+	/**
+	 * Initializes the engine.
+	 */
+	public CellEngine() {
+		neighborhood = new long[8];
+	}
+
+	public void setRule(Rule rule) {
+		table = rule.getTable();
+	}
+
+	public void step(Grid current, Grid next) {
+		int wordsPerRow = current.getWordsPerRow();
+		long edgeMask = BitGrid.lastWordMask(current.getWidth());
+		world = current;
+
+		for (int row = 0; row < current.getHeight(); row++) {	// Traverses each row of the existing world
+
+			for (int word = 0; word < wordsPerRow; word++) {	// Traverses each group of 64 Cells in the row
+				long newWord = nextWord(row, word);
+
+				if (word == wordsPerRow - 1) {
+					newWord &= edgeMask;	// Keep the bits past the right edge of the world dead
+				}
+				next.setWord(row, word, newWord);
+
+			}
+		}
+
+		world = null;
+	}
+
+	/**
+	 * Determines the next statuses of the 64 Cells stored in a word of the world. Words with no living Cells anywhere around them stay dead without checking each Cell.
+	 * @param row - the row number of the word
+	 * @param word - the index of the word within its row
+	 * @return newWord
+	 */
+	private long nextWord(int row, int word) {
+		long above = wordAt(row - 1, word);
+		long current = wordAt(row, word);
+		long below = wordAt(row + 1, word);
+		long left = wordAt(row - 1, word - 1) | wordAt(row, word - 1) | wordAt(row + 1, word - 1);
+		long right = wordAt(row - 1, word + 1) | wordAt(row, word + 1) | wordAt(row + 1, word + 1);
+
+		/* Nothing can be born where there is nothing alive */
+		if ((above | current | below) == 0 && (left >>> 63) == 0 && (right & 1) == 0) {
+			return 0;
+		}
+
+		/* Line up the west and east neighbors of every Cell in the word with the Cell itself */
+		neighborhood[0] = (above << 1) | (wordAt(row - 1, word - 1) >>> 63);
+		neighborhood[1] = above;
+		neighborhood[2] = (above >>> 1) | (wordAt(row - 1, word + 1) << 63);
+		neighborhood[3] = (current << 1) | (wordAt(row, word - 1) >>> 63);
+		neighborhood[4] = (current >>> 1) | (wordAt(row, word + 1) << 63);
+		neighborhood[5] = (below << 1) | (wordAt(row + 1, word - 1) >>> 63);
+		neighborhood[6] = below;
+		neighborhood[7] = (below >>> 1) | (wordAt(row + 1, word + 1) << 63);
+
+		long newWord = 0;
+		for (int bit = 0; bit < Grid.WORD_SIZE; bit++) {
+			int cells = neighborhood(bit, current);	// Obtains the 3x3 neighborhood of the Cell on that particular bit of the word.
+
+			/* Applies the rule that decides whether or not the Selected cell is alive, without branching on the count */
+			newWord |= (long) table[cells] << bit;
+		}
+
+		return newWord;
+	}
+
+	/**
+	 * Returns a word of the world being simulated. Words beyond the edges are read from the halo.
+	 * @param row
+	 * @param word
+	 * @return bits
+	 */
+	private long wordAt(int row, int word) {
+		return world.getWord(row, word);
+	}
+
+	/**
+	 * Gathers the 3x3 neighborhood of the Cell on the given bit of the word currently loaded in the neighborhood, as an index into the table of the rule. Cells beyond the edges were loaded from the halo.
+	 * @param bit - the position of the selected Cell within its word
+	 * @param current - the word of the selected Cell
+	 * @return cells - bit 4 holds the Cell itself, and the neighbors the bits around it, row by row.
+	 */
+	private int neighborhood(int bit, long current) {
+		return (int) ((neighborhood[0] >>> bit) & 1)
+				| (int) ((neighborhood[1] >>> bit) & 1) << 1
+				| (int) ((neighborhood[2] >>> bit) & 1) << 2
+				| (int) ((neighborhood[3] >>> bit) & 1) << 3
+				| (int) ((current >>> bit) & 1) << 4
+				| (int) ((neighborhood[4] >>> bit) & 1) << 5
+				| (int) ((neighborhood[5] >>> bit) & 1) << 6
+				| (int) ((neighborhood[6] >>> bit) & 1) << 7
+				| (int) ((neighborhood[7] >>> bit) & 1) << 8;
+	}
+}
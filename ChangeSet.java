@@ -0,0 +1,145 @@
+/**
+ * ChangeSet Class
+ * Records which Cells flipped from one generation to the next, as a compact list of the changed words with the bits that flipped in each, plus a bitmap with one bit per word of the world.
+ * Lets the UI and other listeners do work proportional to the activity in the world rather than to its size.
+ */
+import java.util.Arrays;
+
+public class ChangeSet {
+	private int wordsPerRow;
+	private int height;
+	private long[] dirty;	// One bit per word of the world, set if any Cell in the word flipped
+	private int[] indices;	// Index of each changed word, row by row
+	private long[] flips;	// Bits that flipped in each changed word
+	private int size;
+	private long births;
+	private long deaths;
+
+	/**
+	 * Initializes an empty change set for a world of the given size.
+	 * @param width
+	 * @param height
+	 */
+	public ChangeSet(int width, int height) {
+		wordsPerRow = BitGrid.wordsFor(width);
+		this.height = height;
+		dirty = new long[(int) (((long) wordsPerRow*height + 63) / 64)];
+		indices = new int[16];
+		flips = new long[16];
+	}
+
+	/**
+	 * Records the differences between two generations of the world, replacing whatever was recorded before. The arrays are reused, so nothing is allocated once they have grown to fit.
+	 * @param previous
+	 * @param next
+	 */
+	public void record(Grid previous, Grid next) {
+		clear();
+
+		for (int row = 0; row < height; row++) {
+
+			for (int word = 0; word < wordsPerRow; word++) {
+				long before = previous.getWord(row, word);
+				long after = next.getWord(row, word);
+
+				if (before != after) {
+					add(row*wordsPerRow + word, before ^ after);
+					births += Long.bitCount(after & ~before);
+					deaths += Long.bitCount(before & ~after);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets every recorded change.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			dirty[indices[i] >>> 6] = 0;	// Only the words that were set need clearing
+		}
+
+		size = 0;
+		births = 0;
+		deaths = 0;
+	}
+
+	/**
+	 * Records a changed word.
+	 * @param index - index of the word in the world, counting row by row.
+	 * @param flipped - the bits that flipped.
+	 */
+	private void add(int index, long flipped) {
+		if (size == indices.length) {
+			indices = Arrays.copyOf(indices, size*2);
+			flips = Arrays.copyOf(flips, size*2);
+		}
+
+		indices[size] = index;
+		flips[size] = flipped;
+		size++;
+		dirty[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * Returns the number of changed words.
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the row of a changed word.
+	 * @param i - which changed word, from 0 to size() - 1.
+	 * @return row
+	 */
+	public int getRow(int i) {
+		return indices[i] / wordsPerRow;
+	}
+
+	/**
+	 * Returns the index within its row of a changed word.
+	 * @param i - which changed word, from 0 to size() - 1.
+	 * @return word
+	 */
+	public int getWord(int i) {
+		return indices[i] % wordsPerRow;
+	}
+
+	/**
+	 * Returns the bits that flipped in a changed word.
+	 * @param i - which changed word, from 0 to size() - 1.
+	 * @return flips
+	 */
+	public long getFlips(int i) {
+		return flips[i];
+	}
+
+	/**
+	 * Returns whether any Cell in the given word flipped.
+	 * @param row
+	 * @param word
+	 * @return dirty
+	 */
+	public boolean isDirty(int row, int word) {
+		int index = row*wordsPerRow + word;
+		return (dirty[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns the number of Cells that were born.
+	 * @return births
+	 */
+	public long getBirths() {
+		return births;
+	}
+
+	/**
+	 * Returns the number of Cells that died.
+	 * @return deaths
+	 */
+	public long getDeaths() {
+		return deaths;
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Checkpoint Class
+ * A world saved part way through a run, with everything needed to carry on from where it was: its Cells, its day count, its rule and its topology.
+ * Checkpoints are written to a temporary file that then replaces the old checkpoint in one atomic rename, so a run that is stopped or crashes while writing always leaves the last complete checkpoint behind.
+ *
+ * Layout (big-endian):
+ *   header: magic "LIFECKP1", int version
+ *   body:   compressed with deflate: int width, int height, long generation, UTF rule in B/S notation, UTF topology, then the Cells as rows of 64-Cell words
+ */
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class Checkpoint {
+	private static final byte[] MAGIC = "LIFECKP1".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	private Grid grid;
+	private long generation;
+	private Rule rule;
+	private Topology topology;
+
+	/**
+	 * Initializes a checkpoint of a world. The grid is not copied, so it must not change until the checkpoint has been written.
+	 * @param grid
+	 * @param generation - days simulated so far.
+	 * @param rule
+	 * @param topology
+	 */
+	public Checkpoint(Grid grid, long generation, Rule rule, Topology topology) {
+		this.grid = grid;
+		this.generation = generation;
+		this.rule = rule;
+		this.topology = topology;
+	}
+
+	/**
+	 * Returns the Cells of the world.
+	 * @return grid
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Returns the number of days simulated before the checkpoint was taken.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the rule that the world was simulated with.
+	 * @return rule
+	 */
+	public Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * Returns what lies beyond the edges of the world.
+	 * @return topology
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Returns whether the given file starts like a checkpoint.
+	 * @param file
+	 * @return checkpoint
+	 */
+	public static boolean isCheckpoint(File file) {
+		byte[] magic = new byte[MAGIC.length];
+
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			in.readFully(magic);
+			return java.util.Arrays.equals(magic, MAGIC);
+
+		} catch (IOException e) {
+			return false;
+
+		}
+	}
+
+	/**
+	 * Reads a checkpoint from a file.
+	 * @param file
+	 * @return checkpoint
+	 * @throws IOException if the file cannot be read, is not a checkpoint, or is damaged.
+	 */
+	public static Checkpoint read(File file) throws IOException {
+		try (InputStream fileIn = new BufferedInputStream(new FileInputStream(file))) {
+			DataInputStream header = new DataInputStream(fileIn);
+			byte[] magic = new byte[MAGIC.length];
+
+			header.readFully(magic);
+			if (!java.util.Arrays.equals(magic, MAGIC)) {
+				throw new IOException("Not a checkpoint: " + file);
+			}
+			if (header.readInt() != VERSION) {
+				throw new IOException("Unsupported checkpoint version: " + file);
+			}
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(fileIn), 1 << 16));
+			BitGrid grid;
+			long generation;
+			Rule rule;
+			Topology topology;
+
+			try {
+				grid = new BitGrid(in.readInt(), in.readInt());
+				generation = in.readLong();
+				rule = Rule.parse(in.readUTF());
+				topology = Topology.valueOf(in.readUTF());
+
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Damaged checkpoint: " + file + " (" + e.getMessage() + ")");
+
+			}
+
+			for (int row = 0; row < grid.getHeight(); row++) {
+
+				for (int word = 0; word < grid.getWordsPerRow(); word++) {
+					grid.setWord(row, word, in.readLong());
+				}
+			}
+			if (in.read() != -1) {	// Reading to the end also checks the checksum of the compressed body
+				throw new IOException("Damaged checkpoint: " + file);
+			}
+
+			return new Checkpoint(grid, generation, rule, topology);
+		}
+	}
+
+	/**
+	 * Writes the checkpoint to a file, replacing any checkpoint already there only once the new one is complete and on disk.
+	 * @param file
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write(File file) throws IOException {
+		File temporary = new File(file.getPath() + ".tmp");
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);	// Empty space compresses well enough at any level
+
+		try (FileOutputStream fileOut = new FileOutputStream(temporary)) {
+			BufferedOutputStream buffered = new BufferedOutputStream(fileOut);
+			DataOutputStream header = new DataOutputStream(buffered);
+			header.write(MAGIC);
+			header.writeInt(VERSION);
+			header.flush();
+
+			DeflaterOutputStream body = new DeflaterOutputStream(buffered, deflater, 1 << 16);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(body, 1 << 16));	// Deflate whole blocks rather than every word
+			out.writeInt(grid.getWidth());
+			out.writeInt(grid.getHeight());
+			out.writeLong(generation);
+			out.writeUTF(rule.toString());
+			out.writeUTF(topology.name());
+
+			for (int row = 0; row < grid.getHeight(); row++) {
+
+				for (int word = 0; word < grid.getWordsPerRow(); word++) {
+					out.writeLong(grid.getWord(row, word));
+				}
+			}
+
+			out.flush();
+			body.finish();
+			buffered.flush();
+			fileOut.getFD().sync();
+
+		} finally {
+			deflater.end();
+
+		}
+
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,191 @@
+/**
+ * CheckpointWriter Class
+ * Takes a checkpoint of a Life world every so many days, and writes it on a background thread so that stepping never waits for the disk.
+ * A checkpoint is taken by sharing the grid of the world with the writer rather than copying it, and the world leaves that grid alone until the checkpoint is on disk. As a step writes the halo of the grid it steps from, the next step copies the world into its spare grid first and steps from the copy, so the world is copied at most once per checkpoint, on the stepping thread, and never while the writer reads. If the disk falls behind, checkpoints that come due while one is still being written are put off until it is done, rather than queued.
+ * The checkpoints are taken by the thread that steps the world, as it steps; close is called from the same thread.
+ */
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+public class CheckpointWriter {
+	private Life life;
+	private File file;
+	private long interval;	// Days between checkpoints
+	private long due;	// Day at which the next checkpoint is taken
+	private long taken = -1;	// Day of the last checkpoint taken
+	private volatile long written = -1;	// Day of the last checkpoint written
+	private volatile IOException error;	// Last failure to write, if any
+	private boolean writing;	// A checkpoint is waiting or being written, guarded by this
+	private Thread thread;
+	private ArrayBlockingQueue<Checkpoint> pending = new ArrayBlockingQueue<Checkpoint>(1);
+
+	/**
+	 * Initializes a writer that checkpoints the given world into the given file every so many days, counting from day 0.
+	 * @param life
+	 * @param file - replaced by every new checkpoint.
+	 * @param interval - days between checkpoints.
+	 */
+	public CheckpointWriter(Life life, File file, long interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Checkpoints must be at least a day apart");
+		}
+
+		this.life = life;
+		this.file = file;
+		this.interval = interval;
+		due = (life.getGeneration() / interval + 1) * interval;
+	}
+
+	/**
+	 * Returns the file that checkpoints are written to.
+	 * @return file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the number of days between checkpoints.
+	 * @return interval
+	 */
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Returns the day of the last checkpoint on disk.
+	 * @return written - or -1 if none has been written yet.
+	 */
+	public long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Returns the last failure to write a checkpoint, or null if every checkpoint was written.
+	 * @return error
+	 */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * Takes a checkpoint if one is due. Called by the world after every day.
+	 */
+	void stepped() {
+		if (life.getGeneration() >= due && !isWriting()) {
+			checkpoint();
+		}
+	}
+
+	/**
+	 * Takes a checkpoint of the world as it is now, unless the last one is still being written.
+	 * @return taken - whether a checkpoint was taken.
+	 */
+	public boolean checkpoint() {
+		synchronized (this) {
+			if (writing) {
+				return false;
+			}
+			writing = true;
+		}
+
+		if (thread == null) {
+			thread = new Thread(new Runnable() {
+				public void run() {
+					writeCheckpoints();
+				}
+			}, "Checkpoint writer");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		taken = life.getGeneration();
+		due = (taken / interval + 1) * interval;
+		pending.add(new Checkpoint(life.shareWorld(), taken, life.getRule(), life.getTopology()));
+		return true;
+	}
+
+	/**
+	 * Takes a last checkpoint of the world as it is now, unless the last one taken already is, then waits for it to be written and stops the writer thread.
+	 * @throws IOException if the last checkpoint could not be written.
+	 */
+	public void close() throws IOException {
+		waitForWriting();
+		if (taken != life.getGeneration() || written != taken) {
+			checkpoint();
+			waitForWriting();
+		}
+
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Returns whether a checkpoint is waiting or being written.
+	 * @return writing
+	 */
+	private synchronized boolean isWriting() {
+		return writing;
+	}
+
+	/**
+	 * Waits until no checkpoint is waiting or being written.
+	 */
+	private synchronized void waitForWriting() {
+		boolean interrupted = false;
+
+		while (writing) {
+			try {
+				wait();
+
+			} catch (InterruptedException e) {
+				interrupted = true;	// Keep waiting, the world is still shared
+
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes checkpoints on the writer thread as they are taken, handing each shared grid back to the world once it is on disk.
+	 */
+	private void writeCheckpoints() {
+		while (true) {
+			Checkpoint checkpoint;
+
+			try {
+				checkpoint = pending.take();
+
+			} catch (InterruptedException e) {
+				return;	// Closed
+
+			}
+
+			try {
+				checkpoint.write(file);
+				written = checkpoint.getGeneration();
+
+			} catch (IOException e) {
+				error = e;
+				System.out.println("Error writing checkpoint.");
+				System.err.println("IOException: " + e.getMessage());
+
+			}
+
+			life.releaseWorld(checkpoint.getGrid());
+			synchronized (this) {
+				writing = false;
+				notifyAll();
+			}
+		}
+	}
+}
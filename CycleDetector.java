@@ -0,0 +1,177 @@
+/**
+ * CycleDetector Class
+ * Notices when a world has settled: died out, become a still life, or become an oscillator that repeats itself every so many days.
+ * Each generation is summed up as a 64-bit Zobrist-style hash, in which every word of the world contributes a mix of its position and contents, so that after a day only the changed words of the change set need rehashing. The hashes of the last days are kept in a bounded history, and a generation whose hash was seen before repeats the generation it was seen at.
+ */
+public class CycleDetector {
+	public static final int DEFAULT_HISTORY = 1024;
+	private int wordsPerRow;
+	private long hash;
+	private long population;
+	private long generation;
+	private long[] history;	// Hashes of the last days, as a ring indexed by generation
+	private LongIntMap seen;	// Hash -> latest generation it was seen at, for the days in the history
+	private int period;	// Days between repeats once settled, or 0 if the world has not settled
+
+	/**
+	 * Initializes a detector that finds repeats up to the given number of days apart.
+	 * @param historySize - longest period that can be detected.
+	 */
+	public CycleDetector(int historySize) {
+		if (historySize < 1) {
+			throw new IllegalArgumentException("History must hold at least one day");
+		}
+
+		history = new long[historySize + 1];	// The current day is kept alongside the ones it is compared against
+		seen = new LongIntMap(-1);
+	}
+
+	/**
+	 * Starts detecting afresh from the given world, forgetting the history, as after the world was edited.
+	 * @param grid
+	 */
+	public void reset(Grid grid) {
+		wordsPerRow = grid.getWordsPerRow();
+		hash = 0;
+
+		for (int row = 0; row < grid.getHeight(); row++) {
+
+			for (int word = 0; word < wordsPerRow; word++) {
+				hash ^= wordHash(row*wordsPerRow + word, grid.getWord(row, word));
+			}
+		}
+
+		population = grid.getPopulation();
+		generation = 0;
+		period = 0;
+		seen.clear();
+		remember();
+	}
+
+	/**
+	 * Moves on to the next day, rehashing only the words that changed.
+	 * @param grid - the new generation.
+	 * @param changes - the changes from the last generation to the new one.
+	 */
+	public void update(Grid grid, ChangeSet changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			int index = changes.getRow(i)*wordsPerRow + changes.getWord(i);
+			long after = grid.getWord(changes.getRow(i), changes.getWord(i));
+			long before = after ^ changes.getFlips(i);
+
+			hash ^= wordHash(index, before) ^ wordHash(index, after);
+		}
+
+		population += changes.getBirths() - changes.getDeaths();
+		generation++;
+
+		/* Forget the day that falls out of the history, unless it was seen again since */
+		if (generation >= history.length) {
+			long forgotten = history[(int) (generation % history.length)];
+
+			if (seen.get(forgotten) == (int) (generation - history.length)) {
+				seen.remove(forgotten);
+			}
+		}
+
+		int last = seen.get(hash);
+		if (last != -1) {
+			period = (int) generation - last;	// Wraps correctly past 2^31 days, as long as the period fits
+		}
+		remember();
+	}
+
+	/**
+	 * Records the hash of the current day in the history.
+	 */
+	private void remember() {
+		history[(int) (generation % history.length)] = hash;
+		seen.put(hash, (int) generation);
+	}
+
+	/**
+	 * Returns the hash that a word of the given position and contents adds to the hash of the world. Dead words add nothing, so the hash does not depend on how much empty space there is.
+	 * @param index - position of the word in the world, counting row by row.
+	 * @param bits
+	 * @return hash
+	 */
+	private static long wordHash(int index, long bits) {
+		if (bits == 0) {
+			return 0;
+		}
+
+		/* The finalizer of SplitMix64, over the contents mixed with the position */
+		long z = bits + (index + 1) * 0x9e3779b97f4a7c15L;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns whether the world has settled, by dying out or starting to repeat itself.
+	 * @return settled
+	 */
+	public boolean isSettled() {
+		return period > 0;
+	}
+
+	/**
+	 * Returns whether every Cell of the world is dead.
+	 * @return extinct
+	 */
+	public boolean isExtinct() {
+		return population == 0;
+	}
+
+	/**
+	 * Returns the number of days between repeats of the world: 1 for a still life or an extinct world, more for an oscillator, or 0 if the world has not settled yet.
+	 * @return period
+	 */
+	public int getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Returns the number of days since the detector was reset.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the hash of the current generation.
+	 * @return hash
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns the number of living Cells, kept up to date from the change sets.
+	 * @return population
+	 */
+	public long getPopulation() {
+		return population;
+	}
+
+	/**
+	 * Describes how the world has settled, for display next to the day count.
+	 * @return description - empty if the world has not settled.
+	 */
+	public String describe() {
+		if (!isSettled()) {
+			return "";
+
+		} else if (isExtinct()) {
+			return "extinct";
+
+		} else if (period == 1) {
+			return "still life";
+
+		} else {
+			return "period " + period + " oscillator";
+
+		}
+	}
+}
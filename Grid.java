@@ -0,0 +1,89 @@
+/**
+ * Grid Interface
+ * Defines a rectangular world of Cells stored as rows of bit-packed words. Each word holds the statuses of 64 neighbouring Cells in a row, so the simulation can work on whole words instead of single Cells.
+ * Column c of a row is stored in bit (c % 64) of word (c / 64). Bits past the right edge of the world must always be zero, except while a Topology has put its ghost column there for a step.
+ * Around the world lies a halo one word wide: rows -1 and height, and words -1 and wordsPerRow of every row, may be read and written like any other. It holds the Cells just beyond the edges, as filled in by the Topology, so that engines can read the neighbors of edge Cells without checking bounds. It is dead unless filled in.
+ */
+public interface Grid {
+	/** Number of Cells packed into a single word. */
+	int WORD_SIZE = 64;
+
+	/**
+	 * Returns the number of columns in the world.
+	 * @return width
+	 */
+	int getWidth();
+
+	/**
+	 * Returns the number of rows in the world.
+	 * @return height
+	 */
+	int getHeight();
+
+	/**
+	 * Returns the number of words used to store one row of the world.
+	 * @return wordsPerRow
+	 */
+	int getWordsPerRow();
+
+	/**
+	 * Returns whether or not the Cell on the given row and column is alive.
+	 * @param row
+	 * @param column
+	 * @return alive
+	 */
+	boolean isAlive(int row, int column);
+
+	/**
+	 * Sets the living status of the Cell on the given row and column.
+	 * @param row
+	 * @param column
+	 * @param alive
+	 */
+	void setAlive(int row, int column, boolean alive);
+
+	/**
+	 * Returns the 64 Cells stored in the given word of a row.
+	 * @param row - from -1 to height, counting the halo.
+	 * @param word - index of the word within the row, from -1 to wordsPerRow counting the halo.
+	 * @return bits
+	 */
+	long getWord(int row, int word);
+
+	/**
+	 * Replaces the 64 Cells stored in the given word of a row. The caller is responsible for keeping the bits past the right edge cleared.
+	 * @param row - from -1 to height, counting the halo.
+	 * @param word - index of the word within the row, from -1 to wordsPerRow counting the halo.
+	 * @param bits
+	 */
+	void setWord(int row, int word, long bits);
+
+	/**
+	 * Sets every Cell in the world to dead, along with the halo.
+	 */
+	void clear();
+
+	/**
+	 * Counts the living Cells in the world, leaving out the halo.
+	 * @return population
+	 */
+	long getPopulation();
+
+	/**
+	 * Copies the statuses of another world of the same size into this one, along with its halo.
+	 * @param other
+	 */
+	void copyFrom(Grid other);
+
+	/**
+	 * Sets the world to the statuses in the given array. Cells outside of the array are set to dead.
+	 * @param worldStatus
+	 */
+	void load(boolean[][] worldStatus);
+
+	/**
+	 * Returns the statuses of the world as a boolean array, as used by the UI.
+	 * @return worldStatus
+	 */
+	boolean[][] toArray();
+}
@@ -0,0 +1,596 @@
+/**
+ * HashLife Class
+ * Simulates patterns on an unbounded world using Gosper's HashLife algorithm. The world is a quadtree whose identical branches are shared, and the future of every branch is remembered, so periodic patterns and spaceships can be advanced astronomically far in a few milliseconds.
+ * The number of remembered branches is kept under a configurable limit by discarding everything that the current pattern no longer uses between steps. A jump that would build more than twice the limit on its way is abandoned and taken in two halves instead, down to single generations, so memory stays bounded however far a single jump goes.
+ */
+public class HashLife {
+	public static final int DEFAULT_MAX_NODES = 1 << 21;
+	private static final int LOG2_MAX_JUMP = 58;	// Largest single power of two generations that may be advanced at once
+	private static final NodeLimitReached NODE_LIMIT_REACHED = new NodeLimitReached();
+	private Node[] table;	// Canonical nodes, found by the identity of their quadrants
+	private int nodeCount;
+	private int maxNodes;
+	private int nodeLimit = Integer.MAX_VALUE;	// Number of nodes at which the jump under way is abandoned
+	private Node[] emptyNodes;	// Empty node of each level, by level
+	private Node root;	// Centered on the origin of the world
+	private long generation;
+	private byte[] ruleTable = Rule.CONWAY.getTable();	// Next status of every 3x3 neighborhood
+
+	/**
+	 * Initializes an empty world with the default limit on the number of remembered nodes.
+	 */
+	public HashLife() {
+		this(DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * Initializes an empty world that remembers at most the given number of nodes between steps.
+	 * @param maxNodes
+	 */
+	public HashLife(int maxNodes) {
+		setMaxNodes(maxNodes);
+		table = new Node[1024];
+		emptyNodes = new Node[64];
+		emptyNodes[0] = Node.DEAD;
+		clear();
+	}
+
+	/**
+	 * Returns the limit on the number of remembered nodes.
+	 * @return maxNodes
+	 */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Sets the limit on the number of remembered nodes. Roughly 64 bytes are needed per node. A jump may build up to twice as many, or twice as many as the pattern itself uses if that is more, before it is split.
+	 * @param maxNodes
+	 */
+	public void setMaxNodes(int maxNodes) {
+		if (maxNodes < 1024) {
+			throw new IllegalArgumentException("Node limit is too small: " + maxNodes);
+		}
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * Sets the rule that the following generations are simulated with. Every remembered future was worked out under the old rule, so they are all forgotten.
+	 * @param rule
+	 */
+	public void setRule(Rule rule) {
+		ruleTable = rule.getTable();
+
+		for (Node node : table) {
+
+			if (node != null) {
+				node.result = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of nodes currently remembered.
+	 * @return nodeCount
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the number of generations advanced since the world was last loaded.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the number of living Cells in the whole unbounded world.
+	 * @return population
+	 */
+	public long getPopulation() {
+		return root.population;
+	}
+
+	/**
+	 * Sets every Cell of the world to dead.
+	 */
+	public void clear() {
+		root = empty(3);
+		generation = 0;
+	}
+
+	/**
+	 * Replaces the world with the statuses of the given grid. Row r and column c of the grid become the Cell at x = c, y = r.
+	 * @param grid
+	 */
+	public void load(Grid grid) {
+		int level = 3;
+		while ((1L << (level - 1)) < Math.max(grid.getWidth(), grid.getHeight())) {
+			level++;
+		}
+
+		long half = 1L << (level - 1);
+		root = buildAt(grid, level, -half, -half);
+		generation = 0;
+
+		if (nodeCount > maxNodes) {
+			collect();
+		}
+	}
+
+	/**
+	 * Writes the part of the world that is covered by the grid back into the grid. Cells outside of the grid are not written.
+	 * @param grid
+	 */
+	public void store(Grid grid) {
+		grid.clear();
+		long half = 1L << (root.level - 1);
+		store(grid, root, -half, -half);
+	}
+
+	/**
+	 * Returns whether or not the Cell at the given position of the unbounded world is alive.
+	 * @param x - column
+	 * @param y - row
+	 * @return alive
+	 */
+	public boolean isAlive(long x, long y) {
+		Node node = root;
+		long half = 1L << (node.level - 1);
+		if (x < -half || x >= half || y < -half || y >= half) {
+			return false;
+		}
+
+		long left = -half;
+		long top = -half;
+		while (node.level > 0 && node.population > 0) {
+			long quarter = 1L << (node.level - 1);
+			boolean east = x >= left + quarter;
+			boolean south = y >= top + quarter;
+
+			node = south ? (east ? node.se : node.sw) : (east ? node.ne : node.nw);
+			left += east ? quarter : 0;
+			top += south ? quarter : 0;
+		}
+
+		return node.population > 0;
+	}
+
+	/**
+	 * Advances the world by the given number of generations. Each set bit of the count is advanced as a single jump, so the time taken grows with the logarithm of the count rather than the count itself.
+	 * @param generations
+	 */
+	public void advance(long generations) {
+		if (generations < 0) {
+			throw new IllegalArgumentException("Cannot advance backwards: " + generations);
+		}
+		if ((generations >>> (LOG2_MAX_JUMP + 1)) != 0) {
+			throw new IllegalArgumentException("Cannot advance that far at once: " + generations);
+		}
+
+		for (int step = 0; step <= LOG2_MAX_JUMP; step++) {
+
+			if ((generations & (1L << step)) != 0) {
+				jump(step);
+			}
+		}
+	}
+
+	/**
+	 * Advances the world by 2^step generations.
+	 * @param step
+	 */
+	private void jump(int step) {
+		Node start = root;
+
+		/* Grow the world until it is big enough, and the pattern is far enough from its edges, that nothing can escape during the jump */
+		while (root.level < step + 2 || !isCentered(root)) {
+			root = expand(root);
+		}
+		root = expand(root);
+
+		nodeLimit = step > 0 ? (int) Math.min(Math.max(maxNodes, nodeCount*2L), Integer.MAX_VALUE) : Integer.MAX_VALUE;	// A single generation always goes through, even for a pattern too large for the limit
+		try {
+			root = successor(root, step);
+
+		} catch (NodeLimitReached e) {
+			/* Forget what the jump built so far, and take it in two halves instead */
+			nodeLimit = Integer.MAX_VALUE;
+			root = start;
+			collect();
+			jump(step - 1);
+			jump(step - 1);
+			return;
+
+		}
+		nodeLimit = Integer.MAX_VALUE;
+		generation += 1L << step;
+
+		if (nodeCount > maxNodes) {
+			collect();
+		}
+	}
+
+	/**
+	 * Returns whether all of a node's living Cells lie in its central quarter.
+	 * @param node
+	 * @return centered
+	 */
+	private boolean isCentered(Node node) {
+		return node.nw.se.se.population + node.ne.sw.sw.population + node.sw.ne.ne.population + node.se.nw.nw.population == node.population;
+	}
+
+	/**
+	 * Returns a node twice the size of the given one, with the given node in its center.
+	 * @param node
+	 * @return expanded
+	 */
+	private Node expand(Node node) {
+		Node border = empty(node.level - 1);
+
+		return join(join(border, border, border, node.nw),
+				join(border, border, node.ne, border),
+				join(border, node.sw, border, border),
+				join(node.se, border, border, border));
+	}
+
+	/**
+	 * Returns the center half of a node, advanced by 2^step generations. The step may be at most the node's level minus two.
+	 * @param node
+	 * @param step
+	 * @return result
+	 */
+	private Node successor(Node node, int step) {
+		if (node.population == 0) {
+			return empty(node.level - 1);
+		}
+		if (node.result != null && node.resultStep == step) {
+			return node.result;
+		}
+
+		Node result;
+		if (node.level == 2) {
+			result = baseSuccessor(node);
+
+		} else {
+			/* The nine overlapping sub-squares, each of half the size */
+			Node n00 = node.nw;
+			Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+			Node n02 = node.ne;
+			Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+			Node n11 = join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+			Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+			Node n20 = node.sw;
+			Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+			Node n22 = node.se;
+
+			if (step == node.level - 2) {
+				/* Full speed: advance each stage by half of the jump */
+				Node c00 = successor(n00, step - 1);
+				Node c01 = successor(n01, step - 1);
+				Node c02 = successor(n02, step - 1);
+				Node c10 = successor(n10, step - 1);
+				Node c11 = successor(n11, step - 1);
+				Node c12 = successor(n12, step - 1);
+				Node c20 = successor(n20, step - 1);
+				Node c21 = successor(n21, step - 1);
+				Node c22 = successor(n22, step - 1);
+
+				result = join(successor(join(c00, c01, c10, c11), step - 1),
+						successor(join(c01, c02, c11, c12), step - 1),
+						successor(join(c10, c11, c20, c21), step - 1),
+						successor(join(c11, c12, c21, c22), step - 1));
+
+			} else {
+				/* Smaller jump: only the second stage advances */
+				Node c00 = center(n00);
+				Node c01 = center(n01);
+				Node c02 = center(n02);
+				Node c10 = center(n10);
+				Node c11 = center(n11);
+				Node c12 = center(n12);
+				Node c20 = center(n20);
+				Node c21 = center(n21);
+				Node c22 = center(n22);
+
+				result = join(successor(join(c00, c01, c10, c11), step),
+						successor(join(c01, c02, c11, c12), step),
+						successor(join(c10, c11, c20, c21), step),
+						successor(join(c11, c12, c21, c22), step));
+
+			}
+		}
+
+		node.result = result;
+		node.resultStep = step;
+		return result;
+	}
+
+	/**
+	 * Returns the center half of a node, without advancing it.
+	 * @param node
+	 * @return center
+	 */
+	private Node center(Node node) {
+		return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+	}
+
+	/**
+	 * Advances a 4x4 node by a single generation, returning its center 2x2 Cells.
+	 * @param node
+	 * @return result
+	 */
+	private Node baseSuccessor(Node node) {
+		/* Read the 16 Cells into a bitmap, row by row */
+		int cells = 0;
+		for (int y = 0; y < 4; y++) {
+
+			for (int x = 0; x < 4; x++) {
+				Node quadrant = y < 2 ? (x < 2 ? node.nw : node.ne) : (x < 2 ? node.sw : node.se);
+				Node cell = (y & 1) == 0 ? ((x & 1) == 0 ? quadrant.nw : quadrant.ne) : ((x & 1) == 0 ? quadrant.sw : quadrant.se);
+
+				if (cell.population > 0) {
+					cells |= 1 << (y*4 + x);
+				}
+			}
+		}
+
+		return join(baseCell(cells, 1, 1), baseCell(cells, 2, 1), baseCell(cells, 1, 2), baseCell(cells, 2, 2));
+	}
+
+	/**
+	 * Applies the rule to one of the four center Cells of a 4x4 bitmap.
+	 * @param cells
+	 * @param x
+	 * @param y
+	 * @return cell
+	 */
+	private Node baseCell(int cells, int x, int y) {
+		int neighborhood = 0;
+
+		/* Gather the 3x3 block around the Cell, row by row, as an index into the rule table */
+		for (int dy = -1; dy <= 1; dy++) {
+			neighborhood |= ((cells >>> ((y + dy)*4 + x - 1)) & 7) << ((dy + 1)*3);
+		}
+
+		return ruleTable[neighborhood] != 0 ? Node.ALIVE : Node.DEAD;
+	}
+
+	/**
+	 * Returns the empty node of the given level.
+	 * @param level
+	 * @return empty
+	 */
+	private Node empty(int level) {
+		if (emptyNodes[level] == null) {
+			Node quadrant = empty(level - 1);
+			emptyNodes[level] = join(quadrant, quadrant, quadrant, quadrant);
+		}
+
+		return emptyNodes[level];
+	}
+
+	/**
+	 * Returns the canonical node with the given quadrants, creating it if it does not exist yet.
+	 * @return node
+	 */
+	private Node join(Node nw, Node ne, Node sw, Node se) {
+		int hash = Node.hash(nw, ne, sw, se);
+		int mask = table.length - 1;
+
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			Node node = table[slot];
+
+			if (node == null) {
+				node = new Node(nw, ne, sw, se, hash);
+				table[slot] = node;
+				nodeCount++;
+
+				if (nodeCount*2 > table.length) {
+					resize(table.length*2);
+				}
+				if (nodeCount > nodeLimit) {
+					throw NODE_LIMIT_REACHED;
+				}
+				return node;
+			}
+			if (node.hash == hash && node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+				return node;
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the table of canonical nodes with the given capacity.
+	 * @param capacity - a power of two.
+	 */
+	private void resize(int capacity) {
+		Node[] oldTable = table;
+		table = new Node[capacity];
+
+		for (Node node : oldTable) {
+
+			if (node != null) {
+				insert(node);
+			}
+		}
+	}
+
+	/**
+	 * Places an existing node into the table of canonical nodes.
+	 * @param node
+	 */
+	private void insert(Node node) {
+		int mask = table.length - 1;
+		int slot = node.hash & mask;
+
+		while (table[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = node;
+	}
+
+	/**
+	 * Forgets every node that the current world does not use, along with all remembered results, so that the number of nodes stays under the limit.
+	 */
+	private void collect() {
+		Node[] oldTable = table;
+		int capacity = 1024;
+		table = null;
+		nodeCount = 0;
+
+		/* Find the nodes that are still in use, clearing the results that refer to the rest */
+		for (Node node : oldTable) {
+
+			if (node != null) {
+				node.result = null;
+				node.marked = false;
+			}
+		}
+		mark(root);
+		for (Node empty : emptyNodes) {
+			mark(empty);
+		}
+
+		for (Node node : oldTable) {
+
+			if (node != null && node.marked) {
+				nodeCount++;
+			}
+		}
+		while (capacity < nodeCount*2 + 2) {
+			capacity *= 2;
+		}
+
+		table = new Node[capacity];
+		for (Node node : oldTable) {
+
+			if (node != null && node.marked) {
+				insert(node);
+			}
+		}
+	}
+
+	/**
+	 * Marks a node and all of its quadrants as in use.
+	 * @param node
+	 */
+	private void mark(Node node) {
+		if (node == null || node.level == 0 || node.marked) {
+			return;
+		}
+
+		node.marked = true;
+		mark(node.nw);
+		mark(node.ne);
+		mark(node.sw);
+		mark(node.se);
+	}
+
+	/**
+	 * Builds the node of the given level whose top left Cell is at position (x, y) of the world.
+	 * @return node
+	 */
+	private Node buildAt(Grid grid, int level, long x, long y) {
+		long size = 1L << level;
+		if (x >= grid.getWidth() || y >= grid.getHeight() || x + size <= 0 || y + size <= 0) {
+			return empty(level);	// Entirely outside of the grid
+		}
+
+		if (level == 0) {
+			return grid.isAlive((int) y, (int) x) ? Node.ALIVE : Node.DEAD;
+		}
+
+		long half = size/2;
+		return join(buildAt(grid, level - 1, x, y), buildAt(grid, level - 1, x + half, y), buildAt(grid, level - 1, x, y + half), buildAt(grid, level - 1, x + half, y + half));
+	}
+
+	/**
+	 * Writes the living Cells of a node whose top left Cell is at position (x, y) into the grid.
+	 */
+	private void store(Grid grid, Node node, long x, long y) {
+		long size = 1L << node.level;
+		if (node.population == 0 || x >= grid.getWidth() || y >= grid.getHeight() || x + size <= 0 || y + size <= 0) {
+			return;
+		}
+
+		if (node.level == 0) {
+			grid.setAlive((int) y, (int) x, true);
+			return;
+		}
+
+		long half = size/2;
+		store(grid, node.nw, x, y);
+		store(grid, node.ne, x + half, y);
+		store(grid, node.sw, x, y + half);
+		store(grid, node.se, x + half, y + half);
+	}
+
+	/**
+	 * NodeLimitReached Class
+	 * Unwinds a jump that has built more nodes than it may, so that it can be split. It is thrown often, so it is made once and has no stack trace.
+	 */
+	private static class NodeLimitReached extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		NodeLimitReached() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Node Class
+	 * A square of 2^level by 2^level Cells, made of four quadrants of the level below. A node of level 0 is a single Cell.
+	 */
+	static class Node {
+		static final Node DEAD = new Node(0, 1);
+		static final Node ALIVE = new Node(1, 2);
+		final int level;
+		final long population;
+		final Node nw;
+		final Node ne;
+		final Node sw;
+		final Node se;
+		final int hash;
+		Node result;	// Remembered center of this node, advanced by 2^resultStep generations
+		int resultStep;
+		boolean marked;
+
+		/**
+		 * Initializes a single Cell.
+		 */
+		private Node(long population, int hash) {
+			level = 0;
+			this.population = population;
+			nw = ne = sw = se = null;
+			this.hash = hash;
+		}
+
+		/**
+		 * Initializes a node made of the given quadrants.
+		 */
+		Node(Node nw, Node ne, Node sw, Node se, int hash) {
+			level = nw.level + 1;
+			population = nw.population + ne.population + sw.population + se.population;
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.hash = hash;
+		}
+
+		/**
+		 * Combines the hashes of four quadrants.
+		 * @return hash
+		 */
+		static int hash(Node nw, Node ne, Node sw, Node se) {
+			int hash = nw.hash;
+			hash = hash*1000003 + ne.hash;
+			hash = hash*1000003 + sw.hash;
+			hash = hash*1000003 + se.hash;
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
@@ -0,0 +1,282 @@
+/**
+ * History Class
+ * Remembers the last generations of a world, so that it can be rewound to any of them, within a memory budget.
+ * Each generation is stored as the words that changed on its day, taken from the change set, with a keyframe of the whole world now and then to start replaying from. A keyframe is only taken once the changes stored since the last one add up to its size, so a quiet world costs little per generation however large it is, and rewinding never replays more than about a world's worth of changes.
+ * Generations are kept in a ring buffer and numbered as frames, counting from the first one ever recorded. When the budget is used up, the oldest frames are dropped a keyframe at a time.
+ */
+import java.util.Arrays;
+
+public class History {
+	public static final long DEFAULT_BUDGET = 64L << 20;	// 64 MB
+	private static final int FRAME_BYTES = 64;	// Rough cost of a frame with no changes
+	private int wordsPerRow;
+	private int height;
+	private long budget;	// Bytes the frames may use
+	private long used;	// Bytes the frames use
+	private Frame[] frames = new Frame[64];	// Ring buffer of the frames, oldest first from head
+	private int head;
+	private volatile int size;
+	private volatile long first;	// Number of the oldest frame kept
+	private long position = -1;	// Number of the frame the world is at, or one less than first if no frames are kept
+	private long sinceKeyframe;	// Bytes of changes stored since the last keyframe
+	private boolean broken = true;	// The world changed other than by a step since the last frame
+
+	/**
+	 * Initializes an empty history for a world of the given size.
+	 * @param width
+	 * @param height
+	 * @param budget - bytes of memory the history may use.
+	 */
+	public History(int width, int height, long budget) {
+		wordsPerRow = BitGrid.wordsFor(width);
+		this.height = height;
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the number of frames kept.
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of the oldest frame kept.
+	 * @return first
+	 */
+	public long getFirst() {
+		return first;
+	}
+
+	/**
+	 * Returns the number of the newest frame kept.
+	 * @return last - one less than first if no frames are kept.
+	 */
+	public long getLast() {
+		return first + size - 1;
+	}
+
+	/**
+	 * Returns the number of the frame that the world is at, which is the newest unless the world was rewound.
+	 * @return position - or one less than getFirst if no frames are kept.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the day count of a frame, as it was when the frame was recorded.
+	 * @param frame
+	 * @return generation
+	 */
+	public long getGeneration(long frame) {
+		return frame(frame).generation;
+	}
+
+	/**
+	 * Returns the memory used by the frames kept.
+	 * @return bytes
+	 */
+	public long getMemoryUsed() {
+		return used;
+	}
+
+	/**
+	 * Notes that the world was changed other than by a step, so that the next frame starts from a keyframe.
+	 */
+	void edited() {
+		broken = true;
+	}
+
+	/**
+	 * Prepares for a step of the world: forgets the frames after the one the world was rewound to, and records a keyframe of the world if it was edited since the last frame.
+	 * @param world
+	 * @param generation - day count of the world before the step.
+	 */
+	void beforeStep(Grid world, long generation) {
+		if (size > 0 && getLast() > position) {	// A rewound world steps into a new future
+			while (getLast() > position) {
+				used -= frame(getLast()).bytes;
+				frames[(head + size - 1) % frames.length] = null;
+				size--;
+			}
+
+			/* Count the changes kept since the keyframe that the world now carries on from */
+			sinceKeyframe = 0;
+			for (long kept = position; frame(kept).keyframe == null; kept--) {
+				sinceKeyframe += 12L*frame(kept).indices.length;
+			}
+		}
+
+		if (broken || size == 0) {
+			Frame frame = new Frame(generation);
+			frame.keyframe = copy(world);
+			frame.bytes += 8L*frame.keyframe.length;
+			sinceKeyframe = 0;
+			add(frame);
+			broken = false;
+		}
+	}
+
+	/**
+	 * Records the generation that a step of the world has just made.
+	 * @param world - the new generation.
+	 * @param changes - the changes made by the step.
+	 * @param generation - day count of the new generation.
+	 */
+	void afterStep(Grid world, ChangeSet changes, long generation) {
+		Frame frame = new Frame(generation);
+		int count = changes.size();
+
+		frame.indices = new int[count];
+		frame.flips = new long[count];
+		for (int i = 0; i < count; i++) {
+			frame.indices[i] = changes.getRow(i)*wordsPerRow + changes.getWord(i);
+			frame.flips[i] = changes.getFlips(i);
+		}
+		frame.bytes += 12L*count;
+		sinceKeyframe += 12L*count;
+
+		if (sinceKeyframe >= 8L*wordsPerRow*height) {	// Replaying from the last keyframe would now cost more than a copy
+			frame.keyframe = copy(world);
+			frame.bytes += 8L*frame.keyframe.length;
+			sinceKeyframe = 0;
+		}
+
+		add(frame);
+	}
+
+	/**
+	 * Sets a grid to the world as it was at a frame, and moves the history to it.
+	 * @param frame - number of a frame kept, from getFirst to getLast.
+	 * @param grid
+	 */
+	void restore(long frame, Grid grid) {
+		/* Start from the latest keyframe at or before the frame, then replay the changes up to it */
+		long start = frame;
+		while (frame(start).keyframe == null) {
+			start--;
+		}
+
+		long[] keyframe = frame(start).keyframe;
+		for (int row = 0; row < height; row++) {
+
+			for (int word = 0; word < wordsPerRow; word++) {
+				grid.setWord(row, word, keyframe[row*wordsPerRow + word]);
+			}
+		}
+
+		for (long replayed = start + 1; replayed <= frame; replayed++) {
+			Frame delta = frame(replayed);
+
+			for (int i = 0; i < delta.indices.length; i++) {
+				int row = delta.indices[i] / wordsPerRow;
+				int word = delta.indices[i] % wordsPerRow;
+				grid.setWord(row, word, grid.getWord(row, word) ^ delta.flips[i]);
+			}
+		}
+
+		position = frame;
+		broken = false;
+	}
+
+	/**
+	 * Forgets every frame, keeping the numbering going.
+	 */
+	public void clear() {
+		Arrays.fill(frames, null);
+		first += size;
+		size = 0;
+		position = first - 1;
+		used = 0;
+		sinceKeyframe = 0;
+		broken = true;
+	}
+
+	/**
+	 * Adds a frame after the newest, then drops the oldest frames while over budget, a keyframe at a time. The frames since the newest keyframe are always kept.
+	 * @param frame
+	 */
+	private void add(Frame frame) {
+		if (size == frames.length) {
+			Frame[] grown = new Frame[size*2];
+			for (int i = 0; i < size; i++) {
+				grown[i] = frames[(head + i) % frames.length];
+			}
+			frames = grown;
+			head = 0;
+		}
+
+		frames[(head + size) % frames.length] = frame;
+		size++;
+		used += frame.bytes;
+		position = getLast();
+
+		while (used > budget) {
+			/* Find the next keyframe after the oldest frame, which becomes the oldest */
+			int next = 1;
+			while (next < size && frames[(head + next) % frames.length].keyframe == null) {
+				next++;
+			}
+			if (next >= size) {
+				break;
+			}
+
+			for (int i = 0; i < next; i++) {
+				used -= frames[head].bytes;
+				frames[head] = null;
+				head = (head + 1) % frames.length;
+			}
+			size -= next;
+			first += next;
+		}
+	}
+
+	/**
+	 * Returns a frame by its number.
+	 * @param frame
+	 * @return frame
+	 */
+	private Frame frame(long frame) {
+		if (frame < first || frame > getLast()) {
+			throw new IndexOutOfBoundsException("Frame " + frame + " is not kept");
+		}
+
+		return frames[(int) ((head + (frame - first)) % frames.length)];
+	}
+
+	/**
+	 * Returns a copy of the words of the world, row by row.
+	 * @param world
+	 * @return words
+	 */
+	private long[] copy(Grid world) {
+		long[] words = new long[wordsPerRow*height];
+
+		for (int row = 0; row < height; row++) {
+
+			for (int word = 0; word < wordsPerRow; word++) {
+				words[row*wordsPerRow + word] = world.getWord(row, word);
+			}
+		}
+
+		return words;
+	}
+
+	/**
+	 * Frame Class
+	 * A generation of the world, as the changes from the generation before it, and possibly as a keyframe of the whole world.
+	 */
+	private static class Frame {
+		private long generation;
+		private int[] indices;	// Words that changed since the frame before, row by row, or null if the frame only has a keyframe
+		private long[] flips;	// Bits that flipped in each of those words
+		private long[] keyframe;	// Every word of the world, or null
+		private long bytes = FRAME_BYTES;
+
+		Frame(long generation) {
+			this.generation = generation;
+		}
+	}
+}
@@ -2,19 +2,512 @@
  * Life Class
  * Defines the main model, or logic of the Life simulation.
  */
+import java.io.*;
 import java.util.ArrayList;
 
 public class Life {
 	public static final int WORLD_EDGE = 20;
-	private boolean[][] world;
+	private int width;
+	private int height;
+	private Grid world;
+	private Grid nextWorld;	// Spare grid that the next generation is written into
+	private Grid spareWorld;	// Third grid, only needed while one of the others is shared
+	private volatile Grid shared;	// Grid being read by another thread, which nothing may write until it is released
+	private OffHeapWorld storage;	// Holds the grids when they are kept off the heap, or null
+	private StepEngine engine;
+	private Rule rule = Rule.CONWAY;
+	private Topology topology = Topology.DEAD;
+	private SparseUniverse universe;	// Only used when the world is unbounded, with this world as a window onto it
+	private Grid previousWindow;	// Grid holding the window as it was on the day before the current one, while the universe has only been stepped since; only the tiles that changed are stored into it
+	private ChangeSet changes;	// Cells flipped by the last day, or null if changes are not being tracked
+	private CycleDetector cycleDetector;	// Null unless settling is being detected
+	private boolean edited;	// The world was edited since the cycle detector last saw it
+	private SimulationMetrics metrics;	// Null unless the simulation is being measured
+	private long generation;	// Days simulated since the world was created
+	private CheckpointWriter checkpoints;	// Null unless checkpoints are being taken
+	private StreamServer stream;	// Null unless generations are being streamed to viewers
+	private History history;	// Null unless past generations are being remembered
+	private HashLife hashLife;	// Created on the first jump, and kept so that its remembered results can be reused
 	private PresetFile presetFile;
+	private File patternDirectory;	// Directory of RLE and plaintext pattern files offered as presets
 
 	/**
 	 * Initializes a world of Cells with their statuses of being alive or dead.
 	 */
 	public Life() {
-		world = new boolean[WORLD_EDGE][WORLD_EDGE];
-		presetFile = new PresetFile();
+		this(WORLD_EDGE, WORLD_EDGE);
+	}
+
+	/**
+	 * Initializes a world of the given size, with every Cell dead.
+	 * @param width - number of columns in the world.
+	 * @param height - number of rows in the world.
+	 */
+	public Life(int width, int height) {
+		this(width, height, new PresetFile());
+	}
+
+	/**
+	 * Initializes a world of the given size, with every Cell dead, that loads and saves presets in the given presets file.
+	 * @param width - number of columns in the world.
+	 * @param height - number of rows in the world.
+	 * @param presetFile
+	 */
+	public Life(int width, int height, PresetFile presetFile) {
+		this.width = width;
+		this.height = height;
+		world = new BitGrid(width, height);
+		nextWorld = new BitGrid(width, height);
+		engine = new CellEngine();
+		this.presetFile = presetFile;
+		patternDirectory = new File("patterns");
+	}
+
+	/**
+	 * Initializes a world whose grids are kept off the heap, carrying on from the generation they were last at. A newly allocated or created world starts out with every Cell dead on day 0.
+	 * @param storage - the grids, which the world steps between.
+	 * @param presetFile
+	 */
+	public Life(OffHeapWorld storage, PresetFile presetFile) {
+		int current = storage.getCurrent();
+
+		this.storage = storage;
+		width = storage.getWidth();
+		height = storage.getHeight();
+		world = storage.getGrid(current);
+		nextWorld = storage.getGrid((current + 1) % OffHeapWorld.GRIDS);
+		spareWorld = storage.getGrid((current + 2) % OffHeapWorld.GRIDS);
+		generation = storage.getGeneration();
+		engine = new CellEngine();
+		this.presetFile = presetFile;
+		patternDirectory = new File("patterns");
+	}
+
+	/**
+	 * Returns the number of columns in the world.
+	 * @return width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows in the world.
+	 * @return height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the engine used to simulate each day.
+	 * @return engine
+	 */
+	public StepEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Selects the engine used to simulate each day. All engines give the same results.
+	 * @param engine
+	 */
+	public void setEngine(StepEngine engine) {
+		this.engine = engine;
+		engine.setRule(rule);
+	}
+
+	/**
+	 * Returns what lies beyond the edges of the bounded world.
+	 * @return topology
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * Sets what lies beyond the edges of the bounded world: dead Cells, or the opposite edge as on a torus or a Klein bottle. An unbounded world has no edges, and ignores the topology.
+	 * @param topology
+	 */
+	public void setTopology(Topology topology) {
+		this.topology = topology;
+		edited = true;	// Settling is judged afresh on the new topology
+	}
+
+	/**
+	 * Returns the rule that the world is simulated with.
+	 * @return rule
+	 */
+	public Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * Sets the rule that the following days are simulated with, for every engine, the unbounded universe and jumps alike.
+	 * @param rule
+	 */
+	public void setRule(Rule rule) {
+		this.rule = rule;
+		engine.setRule(rule);
+		edited = true;	// Settling is judged afresh under the new rule
+
+		if (universe != null) {
+			universe.setRule(rule);
+		}
+		if (hashLife != null) {
+			hashLife.setRule(rule);
+		}
+	}
+
+	/**
+	 * Returns whether or not the world is unbounded.
+	 * @return unbounded
+	 */
+	public boolean isUnbounded() {
+		return universe != null;
+	}
+
+	/**
+	 * Selects whether the world is unbounded. In an unbounded world, Cells keep living past the edges of this world, which becomes a window onto the top left corner of a sparse universe with no fixed size.
+	 * @param unbounded
+	 */
+	public void setUnbounded(boolean unbounded) {
+		if (unbounded && universe == null) {
+			universe = new SparseUniverse();
+			universe.setRule(rule);
+			universe.load(world, 0, 0);
+
+		} else if (!unbounded) {
+			universe = null;
+			previousWindow = null;
+
+		}
+	}
+
+	/**
+	 * Returns the sparse universe behind an unbounded world, or null if the world is bounded.
+	 * @return universe
+	 */
+	public SparseUniverse getUniverse() {
+		return universe;
+	}
+
+	/**
+	 * Sets the living status of a single Cell of the world, as when it is clicked in the UI.
+	 * @param row
+	 * @param column
+	 * @param alive
+	 */
+	public void setAlive(int row, int column, boolean alive) {
+		unshare();
+		world.setAlive(row, column, alive);
+		worldEdited();
+
+		if (universe != null) {
+			universe.setAlive(column, row, alive);
+		}
+	}
+
+	/**
+	 * Returns the statuses of the current generation as a boolean array, as used when saving presets.
+	 * @return worldStatus
+	 */
+	public boolean[][] getWorldStatus() {
+		return world.toArray();
+	}
+
+	/**
+	 * Selects whether each day records the Cells that it flipped, for listeners that only want to look at what changed.
+	 * @param trackChanges
+	 */
+	public void setTrackingChanges(boolean trackChanges) {
+		if (trackChanges && changes == null) {
+			changes = new ChangeSet(width, height);
+
+		} else if (!trackChanges && cycleDetector == null && history == null && stream == null) {	// The cycle detector, the history and the stream need the changes
+			changes = null;
+
+		}
+	}
+
+	/**
+	 * Selects whether to detect the world settling into a still life, an oscillator or extinction. The hashes of the given number of past days are kept, which is the longest period that can be detected.
+	 * @param historySize - days to remember, or 0 to stop detecting.
+	 */
+	public void setDetectingCycles(int historySize) {
+		if (historySize > 0) {
+			cycleDetector = new CycleDetector(historySize);
+			setTrackingChanges(true);
+			edited = true;
+
+		} else {
+			cycleDetector = null;
+
+		}
+	}
+
+	/**
+	 * Returns the cycle detector, which tells whether and how the world has settled, or null if settling is not being detected. Edits to the world restart the detection.
+	 * @return cycleDetector
+	 */
+	public CycleDetector getCycleDetector() {
+		if (cycleDetector != null && edited) {
+			cycleDetector.reset(world);
+			edited = false;
+		}
+
+		return cycleDetector;
+	}
+
+	/**
+	 * Returns the Cells flipped by the last day, or null if changes are not being tracked. Changes made other than by simulating a day, such as loading a preset, are not recorded.
+	 * @return changes
+	 */
+	public ChangeSet getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Starts or stops measuring the simulation. While measured, changes are tracked so that births and deaths can be counted.
+	 * @param metrics - the metrics to record into, or null to stop measuring.
+	 */
+	public void setMetrics(SimulationMetrics metrics) {
+		this.metrics = metrics;
+
+		if (metrics != null) {
+			setTrackingChanges(true);
+			metrics.edited();	// The population is counted afresh on the next day, as it may have been measuring another world
+		}
+	}
+
+	/**
+	 * Returns the metrics that the simulation is measured into, or null if it is not being measured.
+	 * @return metrics
+	 */
+	public SimulationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the number of days simulated, counting jumps, since the world was created or the count was last set.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Sets the number of days simulated, as when resuming a run that was saved part way.
+	 * @param generation
+	 */
+	public void setGeneration(long generation) {
+		this.generation = generation;
+		storeWorld();
+	}
+
+	/**
+	 * Returns the off-heap grids of the world.
+	 * @return storage - or null if the grids are on the heap.
+	 */
+	public OffHeapWorld getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Starts or stops remembering past generations, so that the world can be rewound. While remembering, changes are tracked, as each generation is stored as its changes.
+	 * @param history - the history to remember them in, or null to stop remembering.
+	 */
+	public void setHistory(History history) {
+		this.history = history;
+
+		if (history != null) {
+			setTrackingChanges(true);
+		}
+	}
+
+	/**
+	 * Returns the history that past generations are remembered in, or null if they are not being remembered.
+	 * @return history
+	 */
+	public History getHistory() {
+		return history;
+	}
+
+	/**
+	 * Sets the world back, or forward again, to a generation kept in the history, with the day count it had. Stepping from there forgets the generations that came after it. In an unbounded world, only the Cells inside this window are remembered.
+	 * @param frame - number of the frame in the history, from getFirst to getLast.
+	 */
+	public void rewind(long frame) {
+		unshare();
+		history.restore(frame, world);
+		generation = history.getGeneration(frame);
+		storeWorld();
+		edited = true;	// Settling is judged afresh, but the history is already at this generation
+		previousWindow = null;
+		if (stream != null) {
+			stream.edited();
+		}
+		if (metrics != null) {
+			metrics.edited();
+		}
+
+		if (universe != null) {
+			universe.clear();
+			universe.load(world, 0, 0);
+		}
+	}
+
+	/**
+	 * Starts or stops taking checkpoints as the world steps. The writer taking them before is closed, which writes a last checkpoint of the world as it is now and stops its thread. Must be called from the thread that steps the world.
+	 * @param checkpoints - the writer that takes them, or null to stop taking them.
+	 */
+	public void setCheckpointWriter(CheckpointWriter checkpoints) {
+		if (this.checkpoints != null && this.checkpoints != checkpoints) {
+			try {
+				this.checkpoints.close();
+
+			} catch (IOException e) {
+				System.out.println("Error writing checkpoint.");
+				System.err.println("IOException: " + e.getMessage());
+
+			}
+		}
+
+		this.checkpoints = checkpoints;
+	}
+
+	/**
+	 * Returns the writer that takes checkpoints as the world steps, or null if none are being taken.
+	 * @return checkpoints
+	 */
+	public CheckpointWriter getCheckpointWriter() {
+		return checkpoints;
+	}
+
+	/**
+	 * Starts or stops streaming the generations to viewers as the world steps. While streaming, changes are tracked, as the frames are made from them.
+	 * @param stream - the server that streams them, or null to stop streaming.
+	 */
+	public void setStreamServer(StreamServer stream) {
+		this.stream = stream;
+
+		if (stream != null) {
+			setTrackingChanges(true);
+		}
+	}
+
+	/**
+	 * Returns the server that streams the generations as the world steps, or null if they are not being streamed.
+	 * @return stream
+	 */
+	public StreamServer getStreamServer() {
+		return stream;
+	}
+
+	/**
+	 * Sets the world to a checkpoint, with its rule, topology and day count, so that a run carries on from where the checkpoint was taken. A checkpoint of a different size is cut down or padded with dead Cells to fit.
+	 * @param checkpoint
+	 */
+	public void restore(Checkpoint checkpoint) {
+		Grid saved = checkpoint.getGrid();
+		int rows = Math.min(height, saved.getHeight());
+		int words = Math.min(world.getWordsPerRow(), saved.getWordsPerRow());
+		long lastMask = BitGrid.lastWordMask(Math.min(width, saved.getWidth()));
+
+		unshare();
+		world.clear();
+		worldEdited();
+
+		for (int row = 0; row < rows; row++) {
+
+			for (int word = 0; word < words; word++) {
+				world.setWord(row, word, word == words - 1 ? saved.getWord(row, word) & lastMask : saved.getWord(row, word));
+			}
+		}
+
+		setRule(checkpoint.getRule());
+		setTopology(checkpoint.getTopology());
+		generation = checkpoint.getGeneration();
+		storeWorld();
+
+		if (universe != null) {
+			universe.clear();
+			universe.load(world, 0, 0);
+		}
+	}
+
+	/**
+	 * Hands the current generation to another thread to read, such as a checkpoint writer, without copying it. Until the grid is released, the world copies itself before the next step or edit, and steps into its other grids, so the grid stays as it is. Only one grid may be shared at a time.
+	 * @return world
+	 */
+	Grid shareWorld() {
+		if (shared != null) {
+			throw new IllegalStateException("The world is already shared");
+		}
+		if (spareWorld == null) {
+			spareWorld = new BitGrid(width, height);
+		}
+
+		shared = world;
+		return world;
+	}
+
+	/**
+	 * Releases a grid shared by shareWorld, once the other thread has finished reading it. May be called from any thread.
+	 * @param grid
+	 */
+	void releaseWorld(Grid grid) {
+		if (shared == grid) {
+			shared = null;
+		}
+	}
+
+	/**
+	 * Notes that the Cells of the world were changed other than by a step, for the cycle detector, the history, the stream and the metrics.
+	 */
+	private void worldEdited() {
+		edited = true;
+		previousWindow = null;	// The edits are not among the tiles that the universe saw change
+
+		if (history != null) {
+			history.edited();
+		}
+		if (stream != null) {
+			stream.edited();
+		}
+		if (metrics != null) {
+			metrics.edited();
+		}
+	}
+
+	/**
+	 * Makes sure that the current generation may be written, by moving it into the spare grid first if it is shared.
+	 */
+	private void unshare() {
+		if (world == shared) {
+			spareWorld.copyFrom(world);
+
+			Grid copy = spareWorld;
+			spareWorld = world;
+			world = copy;
+			storeWorld();
+		}
+	}
+
+	/**
+	 * Records which grid holds the current generation, and its day count, in the off-heap grids if the world has them.
+	 */
+	private void storeWorld() {
+		if (storage != null) {
+			storage.setCurrent(world, generation);
+		}
+	}
+
+	/**
+	 * Returns the current generation of the world.
+	 * @return world
+	 */
+	public Grid getWorld() {
+		return world;
 	}
 
 	/**
@@ -23,37 +516,187 @@ public class Life {
 	 */
 	public String[] getPresetNames() {
 		String[] presetNames = presetFile.getPresetNames();
+		String[] patternNames = patternDirectory.list();
+
+		/* Add the RLE and plaintext pattern files after the presets */
+		if (patternNames != null) {
+			ArrayList<String> names = new ArrayList<String>(java.util.Arrays.asList(presetNames));
+			java.util.Arrays.sort(patternNames);
+
+			for (String patternName : patternNames) {
+
+				if (PatternFormat.isPatternFile(patternName)) {
+					names.add(patternName);
+				}
+			}
+			presetNames = names.toArray(new String[names.size()]);
+		}
+
 		return presetNames;
 	}
 
+	/**
+	 * Returns the directory searched for RLE and plaintext pattern files.
+	 * @return patternDirectory
+	 */
+	public File getPatternDirectory() {
+		return patternDirectory;
+	}
+
+	/**
+	 * Sets the directory searched for RLE and plaintext pattern files, which are offered alongside the presets.
+	 * @param patternDirectory
+	 */
+	public void setPatternDirectory(File patternDirectory) {
+		this.patternDirectory = patternDirectory;
+	}
+
 	/**
 	 * Sets the world to the selected preset, according to the preset name retrieved. A new world is initialized and returned with the intention of updating the UI.
 	 * @param presetName - name of the preset selected.
 	 * @return world - a new world generated according to the preset.
 	 */
 	public boolean[][] getPresetCoordinates(String presetName) {
+		PresetLoadEvent event = new PresetLoadEvent();
+		long loadStart = System.nanoTime();
+		event.begin();
+
 		/* Initialize an empty world */
-		for (int row = 0; row < world.length; row++) {
+		unshare();
+		world.clear();
+		worldEdited();
 
-			for (int column = 0; column < world.length; column++) {
-				world[row][column] = false;		// Status: dead
-			}
+		/* Pattern files are decoded straight into the world */
+		if (PatternFormat.isPatternFile(presetName)) {
+			try {
+				PatternFormat.read(patternFile(presetName), world, 0, 0);
 
-		}
+			} catch (FileNotFoundException e) {
+				System.out.println("File does not exist or could not be found.");
+				System.err.println("FileNotFoundException: " + e.getMessage());
+
+			} catch (IOException e) {
+				System.out.println("Error reading file.");
+				System.err.println("IOException: " + e.getMessage());
+
+			}
 
 		/* Retrieve preset coordinates if not "Clear". Otherwise return the empty world */
-		if (!presetName.equals("Clear")) {
+		} else if (!presetName.equals("Clear")) {
 			int[] coordinates = presetFile.getPresetCoordinates(presetName);
 
 			for (int coord : coordinates) {
 				int xCoord = coord/WORLD_EDGE;	// x-component of the coordinate
 				int yCoord = coord%WORLD_EDGE;	// y-component of the coordinate
-				world[xCoord][yCoord] = true;	// Set the status of the preset coordinate to alive
 
+				if (xCoord < height && yCoord < width) {
+					world.setAlive(xCoord, yCoord, true);	// Set the status of the preset coordinate to alive
+				}
 			}
 		}
 
-		return world;
+		if (universe != null) {
+			universe.clear();
+			universe.load(world, 0, 0);
+		}
+		presetLoaded(presetName, loadStart, event);
+
+		return world.toArray();
+	}
+
+	/**
+	 * Sets the world to a preset from a binary presets file, decoding it straight into the world with its top left Cell in the top left corner.
+	 * @param presets
+	 * @param presetName
+	 */
+	public void loadPreset(BinaryPresetFile presets, String presetName) {
+		PresetLoadEvent event = new PresetLoadEvent();
+		long loadStart = System.nanoTime();
+		event.begin();
+
+		unshare();
+		world.clear();
+		worldEdited();
+		presets.load(presetName, world, 0, 0);
+
+		if (universe != null) {
+			universe.clear();
+			universe.load(world, 0, 0);
+		}
+		presetLoaded(presetName, loadStart, event);
+	}
+
+	/**
+	 * Records a finished preset load in the metrics and the flight recorder, if either is watching.
+	 * @param presetName
+	 * @param loadStart - System.nanoTime() when the load started.
+	 * @param event
+	 */
+	private void presetLoaded(String presetName, long loadStart, PresetLoadEvent event) {
+		if (metrics != null) {
+			metrics.presetLoaded(System.nanoTime() - loadStart, world);
+		}
+
+		if (event.shouldCommit()) {
+			event.preset = presetName;
+			event.population = world.getPopulation();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the file of a pattern name: the name itself if it is a path to an existing file, or else the file of that name in the pattern directory.
+	 * @param patternName
+	 * @return file
+	 */
+	private File patternFile(String patternName) {
+		File file = new File(patternName);
+
+		if (file.isAbsolute() || file.exists()) {
+			return file;
+		}
+
+		return new File(patternDirectory, patternName);
+	}
+
+	/**
+	 * Sets every Cell of the world to alive with the given probability, for random starting states. The same seed always gives the same world.
+	 * @param density - probability of a Cell being alive, from 0 to 1.
+	 * @param seed
+	 */
+	public void randomize(double density, long seed) {
+		randomize(density, seed, width, height);
+	}
+
+	/**
+	 * Fills a soup of the given size in the middle of the world at random, with every Cell around it dead. The same seed always gives the same soup.
+	 * @param density - probability of a Cell of the soup being alive, from 0 to 1.
+	 * @param seed
+	 * @param soupWidth - columns of the soup, up to the width of the world.
+	 * @param soupHeight - rows of the soup, up to the height of the world.
+	 */
+	public void randomize(double density, long seed, int soupWidth, int soupHeight) {
+		java.util.SplittableRandom random = new java.util.SplittableRandom(seed);
+		int top = (height - Math.min(soupHeight, height)) / 2;
+		int left = (width - Math.min(soupWidth, width)) / 2;
+		unshare();
+		world.clear();
+		worldEdited();
+
+		for (int row = top; row < top + Math.min(soupHeight, height); row++) {
+
+			for (int column = left; column < left + Math.min(soupWidth, width); column++) {
+
+				if (random.nextDouble() < density) {
+					world.setAlive(row, column, true);
+				}
+			}
+		}
+
+		if (universe != null) {
+			universe.clear();
+			universe.load(world, 0, 0);
+		}
 	}
 
 	/**
@@ -66,10 +709,31 @@ public class Life {
 		ArrayList<Integer> npCoords = new ArrayList<Integer>();
 		int[] newPresetCoordinates;
 
+		/* A name ending in .rle or .cells saves the whole world as a pattern file instead */
+		if (newPresetName != null && PatternFormat.isPatternFile(newPresetName)) {
+			BitGrid pattern = new BitGrid(width, height);
+			pattern.load(worldStatus);
+
+			try {
+				File file = patternFile(newPresetName);
+				if (file.getParentFile() != null) {
+					file.getParentFile().mkdirs();
+				}
+				PatternFormat.write(file, pattern, newPresetName, rule);
+
+			} catch (IOException e) {
+				System.out.println("Error writing file.");
+				System.err.println("IOException: " + e.getMessage());
+
+			}
+
+			return newPresetName;
+		}
+
 		/* Retrieve coordinates of live Cells */
-		for (int row = 0; row < world.length; row++) {
+		for (int row = 0; row < worldStatus.length && row < WORLD_EDGE; row++) {
 
-			for (int column = 0; column < world.length; column++) {
+			for (int column = 0; column < worldStatus[row].length && column < WORLD_EDGE; column++) {
 				
 				if (worldStatus[row][column]) {	// If particular Cell is alive
 					int pn = row*WORLD_EDGE + column;
@@ -87,12 +751,8 @@ public class Life {
 		}
 
 		/* Check if the given preset name would be a duplicate */
-		for (String existingPresetNames : presetFile.getPresetNames()) {
-
-			if (newPresetName.equals(existingPresetNames)) {
-				newPresetName = null;
-				break;
-			}
+		if (presetFile.hasPreset(newPresetName)) {
+			newPresetName = null;
 		}
 
 		/* Send coordinates for saving, as well as return given custom preset name */
@@ -102,70 +762,155 @@ public class Life {
 
 	/**
 	 * Simulates another day to determine the new picture of the world of Cells. Returns the results of the simulation as a new world of Cells.
+	 * The array is only used to exchange the world with the UI; the simulation itself runs on the bit-packed grid.
 	 * @param world
 	 * @return newWorld
 	 */
 	public boolean[][] runSimulation(boolean[][] world) {
-		this.world = world;
-		boolean[][] newWorld = new boolean[WORLD_EDGE][WORLD_EDGE];
+		unshare();
+		if (universe != null) {
+			applyEdits(world);
 
-		for (int row = 0; row < world.length; row++) {	// Traverses each row of the existing world
+		} else {
+			this.world.load(world);
 
-			for (int column = 0; column < world[row].length; column++) {	// Traverses each column of the existing world
-				int neighbors = numNeighbors(row, column);	// Obtains the number of neighbors the Cell on that particular row and column has.
+		}
+		worldEdited();
+		step();
+		return this.world.toArray();
+	}
 
-				/* Applies the pseudocode from chapter 9 Exc.14 that decides whether or not the Selected cell is alive */
-				/* Adds the dead or alive Cell to the new world */
-				if (world[row][column]) {		// alive
+	/**
+	 * Simulates another day on the bit-packed world using the selected engine. The new generation is written into the spare grid, which then becomes the current world, so no memory is allocated per generation.
+	 */
+	public void step() {
+		StepEvent event = StepEvent.start();
+		if (metrics != null) {
+			metrics.startStep();
+		}
+		if (history != null) {
+			history.beforeStep(world, generation);
+		}
 
-					if (neighbors == 2 || neighbors == 3) {
-						newWorld[row][column] = true;
+		if (nextWorld == shared) {	// Still being read, so write the new generation into the spare grid instead
+			Grid free = spareWorld;
+			spareWorld = nextWorld;
+			nextWorld = free;
+		}
 
-					} else {
-						newWorld[row][column] = false;
+		if (universe != null) {
+			universe.step();
+			if (nextWorld == previousWindow) {
+				universe.storeChanged(nextWorld, 0, 0);
 
-					}
+			} else {
+				universe.store(nextWorld, 0, 0);
 
-				} else {	// dead
-					
-					if (neighbors == 3) {
-						newWorld[row][column] = true;
+			}
 
-					} else {
-						newWorld[row][column] = false;
+		} else {
+			if (world == shared) {	// The halo and ghost column are written for the step, so the reader keeps its grid and the world steps from a copy
+				unshare();
+			}
+			topology.refreshHalo(world);
+			engine.step(world, nextWorld);
+			topology.clearGhosts(world);
 
-					}
+		}
 
-				}
-			}
+		if (cycleDetector != null) {
+			getCycleDetector();	// Catch up with any edits before stepping past them
+		}
+		if (changes != null) {
+			changes.record(world, nextWorld);
+		}
+
+		/* Swap the grids so that the new generation becomes the current world */
+		Grid oldWorld = world;
+		world = nextWorld;
+		nextWorld = oldWorld;
+		previousWindow = universe != null ? nextWorld : null;
+
+		if (cycleDetector != null) {
+			cycleDetector.update(world, changes);
+		}
+		generation++;
+		storeWorld();
+
+		if (history != null) {
+			history.afterStep(world, changes, generation);
+		}
+		if (metrics != null) {
+			metrics.endStep(world, changes);
+		}
+		if (event != null && event.shouldCommit()) {
+			event.generation = generation;
+			event.population = world.getPopulation();
+			event.births = changes != null ? changes.getBirths() : -1;
+			event.deaths = changes != null ? changes.getDeaths() : -1;
+			event.engine = universe != null ? "SparseUniverse" : engine.getClass().getSimpleName();
+			event.commit();
+		}
+		if (checkpoints != null) {
+			checkpoints.stepped();
+		}
+		if (stream != null) {
+			stream.stepped();
 		}
-		return newWorld;
 	}
 
 	/**
-	 * Using dimensional logic, and the arguments passed, the number of neighbors that a certain Cell has is counted based on its location. That number is then returned.
-	 * @param row - the row number of the selected Cell
-	 * @param column - the column number of the selected Cell
-	 * @return neighbors
+	 * Advances the world by the given number of generations at once using HashLife. The pattern is simulated on an unbounded world, so Cells that would be stopped by the edges of this world keep going, and only the Cells that end up inside the world are kept.
+	 * Periodic patterns and spaceships can be advanced trillions of generations in a few milliseconds.
+	 * @param generations
 	 */
-	private int numNeighbors(int row, int column) {
-		int neighbors = 0;
-		int[][] nCoordinates = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};	// Preset constants to be added to selected Cell's row and column number to obtain the corresponding neighbor's coordinates
+	public void jump(long generations) {
+		HashLife hashLife = getHashLife();
 
-		/* Check all neighboring Cells' (ones that do exist) statuses */
-		for (int[] coordinates : nCoordinates) {	// Traverses each coordinate
-			int xCoordinate = coordinates[0] + row;
-			int yCoordinate = coordinates[1] + column;
+		if (universe != null) {
+			throw new IllegalStateException("Jumping is only supported on a bounded world");
+		}
+		if (topology != Topology.DEAD) {
+			throw new IllegalStateException("Jumping is only supported on a world with dead edges");
+		}
+
+		hashLife.load(world);
+		hashLife.advance(generations);
+		unshare();
+		hashLife.store(world);
+		worldEdited();
+		this.generation += generations;
+		storeWorld();
+	}
+
+	/**
+	 * Returns the HashLife engine used by jump, which may be used to set its memory limit.
+	 * @return hashLife
+	 */
+	public HashLife getHashLife() {
+		if (hashLife == null) {
+			hashLife = new HashLife();
+			hashLife.setRule(rule);
+		}
+
+		return hashLife;
+	}
+
+	/**
+	 * Copies the Cells that were changed in the UI into the unbounded universe, leaving the Cells outside of the window alone.
+	 * @param worldStatus
+	 */
+	private void applyEdits(boolean[][] worldStatus) {
+		for (int row = 0; row < worldStatus.length && row < height; row++) {
+
+			for (int column = 0; column < worldStatus[row].length && column < width; column++) {
+
+				if (worldStatus[row][column] != world.isAlive(row, column)) {	// Cell was toggled since the last day
+					world.setAlive(row, column, worldStatus[row][column]);
+					universe.setAlive(column, row, worldStatus[row][column]);
 
-			/* Includes cells only if their coordinates exist within the parameters of the world */
-			if (xCoordinate >= 0 && xCoordinate < WORLD_EDGE && yCoordinate >= 0 && yCoordinate < WORLD_EDGE) {
-				
-				if (world[xCoordinate][yCoordinate]) {
-					neighbors++;
 				}
 			}
 		}
-
-		return neighbors;
 	}
 }
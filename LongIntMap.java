@@ -0,0 +1,151 @@
+/**
+ * LongIntMap Class
+ * A hash map from long keys to int values that stores both in primitive arrays, with open addressing and linear probing. Avoids the boxing and per-entry objects of a HashMap on hot paths.
+ */
+import java.util.Arrays;
+
+public class LongIntMap {
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int missing;	// Value returned for keys that are not in the map
+
+	/**
+	 * Initializes an empty map.
+	 * @param missing - the value returned by get for keys that are not in the map.
+	 */
+	public LongIntMap(int missing) {
+		this.missing = missing;
+		keys = new long[16];
+		values = new int[16];
+		used = new boolean[16];
+	}
+
+	/**
+	 * Returns the number of keys in the map.
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the value of the given key, or the missing value if the key is not in the map.
+	 * @param key
+	 * @return value
+	 */
+	public int get(long key) {
+		int mask = keys.length - 1;
+
+		for (int slot = hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+
+			if (keys[slot] == key) {
+				return values[slot];
+			}
+		}
+
+		return missing;
+	}
+
+	/**
+	 * Sets the value of the given key, adding the key if it is not in the map yet.
+	 * @param key
+	 * @param value
+	 */
+	public void put(long key, int value) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+
+		while (used[slot]) {
+
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		size++;
+
+		if (size*2 > keys.length) {
+			resize(keys.length*2);
+		}
+	}
+
+	/**
+	 * Removes the given key from the map, if it is there. Later keys of the same probe sequence are shifted back into the gap, so no tombstones are left behind.
+	 * @param key
+	 */
+	public void remove(long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		if (!used[slot]) {
+			return;
+		}
+
+		/* Shift back every following key that would no longer be found past the gap */
+		int gap = slot;
+		for (int next = (gap + 1) & mask; used[next]; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+		}
+
+		used[gap] = false;
+		size--;
+	}
+
+	/**
+	 * Removes every key from the map.
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	/**
+	 * Rebuilds the map with the given capacity.
+	 * @param capacity - a power of two.
+	 */
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		size = 0;
+
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+
+			if (oldUsed[slot]) {
+				put(oldKeys[slot], oldValues[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a key so that nearby keys land in different slots.
+	 * @param key
+	 * @return hash
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
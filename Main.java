@@ -3,35 +3,81 @@
  * Runs the LifeGUI 2 class.
  */
 import javax.swing.*;
+import javax.swing.event.*;
 import java.awt.*;
 import java.awt.event.*;
-
-public class Main implements ActionListener {
-	/* Actual simulation logic class, as well as the day counter variable */
+import javax.management.JMException;
+import java.io.File;
+import java.io.IOException;
+
+public class Main {
+	private static final int FRAME_DELAY = 16;	// Milliseconds between frames while the simulation runs, about 60 per second
+	private static final String[] SPEEDS = {"2 days/s", "10 days/s", "60 days/s", "1000 days/s", "Max"};
+	private static final File CHECKPOINT_FILE = new File("checkpoint.lifeckp");	// Written while checkpointing, and read by Resume
+	private static final long CHECKPOINT_INTERVAL = 1000;	// Days between checkpoints
+	/* Actual simulation logic class, the thread that runs it, as well as the day counter variable */
 	Life simulation;
+	Simulator simulator;
 	int days;
-	Timer autoSimulate;
+	Timer frames;	// Draws the latest snapshot of the running simulation
+	BitGrid shown;	// The world as last drawn while running, to find the Cells a new snapshot changed
+	ChangeSet shownChanges;
 	/* Basic GUI Components */
 	JFrame frame;
 	JPanel contentPane;
 	JPanel utilitiesPane;
-	/* 2D-array of Cells - Specialized JButton Components representing the bacteria cells in a simulated world */
+	/* Canvas that draws the Cells of the simulated world, and turns clicks into Cell toggles */
 	JPanel worldPane;
-	Cell[][] world;
+	WorldCanvas world;
 	/* Set action GUI components */
 	JPanel actionPane;
 	JButton next;
 	JButton auto;
 	JLabel dayCount;
+	JComboBox<String> speed;
+	JCheckBox stopSettled;
+	JCheckBox checkpointing;
+	/* Timeline slider that rewinds the world to any generation still in its history */
+	JPanel timelinePane;
+	JSlider timeline;
+	boolean updatingTimeline;	// The slider is being moved to follow the simulation, not by the user
 	/* Set setting GUI components */
 	JPanel settingsPane;
-	JComboBox presets;
+	JComboBox<String> presets;
+	JComboBox<String> rules;
+	JComboBox<Topology> topologies;
 	JButton save;
+	JButton resume;
 	JLabel stat;
 
 	public Main() {
+		this(Life.WORLD_EDGE, Life.WORLD_EDGE);
+	}
+
+	/**
+	 * Creates the GUI for a world of the given size.
+	 * @param width
+	 * @param height
+	 */
+	public Main(int width, int height) {
 		/* Initialize the simulation class */
-		simulation = new Life();
+		simulation = new Life(width, height);
+		simulation.setTrackingChanges(true);	// Only the Cells that flip each day are redrawn
+		simulation.setDetectingCycles(CycleDetector.DEFAULT_HISTORY);
+		simulation.setMetrics(new SimulationMetrics());
+		try {
+			simulation.getMetrics().register("Main");	// Watch it live in JConsole, under life:type=Simulation
+
+		} catch (JMException e) {
+			System.out.println("Error registering metrics.");
+			System.err.println("JMException: " + e.getMessage());
+
+		}
+		simulation.setHistory(new History(width, height, History.DEFAULT_BUDGET));
+		simulator = new Simulator(simulation, 2.0);
+		shown = new BitGrid(width, height);
+		shownChanges = new ChangeSet(width, height);
+		frames = new Timer(FRAME_DELAY, new FrameListener());
 		days = 0;
 
 		/* ---------------- BASIC GUI COMPONENTS ---------------- */
@@ -51,21 +97,15 @@ public class Main implements ActionListener {
 
 		/* ---------------- WORLD GUI COMPONENTS ---------------- */
 		/* Initialize world pane */
-		worldPane = new JPanel();
-		worldPane.setLayout(new GridLayout(0, 20, 5, 3));
+		worldPane = new JPanel(new BorderLayout());
 		worldPane.setBorder(BorderFactory.createEmptyBorder(3, 2, 0, 2));
 		worldPane.setBackground(Color.black);
 
-		/* Initialize all cells in the world */
-		world = new Cell[Life.WORLD_EDGE][Life.WORLD_EDGE];
-		for (int row = 0; row < world.length; row++) {
-
-			for (int column = 0; column < world[row].length; column++) {
-				world[row][column] = new Cell(row, column, this);
-				worldPane.add(world[row][column]);
-
-			}
-		}
+		/* Initialize the canvas that draws all cells in the world */
+		world = new WorldCanvas(width, height, 600);
+		world.setCellListener(new WorldListener());
+		world.render(simulation.getWorld());
+		worldPane.add(world, BorderLayout.CENTER);
 
 		/* ---------------- ACTION GUI COMPONENTS ---------------- */
 		/* Initialize action pane */
@@ -96,6 +136,41 @@ public class Main implements ActionListener {
 		dayCount.setForeground(Color.white);
 		actionPane.add(dayCount);
 
+		/* Initialize the speed combo box, in days per second while running */
+		speed = new JComboBox<String>(SPEEDS);
+		speed.addActionListener(new SpeedListener());
+		speed.setBackground(Color.black);
+		speed.setForeground(Color.lightGray);
+		actionPane.add(speed);
+
+		/* Initialize the check box that stops the simulation once the world has settled */
+		stopSettled = new JCheckBox("Stop when settled");
+		stopSettled.addActionListener(new SettledListener());
+		stopSettled.setBackground(Color.black);
+		stopSettled.setForeground(Color.lightGray);
+		actionPane.add(stopSettled);
+
+		/* Initialize the check box that checkpoints the world every so many days, so that a long run can be resumed */
+		checkpointing = new JCheckBox("Checkpoint");
+		checkpointing.setToolTipText("Save the world to " + CHECKPOINT_FILE + " every " + CHECKPOINT_INTERVAL + " days");
+		checkpointing.addActionListener(new CheckpointListener());
+		checkpointing.setBackground(Color.black);
+		checkpointing.setForeground(Color.lightGray);
+		actionPane.add(checkpointing);
+
+		/* ---------------- TIMELINE GUI COMPONENTS ---------------- */
+		/* Initialize timeline pane */
+		timelinePane = new JPanel(new BorderLayout());
+		timelinePane.setBorder(BorderFactory.createEmptyBorder(3, 2, 0, 2));
+		timelinePane.setBackground(Color.black);
+
+		/* Initialize the timeline slider, from the oldest generation remembered to the newest */
+		timeline = new JSlider(0, 0, 0);
+		timeline.setToolTipText("Drag to rewind to an earlier day");
+		timeline.addChangeListener(new TimelineListener());
+		timeline.setBackground(Color.black);
+		timelinePane.add(timeline, BorderLayout.CENTER);
+
 		/* ---------------- SETTINGS GUI COMPONENTS ---------------- */
 		/* Initialize settings pane */
 		settingsPane = new JPanel();
@@ -103,7 +178,7 @@ public class Main implements ActionListener {
 
 		/* Initialize thet preset combo box */
 		String[] presetNames = simulation.getPresetNames();
-		presets = new JComboBox(presetNames);
+		presets = new JComboBox<String>(presetNames);
 		presets.setSelectedItem(0);
 		presets.setEditable(true);
 		presets.addActionListener(new SettingsListener());
@@ -111,6 +186,22 @@ public class Main implements ActionListener {
 		presets.setForeground(Color.lightGray);
 		settingsPane.add(presets);
 
+		/* Initialize the rule combo box, which also takes any rule typed in B/S notation */
+		rules = new JComboBox<String>(Rule.getNamedRules());
+		rules.setEditable(true);
+		rules.setToolTipText("Rule in B/S notation, such as B36/S23");
+		rules.addActionListener(new RuleListener());
+		rules.setBackground(Color.black);
+		rules.setForeground(Color.lightGray);
+		settingsPane.add(rules);
+
+		/* Initialize the topology combo box, which decides what lies beyond the edges of the world */
+		topologies = new JComboBox<Topology>(Topology.values());
+		topologies.addActionListener(new TopologyListener());
+		topologies.setBackground(Color.black);
+		topologies.setForeground(Color.lightGray);
+		settingsPane.add(topologies);
+
 		/* Initialize the Save button */
 		save = new JButton("Save");
 		save.setActionCommand("Save");
@@ -119,6 +210,15 @@ public class Main implements ActionListener {
 		save.setBackground(Color.black);
 		save.setForeground(Color.white);
 		settingsPane.add(save);
+
+		/* Initialize the Resume button, which carries on from the last checkpoint */
+		resume = new JButton("Resume");
+		resume.setActionCommand("Resume");
+		resume.addActionListener(new SettingsListener());
+		resume.setAlignmentX(JButton.CENTER_ALIGNMENT);
+		resume.setBackground(Color.black);
+		resume.setForeground(Color.white);
+		settingsPane.add(resume);
 		
 		/* Initialize a Stat label that displays the status of the save */
 		stat = new JLabel("_____________________");
@@ -133,6 +233,7 @@ public class Main implements ActionListener {
 
 		/* Add world and utilities panes to contentPane */
 		contentPane.add(worldPane);
+		contentPane.add(timelinePane);
 		contentPane.add(utilitiesPane);
 
 		/* Complete initializing the frame */
@@ -143,74 +244,168 @@ public class Main implements ActionListener {
 	}
 
 	/**
-	 * Reads the Cell Components and stores the boolean values of their status.
-	 * @return worldStatus
+	 * Simulates a day of the current world to acquire a new world status. World is automatically updated after simulation, redrawing only the Cells that flipped.
 	 */
-	private boolean[][] readUI() {
-		boolean[][] worldStatus = new boolean[world.length][world[0].length];
+	private void simulate() {
+		simulator.step();
+		world.render(simulation.getWorld(), simulation.getChanges());
+		days = (int) simulator.getGeneration();
+		showDays(simulation.getCycleDetector().describe());
+		updateTimeline();
+
+		/* Also set saving status to default */
+		stat.setText("_____________________");
+		stat.setForeground(Color.black);
+	}
 
-		for (int row = 0; row < world.length; row++) {	// Traverses each row
-			
-			for (int column = 0; column < world[row].length; column++) {	// Traverses each column
-				worldStatus[row][column] = world[row][column].isAlive();	// Sets the boolean element based on the Cell's current life status (true = alive, false = dead)
+	/**
+	 * Shows the day count, along with how the world has settled if it has.
+	 * @param settled - description of how the world has settled, or empty.
+	 */
+	private void showDays(String settled) {
+		dayCount.setText("Day " + Integer.toString(days) + (settled.isEmpty() ? "" : " - " + settled));
+		dayCount.setForeground(settled.isEmpty() ? Color.white : Color.orange);
+	}
+
+	/**
+	 * Moves the timeline slider to the generation the world is at, and stretches it over every generation in the history. While running, the world is always at the newest.
+	 */
+	private void updateTimeline() {
+		History history = simulation.getHistory();
+		int newest = Math.max(history.size() - 1, 0);
+
+		updatingTimeline = true;
+		timeline.setMaximum(newest);
+		timeline.setValue(simulator.isRunning() ? newest : (int) (history.getPosition() - history.getFirst()));
+		updatingTimeline = false;
+	}
+
+	/**
+	 * WorldListener Class
+	 * This listener toggles the Cells of the world as they are clicked on the canvas.
+	 */
+	class WorldListener implements WorldCanvas.CellListener {
 
+		/**
+		 * Handles Cell click action from the world.
+		 * @param row
+		 * @param column
+		 */
+		public void cellClicked(final int row, final int column) {
+			simulator.submit(new Runnable() {
+				public void run() {
+					boolean alive = simulation.getWorld().isAlive(row, column);
+					simulation.setAlive(row, column, !alive);	// Toggle the status of the selected Cell
+					simulator.resetGeneration();
+				}
+			});
+
+			if (!simulator.isRunning()) {	// Otherwise the next snapshot shows it
+				world.renderCell(simulation.getWorld(), row, column);
 			}
+			days = 0;
+			dayCount.setText("  Day 0  ");
+			dayCount.setForeground(Color.white);
 		}
-		return worldStatus;
 	}
 
 	/**
-	 * Updates the UI of the changed statuses in the Cells.
-	 * @param newWorldStatus
+	 * FrameListener Class
+	 * While the simulation runs, this listener draws its latest snapshot on every frame. Snapshots that arrive between frames are skipped, so the UI stays responsive however fast the simulation runs.
 	 */
-	private void updateUI(boolean[][] newWorldStatus) {
+	class FrameListener implements ActionListener {
 
-		for (int row = 0; row < world.length; row++) {	// Traverses each row
-			
-			for (int column = 0; column < world[row].length; column++) {	// Traverses each column
-				world[row][column].setAlive(newWorldStatus[row][column]);	// Sets the new status in the Cell
+		/**
+		 * Handles a frame.
+		 * @param event
+		 */
+		public void actionPerformed(ActionEvent event) {
+			Simulator.Snapshot snapshot = simulator.takeSnapshot();
+			if (snapshot == null) {
+				return;	// Nothing new since the last frame
+			}
+
+			/* Redraw only the Cells that changed since the last frame, however many days apart */
+			shownChanges.record(shown, snapshot.getGrid());
+			world.render(snapshot.getGrid(), shownChanges);
+			shown.copyFrom(snapshot.getGrid());
+			updateTimeline();
+
+			days = (int) snapshot.getGeneration();
+			if (snapshot.getSettled().isEmpty()) {
+				dayCount.setText("Day " + Integer.toString(days) + "  (" + Math.round(simulator.getMeasuredRate()) + "/s)");
+				dayCount.setForeground(Color.white);
+
+			} else {
+				showDays(snapshot.getSettled());
+
+				if (stopSettled.isSelected()) {
+					auto.doClick();	// Press Stop, as the simulation thread has stopped stepping
+				}
 
 			}
 		}
-		days++;
-		dayCount.setText("Day " + Integer.toString(days));
 	}
 
 	/**
-	 * Simulates a day of the current world to acquire a new world status. World is automatically updated after simulation.
+	 * SpeedListener Class
+	 * This listener sets the target speed of the simulation from the speed combo box.
 	 */
-	private void simulate() {
-		boolean[][] worldStatus = readUI();
-		boolean[][] newWorldStatus = simulation.runSimulation(worldStatus);
-		updateUI(newWorldStatus);
+	class SpeedListener implements ActionListener {
 
-		/* Also set saving status to default */
-		stat.setText("_____________________");
-		stat.setForeground(Color.black);
+		/**
+		 * Handles speed selection.
+		 * @param event
+		 */
+		public void actionPerformed(ActionEvent event) {
+			String speedName = (String) (speed.getSelectedItem());
+
+			if (speedName.equals("Max")) {
+				simulator.setTargetRate(0);	// As fast as possible
+
+			} else {
+				simulator.setTargetRate(Double.parseDouble(speedName.substring(0, speedName.indexOf(' '))));
+
+			}
+		}
 	}
 
 	/**
-	 * Handles Cell click action from the world.
-	 * @param event
+	 * SettledListener Class
+	 * This listener tells the simulation whether to stop once the world has settled, from the Stop when settled check box.
 	 */
-	public void actionPerformed(ActionEvent event) {
-		String eventName = event.getActionCommand();
-		int eventNum = Integer.parseInt(eventName);
-		int row = eventNum / world.length;
-		int column = eventNum % world.length;
+	class SettledListener implements ActionListener {
+
+		/**
+		 * Handles the check box being toggled.
+		 * @param event
+		 */
+		public void actionPerformed(ActionEvent event) {
+			simulator.setStopWhenSettled(stopSettled.isSelected());
+		}
+	}
 
-		if (world[row][column].isAlive()) {	// If selected Cell is alive
-			world[row][column].setAlive(false);	// Toggle to dead status
+	/**
+	 * CheckpointListener Class
+	 * This listener starts or stops checkpointing the world, from the Checkpoint check box.
+	 */
+	class CheckpointListener implements ActionListener {
 
-		} else {	// If selected Cell is dead
-			world[row][column].setAlive(true);	// Toggle to alive status
+		/**
+		 * Handles the check box being toggled.
+		 * @param event
+		 */
+		public void actionPerformed(ActionEvent event) {
+			final boolean selected = checkpointing.isSelected();
 
+			simulator.submit(new Runnable() {
+				public void run() {
+					simulation.setCheckpointWriter(selected ? new CheckpointWriter(simulation, CHECKPOINT_FILE, CHECKPOINT_INTERVAL) : null);
+				}
+			});
 		}
-
-		days = 0;
-		dayCount.setText("  Day 0  ");
 	}
-	
+
 	/**
 	 * ActionsListener Class
 	 * This listener manages any event that is related to the simulation of the game. Such buttons include Next, Go, and Stop.
@@ -236,15 +431,11 @@ public class Main implements ActionListener {
 					auto.setText("Stop");
 					auto.setForeground(Color.red);
 
-					/* Create and start a new timer thread that manages the simulation */
-					autoSimulate = new Timer(450, new ActionsListener() {
-
-						public void actionPerformed(ActionEvent evt) {
-							simulate();
-						}
-
-					});
-					autoSimulate.start();
+					/* Start the simulation thread, and draw its snapshots as they come */
+					next.setEnabled(false);
+					shown.copyFrom(simulation.getWorld());
+					simulator.start();
+					frames.start();
 					break;
 
 				case "Stop":	// Stop button pressed
@@ -253,64 +444,228 @@ public class Main implements ActionListener {
 					auto.setText("  Go  ");
 					auto.setForeground(Color.green);
 
-					/* Stop the timer thread */
-					autoSimulate.stop();
+					/* Stop the simulation thread, after which the world is drawn straight from the simulation again */
+					frames.stop();
+					simulator.stop();
+					next.setEnabled(true);
+					world.render(simulation.getWorld());
+					days = (int) simulator.getGeneration();
+					showDays(simulation.getCycleDetector().describe());
+					updateTimeline();
 					break;
 
 			}
 		}
 	}
 
+	/**
+	 * TimelineListener Class
+	 * This listener rewinds the world to the generation picked on the timeline slider, or forward again to a later one, as it is dragged. A running simulation is stopped first.
+	 */
+	class TimelineListener implements ChangeListener {
+
+		/**
+		 * Handles the slider being moved.
+		 * @param event
+		 */
+		public void stateChanged(ChangeEvent event) {
+			if (updatingTimeline) {
+				return;
+			}
+			if (simulator.isRunning()) {
+				int picked = timeline.getValue();
+				auto.doClick();	// Press Stop, which moves the slider to the newest generation
+				updatingTimeline = true;
+				timeline.setValue(picked);
+				updatingTimeline = false;
+			}
+
+			final History history = simulation.getHistory();
+			final long frame = history.getFirst() + timeline.getValue();
+			if (frame > history.getLast()) {	// Nothing remembered yet
+				return;
+			}
+
+			simulator.submit(new Runnable() {
+				public void run() {
+					simulation.rewind(frame);
+					simulator.setGeneration(simulation.getGeneration());
+				}
+			});
+			world.render(simulation.getWorld());
+			days = (int) simulator.getGeneration();
+			showDays("");
+		}
+	}
+
 	/**
 	 * SettingsListener Class
-	 * This listener listens for any event that is related to presets and any other settings in the simulation. This includes the preset selected, as well as the Save button.
+	 * This listener listens for any event that is related to presets and any other settings in the simulation. This includes the preset selected, as well as the Save and Resume buttons.
 	 */
 	class SettingsListener implements ActionListener {
 		
 		/**
-		 * Handles preset selection and Save button action.
+		 * Handles preset selection, and Save and Resume button action.
 		 * @param event
 		 */
 		public void actionPerformed(ActionEvent event) {
 			String eventName = event.getActionCommand();
 
 			if (eventName.equals("Save")) {		// Save button has been clicked
-				boolean[][] worldStatus = readUI();
-				String newPresetName = (String) (presets.getSelectedItem());
-
-				/* Pass the array of coordinates for saving */
-				newPresetName = simulation.createNewPreset(worldStatus, newPresetName);
-				
-				/* Update the settings pane Components with the new custom preset */
-				presets.addItem(newPresetName);
-				simulation.getPresetNames();	// Don't ask why... LOL
-				stat.setText(newPresetName + " created.");
-				stat.setForeground(Color.green);
+				final String presetName = (String) (presets.getSelectedItem());
+
+				/* Save the world as it is when the simulation gets to it, then update the settings pane Components with the new custom preset */
+				simulator.submit(new Runnable() {
+					public void run() {
+						boolean[][] worldStatus = simulation.getWorldStatus();
+						final String newPresetName = simulation.createNewPreset(worldStatus, presetName);
+
+						SwingUtilities.invokeLater(new Runnable() {
+							public void run() {
+								presets.addItem(newPresetName);
+								stat.setText(newPresetName + " created.");
+								stat.setForeground(Color.green);
+							}
+						});
+					}
+				});
+
+			} else if (eventName.equals("Resume")) {	// Resume button has been clicked
+				/* Carry on from the last checkpoint, then show its rule and topology */
+				simulator.submit(new Runnable() {
+					public void run() {
+						final Checkpoint checkpoint;
+
+						try {
+							checkpoint = Checkpoint.read(CHECKPOINT_FILE);
+
+						} catch (IOException e) {
+							System.out.println("Error reading file.");
+							System.err.println("IOException: " + e.getMessage());
+							SwingUtilities.invokeLater(new Runnable() {
+								public void run() {
+									stat.setText("No checkpoint to resume.");
+									stat.setForeground(Color.red);
+								}
+							});
+							return;
+
+						}
+
+						simulation.restore(checkpoint);
+						simulator.setGeneration(checkpoint.getGeneration());
+
+						SwingUtilities.invokeLater(new Runnable() {
+							public void run() {
+								rules.setSelectedItem(checkpoint.getRule().toString());
+								topologies.setSelectedItem(checkpoint.getTopology());
+								stat.setText("Resumed at day " + checkpoint.getGeneration() + ".");
+								stat.setForeground(Color.green);
+							}
+						});
+					}
+				});
+
+				if (!simulator.isRunning()) {	// Otherwise the next snapshot shows it
+					world.render(simulation.getWorld());
+					days = (int) simulator.getGeneration();
+					showDays("");
+				}
 
 			} else {	// A preset has been selected.
-				String presetName = (String) (presets.getSelectedItem());
-				boolean[][] presetWorld = simulation.getPresetCoordinates(presetName);
-				updateUI(presetWorld);
+				final String presetName = (String) (presets.getSelectedItem());
+				simulator.submit(new Runnable() {
+					public void run() {
+						simulation.getPresetCoordinates(presetName);
+						simulator.resetGeneration();
+					}
+				});
+
+				if (!simulator.isRunning()) {	// Otherwise the next snapshot shows it
+					world.render(simulation.getWorld());
+				}
 				days = 0;
 				dayCount.setText("  Day 0  ");
+				dayCount.setForeground(Color.white);
+
+			}
+		}
+	}
+
+	/**
+	 * RuleListener Class
+	 * This listener sets the rule of the simulation from the rule combo box, whether a named rule was chosen or a rule was typed in.
+	 */
+	class RuleListener implements ActionListener {
+
+		/**
+		 * Handles rule selection.
+		 * @param event
+		 */
+		public void actionPerformed(ActionEvent event) {
+			final Rule rule;
+
+			try {
+				rule = Rule.parse((String) (rules.getSelectedItem()));
+
+			} catch (IllegalArgumentException e) {
+				stat.setText("Invalid rule.");
+				stat.setForeground(Color.red);
+				return;
 
 			}
+
+			simulator.submit(new Runnable() {
+				public void run() {
+					simulation.setRule(rule);
+				}
+			});
+			stat.setText("Rule " + rule + ".");
+			stat.setForeground(Color.green);
+		}
+	}
+
+	/**
+	 * TopologyListener Class
+	 * This listener sets what lies beyond the edges of the world from the topology combo box.
+	 */
+	class TopologyListener implements ActionListener {
+
+		/**
+		 * Handles topology selection.
+		 * @param event
+		 */
+		public void actionPerformed(ActionEvent event) {
+			final Topology topology = (Topology) (topologies.getSelectedItem());
+
+			simulator.submit(new Runnable() {
+				public void run() {
+					simulation.setTopology(topology);
+				}
+			});
 		}
 	}
 
 	/**
 	 * Create and run the GUI.
 	 */
-	private static void runGUI() {
+	private static void runGUI(int width, int height) {
 		JFrame.setDefaultLookAndFeelDecorated(true);
 
-		Main lifeGUI = new Main();
+		Main lifeGUI = new Main(width, height);
 	}
 
+	/**
+	 * Starts the GUI, optionally with the width and height of the world as arguments.
+	 * @param args
+	 */
 	public static void main(String[] args) {
+		final int width = args.length >= 2 ? Integer.parseInt(args[0]) : Life.WORLD_EDGE;
+		final int height = args.length >= 2 ? Integer.parseInt(args[1]) : Life.WORLD_EDGE;
+
 		javax.swing.SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
-				runGUI();
+				runGUI(width, height);
 			}
 		});
 	}
@@ -0,0 +1,152 @@
+/**
+ * OffHeapGrid Class
+ * A Grid that packs the world into memory outside of the Java heap, laid out like a BitGrid: one bit per Cell, 64 Cells per word, rows one after another with the halo around them.
+ * The words live in a MemorySegment of the Foreign Memory API, either native memory or part of a memory-mapped file, so a world may be far larger than the heap and the garbage collector never has to look at it. The segment belongs to an OffHeapWorld, which frees it.
+ */
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+
+public class OffHeapGrid implements Grid {
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	private long stride;	// Words per row, counting the halo words on either side
+	private MemorySegment words;	// Rows from -1 to height, each from word -1 to wordsPerRow
+
+	/**
+	 * Initializes a world of the given size on a segment of memory, keeping whatever Cells the segment already holds.
+	 * @param width - number of columns.
+	 * @param height - number of rows.
+	 * @param words - segment of exactly bytesFor(width, height) bytes.
+	 */
+	OffHeapGrid(int width, int height, MemorySegment words) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("World size must be positive: " + width + "x" + height);
+		}
+		if (words.byteSize() != bytesFor(width, height)) {
+			throw new IllegalArgumentException("Segment of " + words.byteSize() + " bytes does not fit a " + width + "x" + height + " world");
+		}
+
+		this.width = width;
+		this.height = height;
+		wordsPerRow = BitGrid.wordsFor(width);
+		stride = wordsPerRow + 2;
+		this.words = words;
+	}
+
+	/**
+	 * Returns the number of bytes needed to hold a world of the given size, halo included.
+	 * @param width
+	 * @param height
+	 * @return bytes
+	 */
+	public static long bytesFor(int width, int height) {
+		return ((long) BitGrid.wordsFor(width) + 2) * ((long) height + 2) * Long.BYTES;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	public boolean isAlive(int row, int column) {
+		return (getWord(row, column/WORD_SIZE) & (1L << column)) != 0;	// Shift distance is taken mod 64
+	}
+
+	public void setAlive(int row, int column, boolean alive) {
+		long index = index(row, column/WORD_SIZE);
+		long bits = MemoryAccess.getLongAtIndex(words, index);
+
+		MemoryAccess.setLongAtIndex(words, index, alive ? bits | 1L << column : bits & ~(1L << column));
+	}
+
+	public long getWord(int row, int word) {
+		return MemoryAccess.getLongAtIndex(words, index(row, word));
+	}
+
+	public void setWord(int row, int word, long bits) {
+		MemoryAccess.setLongAtIndex(words, index(row, word), bits);
+	}
+
+	/**
+	 * Returns the position of a word in the segment, in words, past the halo row above and the halo word on the left.
+	 * @param row
+	 * @param word
+	 * @return index
+	 */
+	private long index(int row, int word) {
+		return (row + 1)*stride + word + 1;
+	}
+
+	public void clear() {
+		words.fill((byte) 0);
+	}
+
+	public long getPopulation() {
+		long population = 0;
+
+		for (int row = 0; row < height; row++) {
+			long start = index(row, 0);
+
+			for (long i = start; i < start + wordsPerRow; i++) {
+				population += Long.bitCount(MemoryAccess.getLongAtIndex(words, i));
+			}
+		}
+
+		return population;
+	}
+
+	public void copyFrom(Grid other) {
+		if (other.getWidth() != width || other.getHeight() != height) {
+			throw new IllegalArgumentException("World sizes differ: " + width + "x" + height + " and " + other.getWidth() + "x" + other.getHeight());
+		}
+
+		if (other instanceof OffHeapGrid) {
+			words.copyFrom(((OffHeapGrid) other).words);
+			return;
+		}
+
+		for (int row = -1; row <= height; row++) {
+
+			for (int word = -1; word <= wordsPerRow; word++) {
+				setWord(row, word, other.getWord(row, word));
+
+			}
+		}
+	}
+
+	public void load(boolean[][] worldStatus) {
+		clear();
+
+		for (int row = 0; row < worldStatus.length && row < height; row++) {
+
+			for (int column = 0; column < worldStatus[row].length && column < width; column++) {
+
+				if (worldStatus[row][column]) {
+					setAlive(row, column, true);
+				}
+			}
+		}
+	}
+
+	public boolean[][] toArray() {
+		boolean[][] worldStatus = new boolean[height][width];
+
+		for (int row = 0; row < height; row++) {
+
+			for (int column = 0; column < width; column++) {
+				worldStatus[row][column] = isAlive(row, column);
+
+			}
+		}
+
+		return worldStatus;
+	}
+}
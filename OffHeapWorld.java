@@ -0,0 +1,236 @@
+/**
+ * OffHeapWorld Class
+ * Holds the three grids of a Life world outside of the Java heap: the current generation, the grid that the next one is written into, and the spare grid used while the world is shared. They are allocated in native memory, or in a memory-mapped file so that a world may be larger than the memory of the machine and a run can carry on straight from the file after being stopped.
+ * The file records which grid holds the current generation and its day count, and the world updates that record after every step, in a single write. A step only ever writes into one of the other grids, so a run that is killed part way through a step leaves the last complete generation behind in the file. The pages reach the disk when the operating system writes them back, or on force and close; for runs that must survive the machine going down, take checkpoints as well.
+ * The Foreign Memory API is an incubator module in this JDK, so the JVM must be started with --add-modules jdk.incubator.foreign.
+ *
+ * Layout of a mapped file:
+ *   header (big-endian, 64 bytes): magic "LIFEMAP1", int version, int width, int height, int unused, long generation*4 + current grid
+ *   grids:  three grids of bytesFor(width, height) bytes, halo included, as rows of 64-Cell words in the byte order of the machine
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+public class OffHeapWorld {
+	public static final int GRIDS = 3;
+	private static final byte[] MAGIC = "LIFEMAP1".getBytes(StandardCharsets.US_ASCII);
+	private static final int VERSION = 1;
+	private static final long HEADER = 64;
+	private static final long STATE = 24;	// Offset of the current grid and day count in the header, aligned so that it is written in one go
+	private int width;
+	private int height;
+	private File file;	// Null if the grids are in native memory
+	private ResourceScope scope;	// Frees the memory, or unmaps the file, when closed
+	private MemorySegment segment;
+	private OffHeapGrid[] grids = new OffHeapGrid[GRIDS];
+	private long state;	// Day count times 4, plus the current grid
+
+	/**
+	 * Initializes the grids on a segment that holds them one after another, starting at the given offset.
+	 */
+	private OffHeapWorld(int width, int height, File file, ResourceScope scope, MemorySegment segment, long offset) {
+		long bytes = OffHeapGrid.bytesFor(width, height);
+
+		this.width = width;
+		this.height = height;
+		this.file = file;
+		this.scope = scope;
+		this.segment = segment;
+		for (int i = 0; i < GRIDS; i++) {
+			grids[i] = new OffHeapGrid(width, height, segment.asSlice(offset + i*bytes, bytes));
+		}
+	}
+
+	/**
+	 * Returns whether the Foreign Memory API is there, so that worlds can be kept off the heap.
+	 * @return supported
+	 */
+	public static boolean isSupported() {
+		return ModuleLayer.boot().findModule("jdk.incubator.foreign").isPresent();
+	}
+
+	/**
+	 * Allocates the grids of an empty world in native memory.
+	 * @param width
+	 * @param height
+	 * @return world
+	 */
+	public static OffHeapWorld allocate(int width, int height) {
+		ResourceScope scope = ResourceScope.newSharedScope();	// The simulation thread steps it, and the UI and checkpoint writer read it
+		MemorySegment segment = MemorySegment.allocateNative(GRIDS * OffHeapGrid.bytesFor(width, height), Long.BYTES, scope);
+
+		return new OffHeapWorld(width, height, null, scope, segment, 0);
+	}
+
+	/**
+	 * Creates a file for the grids of an empty world, and maps it into memory. Any file already there is replaced.
+	 * @param file
+	 * @param width
+	 * @param height
+	 * @return world
+	 * @throws IOException if the file cannot be created.
+	 */
+	public static OffHeapWorld create(File file, int width, int height) throws IOException {
+		long length = HEADER + GRIDS * OffHeapGrid.bytesFor(width, height);
+
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			out.setLength(0);
+			out.setLength(length);	// Sparse on most file systems, and reads as dead Cells
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeInt(0);
+			out.writeLong(0);
+		}
+
+		return map(file, width, height, length);
+	}
+
+	/**
+	 * Maps the file of a world created before, carrying on from the generation it was last at.
+	 * @param file
+	 * @return world
+	 * @throws IOException if the file cannot be read or is not the file of a world.
+	 */
+	public static OffHeapWorld open(File file) throws IOException {
+		int width;
+		int height;
+
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			byte[] magic = new byte[MAGIC.length];
+
+			in.readFully(magic);
+			if (!java.util.Arrays.equals(magic, MAGIC)) {
+				throw new IOException("Not a mapped world: " + file);
+			}
+			if (in.readInt() != VERSION) {
+				throw new IOException("Unsupported mapped world version: " + file);
+			}
+			width = in.readInt();
+			height = in.readInt();
+
+			if (width <= 0 || height <= 0 || in.length() != HEADER + GRIDS * OffHeapGrid.bytesFor(width, height)) {
+				throw new IOException("Damaged mapped world: " + file);
+			}
+		}
+
+		return map(file, width, height, HEADER + GRIDS * OffHeapGrid.bytesFor(width, height));
+	}
+
+	/**
+	 * Maps a file of the given length, and reads which grid is current.
+	 */
+	private static OffHeapWorld map(File file, int width, int height, long length) throws IOException {
+		ResourceScope scope = ResourceScope.newSharedScope();
+		MemorySegment segment;
+
+		try {
+			segment = MemorySegment.mapFile(file.toPath(), 0, length, FileChannel.MapMode.READ_WRITE, scope);
+
+		} catch (IOException e) {
+			scope.close();
+			throw e;
+
+		}
+
+		OffHeapWorld world = new OffHeapWorld(width, height, file, scope, segment, HEADER);
+		world.state = MemoryAccess.getLongAtOffset(segment, STATE, ByteOrder.BIG_ENDIAN);
+		if ((world.state & 3) >= GRIDS || world.state < 0) {
+			scope.close();
+			throw new IOException("Damaged mapped world: " + file);
+		}
+
+		return world;
+	}
+
+	/**
+	 * Returns the number of columns in the world.
+	 * @return width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of rows in the world.
+	 * @return height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the file the grids are mapped from.
+	 * @return file - or null if they are in native memory.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns one of the grids.
+	 * @param index - from 0 to GRIDS - 1.
+	 * @return grid
+	 */
+	public Grid getGrid(int index) {
+		return grids[index];
+	}
+
+	/**
+	 * Returns the index of the grid that holds the current generation, as last recorded.
+	 * @return index
+	 */
+	public int getCurrent() {
+		return (int) (state & 3);
+	}
+
+	/**
+	 * Returns the day count of the current generation, as last recorded.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return state >>> 2;
+	}
+
+	/**
+	 * Records which of the grids holds the current generation, and its day count. Called by the world after every step.
+	 * @param grid - one of the grids.
+	 * @param generation
+	 */
+	void setCurrent(Grid grid, long generation) {
+		int index = 0;
+		while (grids[index] != grid) {
+			index++;
+		}
+
+		state = generation << 2 | index;
+		if (file != null) {
+			MemoryAccess.setLongAtOffset(segment, STATE, ByteOrder.BIG_ENDIAN, state);
+		}
+	}
+
+	/**
+	 * Writes the pages of a mapped file that were changed out to the disk, and waits for them to get there.
+	 */
+	public void force() {
+		if (file != null) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Writes out a mapped file, then frees the memory of the grids or unmaps them. The grids must not be used afterwards.
+	 */
+	public void close() {
+		force();
+		scope.close();
+	}
+}
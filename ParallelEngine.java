@@ -0,0 +1,142 @@
+/**
+ * ParallelEngine Class
+ * Simulates a day on several cores at once. The world is split into horizontal stripes of rows, and each stripe is simulated by the bit-sliced engine on a ForkJoinPool.
+ * Stripes only write their own rows of the next generation, so the results are exactly the same as simulating on a single thread.
+ */
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelEngine implements StepEngine {
+	private static final int STRIPES_PER_THREAD = 4;	// Extra stripes let idle threads steal work from slow ones
+	private static final int MIN_STRIPE_WORDS = 4096;	// Smaller worlds are not worth splitting up
+	private ForkJoinPool pool;
+	private boolean ownsPool;
+	private BitSliceEngine kernel;
+	/* Tasks are built once per world size and reused every generation */
+	private StripeTask[] stripes;
+	private RecursiveAction generation;
+	private int stripedHeight;
+	private int stripedWidth;
+	private Grid current;
+	private Grid next;
+
+	/**
+	 * Initializes an engine that runs on the common ForkJoinPool, using every core.
+	 */
+	public ParallelEngine() {
+		this(ForkJoinPool.commonPool(), false);
+	}
+
+	/**
+	 * Initializes an engine that runs on its own pool of the given number of threads. The pool should be released with shutdown() once the engine is no longer needed.
+	 * @param threads
+	 */
+	public ParallelEngine(int threads) {
+		this(new ForkJoinPool(threads), true);
+	}
+
+	/**
+	 * Initializes an engine that runs on the given pool.
+	 * @param pool
+	 * @param ownsPool - whether the pool should be shut down along with the engine.
+	 */
+	private ParallelEngine(ForkJoinPool pool, boolean ownsPool) {
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		kernel = new BitSliceEngine();
+		generation = new GenerationTask();
+	}
+
+	public void setRule(Rule rule) {
+		kernel.setRule(rule);
+	}
+
+	/**
+	 * Returns the number of threads that the engine runs on.
+	 * @return parallelism
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	public void step(Grid current, Grid next) {
+		if (stripes == null || current.getHeight() != stripedHeight || current.getWidth() != stripedWidth) {
+			createStripes(current);
+		}
+
+		/* A world that fits in a single stripe is simulated right here, without waking the pool */
+		if (stripes.length == 1) {
+			kernel.step(current, next);
+			return;
+		}
+
+		this.current = current;
+		this.next = next;
+		generation.reinitialize();
+		pool.invoke(generation);
+		this.current = null;
+		this.next = null;
+	}
+
+	/**
+	 * Shuts down the engine's own pool of threads. Does nothing if the engine runs on the common pool.
+	 */
+	public void shutdown() {
+		if (ownsPool) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Splits a world of the given size into stripes of rows.
+	 * @param world
+	 */
+	private void createStripes(Grid world) {
+		int height = world.getHeight();
+		int minRows = Math.max(1, MIN_STRIPE_WORDS / world.getWordsPerRow());
+		int count = Math.max(1, Math.min(pool.getParallelism() * STRIPES_PER_THREAD, height / minRows));
+
+		stripes = new StripeTask[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new StripeTask((int) ((long) height * i / count), (int) ((long) height * (i + 1) / count));
+		}
+
+		stripedHeight = height;
+		stripedWidth = world.getWidth();
+	}
+
+	/**
+	 * GenerationTask Class
+	 * Runs every stripe of a generation and waits for all of them to finish.
+	 */
+	class GenerationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		protected void compute() {
+			for (StripeTask stripe : stripes) {
+				stripe.reinitialize();
+			}
+			ForkJoinTask.invokeAll(stripes);
+		}
+	}
+
+	/**
+	 * StripeTask Class
+	 * Simulates the rows of a single stripe.
+	 */
+	class StripeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int fromRow;
+		private int toRow;
+
+		StripeTask(int fromRow, int toRow) {
+			this.fromRow = fromRow;
+			this.toRow = toRow;
+		}
+
+		protected void compute() {
+			kernel.stepRows(current, next, fromRow, toRow);
+		}
+	}
+}
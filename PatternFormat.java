@@ -0,0 +1,347 @@
+/**
+ * PatternFormat Class
+ * Reads and writes patterns in the two formats used by the community's pattern libraries: run length encoded (.rle) files, and plaintext (.cells) files.
+ * Files are parsed a character at a time as they stream in, and decoded straight into a grid, so even patterns of many megabytes never build up a list of coordinates.
+ */
+import java.io.*;
+
+public class PatternFormat {
+	private static final int RLE_LINE_LENGTH = 70;	// Longest line written in an RLE file, as the format recommends
+
+	/**
+	 * Returns whether the given name is that of an RLE or plaintext pattern file.
+	 * @param name
+	 * @return patternFile
+	 */
+	public static boolean isPatternFile(String name) {
+		String lower = name.toLowerCase();
+		return lower.endsWith(".rle") || lower.endsWith(".cells");
+	}
+
+	/**
+	 * Reads a pattern file into a grid, choosing the format from the file extension. The top left Cell of the pattern is placed at the given row and column, and Cells falling outside of the grid are dropped. The grid is not cleared first.
+	 * @param file
+	 * @param grid
+	 * @param top
+	 * @param left
+	 * @throws IOException if the file cannot be read or is not a valid pattern.
+	 */
+	public static void read(File file, Grid grid, int top, int left) throws IOException {
+		try (Reader in = new BufferedReader(new FileReader(file), 1 << 16)) {
+
+			if (file.getName().toLowerCase().endsWith(".cells")) {
+				readCells(in, grid, top, left);
+
+			} else {
+				readRle(in, grid, top, left);
+
+			}
+		}
+	}
+
+	/**
+	 * Writes the living Cells of a grid into a pattern file, choosing the format from the file extension.
+	 * @param file
+	 * @param grid
+	 * @param name - name of the pattern, stored as a comment.
+	 * @param rule - rule the pattern runs under, stored in the header of RLE files.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(File file, Grid grid, String name, Rule rule) throws IOException {
+		try (Writer out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+
+			if (file.getName().toLowerCase().endsWith(".cells")) {
+				writeCells(out, grid, name);
+
+			} else {
+				writeRle(out, grid, name, rule);
+
+			}
+		}
+	}
+
+	/**
+	 * Decodes an RLE pattern into a grid. Comment lines start with "#", the header line gives the size ("x = 3, y = 3, rule = B3/S23"), and the data is a series of optionally counted tags: "b" for dead Cells, "o" (or any other letter) for living Cells, "$" for the end of a row and "!" for the end of the pattern.
+	 * @param in
+	 * @param grid
+	 * @param top
+	 * @param left
+	 * @throws IOException
+	 */
+	public static void readRle(Reader in, Grid grid, int top, int left) throws IOException {
+		boolean lineStart = true;
+		long row = top;
+		long column = left;
+		long count = 0;
+		int c;
+
+		while ((c = in.read()) != -1) {
+
+			/* Comment and header lines are skipped whole */
+			if (lineStart && (c == '#' || c == 'x')) {
+				while (c != -1 && c != '\n') {
+					c = in.read();
+				}
+				continue;
+			}
+			lineStart = c == '\n';
+
+			if (c >= '0' && c <= '9') {
+				count = count*10 + (c - '0');
+
+			} else if (c == 'b') {
+				column += Math.max(count, 1);
+				count = 0;
+
+			} else if (c == '$') {
+				row += Math.max(count, 1);
+				column = left;
+				count = 0;
+
+			} else if (c == '!') {
+				return;
+
+			} else if (Character.isLetter(c)) {	// 'o', or the state letters of multi-state patterns
+				long run = Math.max(count, 1);
+				setRun(grid, row, column, run);
+				column += run;
+				count = 0;
+
+			} else if (!Character.isWhitespace(c)) {
+				throw new IOException("Unexpected character '" + (char) c + "' in RLE data");
+
+			}
+		}
+	}
+
+	/**
+	 * Encodes the living Cells of a grid as an RLE pattern, using the bounding box of the grid.
+	 * @param out
+	 * @param grid
+	 * @param name
+	 * @param rule
+	 * @throws IOException
+	 */
+	public static void writeRle(Writer out, Grid grid, String name, Rule rule) throws IOException {
+		RleWriter writer = new RleWriter(out);
+		int pendingRows = 0;	// Row ends not written yet, so that empty rows collapse into a single counted "$"
+
+		if (name != null) {
+			out.write("#N " + name + "\n");
+		}
+		out.write("x = " + grid.getWidth() + ", y = " + grid.getHeight() + ", rule = " + rule + "\n");
+
+		for (int row = 0; row < grid.getHeight(); row++) {
+			int column = 0;
+
+			while (column < grid.getWidth()) {
+				int alive = nextAlive(grid, row, column);
+				if (alive >= grid.getWidth()) {
+					break;	// Trailing dead Cells of a row are left out
+				}
+				int dead = nextDead(grid, row, alive);
+
+				if (pendingRows > 0) {
+					writer.write(pendingRows, '$');
+					pendingRows = 0;
+				}
+				if (alive > column) {
+					writer.write(alive - column, 'b');
+				}
+				writer.write(dead - alive, 'o');
+				column = dead;
+			}
+			pendingRows++;
+		}
+
+		writer.write(1, '!');
+		out.write("\n");
+	}
+
+	/**
+	 * Decodes a plaintext pattern into a grid. Lines starting with "!" are comments, and every other line is a row of "." for dead Cells and "O" (or "*") for living ones.
+	 * @param in
+	 * @param grid
+	 * @param top
+	 * @param left
+	 * @throws IOException
+	 */
+	public static void readCells(Reader in, Grid grid, int top, int left) throws IOException {
+		boolean lineStart = true;
+		long row = top;
+		long column = left;
+		int c;
+
+		while ((c = in.read()) != -1) {
+
+			if (lineStart && c == '!') {
+				while (c != -1 && c != '\n') {
+					c = in.read();
+				}
+				continue;
+			}
+			lineStart = false;
+
+			if (c == '\n') {
+				row++;
+				column = left;
+				lineStart = true;
+
+			} else if (c == 'O' || c == '*') {
+				setRun(grid, row, column, 1);
+				column++;
+
+			} else if (c == '.') {
+				column++;
+
+			} else if (c != '\r' && c != ' ' && c != '\t') {
+				throw new IOException("Unexpected character '" + (char) c + "' in plaintext pattern");
+
+			}
+		}
+	}
+
+	/**
+	 * Encodes the living Cells of a grid as a plaintext pattern. Trailing dead Cells of each row are left out.
+	 * @param out
+	 * @param grid
+	 * @param name
+	 * @throws IOException
+	 */
+	public static void writeCells(Writer out, Grid grid, String name) throws IOException {
+		if (name != null) {
+			out.write("!Name: " + name + "\n");
+		}
+
+		for (int row = 0; row < grid.getHeight(); row++) {
+			int end = grid.getWidth();
+			while (end > 0 && !grid.isAlive(row, end - 1)) {
+				end--;
+			}
+
+			for (int column = 0; column < end; column++) {
+				out.write(grid.isAlive(row, column) ? 'O' : '.');
+			}
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * Reads the size given in the header of an RLE file, or measures a plaintext file, without decoding the pattern.
+	 * @param file
+	 * @return size - {width, height}
+	 * @throws IOException
+	 */
+	public static int[] readSize(File file) throws IOException {
+		int width = 0;
+		int height = 0;
+
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			boolean cells = file.getName().toLowerCase().endsWith(".cells");
+
+			while ((line = in.readLine()) != null) {
+
+				if (cells && !line.startsWith("!")) {
+					width = Math.max(width, line.trim().length());
+					height++;
+
+				} else if (!cells && line.startsWith("x")) {
+					for (String part : line.split(",")) {
+						String[] pair = part.split("=");
+
+						if (pair.length == 2 && pair[0].trim().equals("x")) {
+							width = Integer.parseInt(pair[1].trim());
+						} else if (pair.length == 2 && pair[0].trim().equals("y")) {
+							height = Integer.parseInt(pair[1].trim());
+						}
+					}
+					break;
+
+				}
+			}
+		}
+
+		return new int[] {width, height};
+	}
+
+	/**
+	 * Sets a run of Cells in a row to alive, a whole word at a time where possible. The parts of the run outside of the grid are dropped.
+	 */
+	private static void setRun(Grid grid, long row, long column, long length) {
+		if (row < 0 || row >= grid.getHeight()) {
+			return;
+		}
+
+		int from = (int) Math.max(column, 0);
+		int to = (int) Math.min(column + length, grid.getWidth());
+		while (from < to) {
+			int word = from / Grid.WORD_SIZE;
+			int end = Math.min(to, (word + 1) * Grid.WORD_SIZE);
+			long mask = (-1L >>> (Grid.WORD_SIZE - (end - from))) << from;	// Shift by from is taken mod 64
+
+			grid.setWord((int) row, word, grid.getWord((int) row, word) | mask);
+			from = end;
+		}
+	}
+
+	/**
+	 * Returns the column of the next living Cell at or after the given column, or the width of the grid if there is none.
+	 */
+	private static int nextAlive(Grid grid, int row, int column) {
+		for (int word = column / Grid.WORD_SIZE; word < grid.getWordsPerRow(); word++) {
+			long bits = grid.getWord(row, word);
+
+			if (word == column / Grid.WORD_SIZE) {
+				bits &= -1L << column;
+			}
+			if (bits != 0) {
+				return word*Grid.WORD_SIZE + Long.numberOfTrailingZeros(bits);
+			}
+		}
+
+		return grid.getWidth();
+	}
+
+	/**
+	 * Returns the column of the next dead Cell at or after the given column, or the width of the grid if there is none.
+	 */
+	private static int nextDead(Grid grid, int row, int column) {
+		for (int word = column / Grid.WORD_SIZE; word < grid.getWordsPerRow(); word++) {
+			long bits = ~grid.getWord(row, word);
+
+			if (word == column / Grid.WORD_SIZE) {
+				bits &= -1L << column;
+			}
+			if (bits != 0) {
+				return Math.min(word*Grid.WORD_SIZE + Long.numberOfTrailingZeros(bits), grid.getWidth());
+			}
+		}
+
+		return grid.getWidth();
+	}
+
+	/**
+	 * RleWriter Class
+	 * Writes counted RLE tags, wrapping the lines before they grow too long.
+	 */
+	static class RleWriter {
+		private Writer out;
+		private int lineLength;
+
+		RleWriter(Writer out) {
+			this.out = out;
+		}
+
+		void write(long count, char tag) throws IOException {
+			String item = count == 1 ? String.valueOf(tag) : count + String.valueOf(tag);
+
+			if (lineLength + item.length() > RLE_LINE_LENGTH) {
+				out.write('\n');
+				lineLength = 0;
+			}
+			out.write(item);
+			lineLength += item.length();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * PresetConverter Class
+ * Converts a presets file between the text format of PresetFile and the binary format of BinaryPresetFile. The direction is decided by the format of the input file.
+ * Usage: java PresetConverter INPUT OUTPUT
+ */
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+
+public class PresetConverter {
+
+	/**
+	 * Converts a text presets file into a binary one. Text coordinates are row*WORLD_EDGE + column, so each preset becomes a pattern just big enough to hold its Cells at the same positions.
+	 * @param text
+	 * @param binary
+	 * @return count - number of presets converted.
+	 * @throws IOException
+	 */
+	public static int textToBinary(File text, File binary) throws IOException {
+		PresetFile presetFile = new PresetFile(text);
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<Grid> patterns = new ArrayList<Grid>();
+
+		for (String presetName : new LinkedHashSet<String>(java.util.Arrays.asList(presetFile.getPresetNames()))) {	// Duplicate names were merged by the catalog
+
+			if (presetName.equals("Clear")) {
+				continue;
+			}
+
+			int[] coordinates = presetFile.getPresetCoordinates(presetName);
+			int width = 1;
+			int height = 1;
+			for (int coord : coordinates) {
+				height = Math.max(height, coord/Life.WORLD_EDGE + 1);
+				width = Math.max(width, coord%Life.WORLD_EDGE + 1);
+			}
+
+			BitGrid pattern = new BitGrid(width, height);
+			for (int coord : coordinates) {
+				pattern.setAlive(coord/Life.WORLD_EDGE, coord%Life.WORLD_EDGE, true);
+			}
+
+			names.add(presetName);
+			patterns.add(pattern);
+		}
+
+		BinaryPresetFile.write(binary, names.toArray(new String[names.size()]), patterns.toArray(new Grid[patterns.size()]));
+		return names.size();
+	}
+
+	/**
+	 * Converts a binary presets file into a text one. Cells outside of the WORLD_EDGE square cannot be written as text coordinates and are left out with a warning.
+	 * @param binary
+	 * @param text
+	 * @return count - number of presets converted.
+	 * @throws IOException
+	 */
+	public static int binaryToText(File binary, File text) throws IOException {
+		BinaryPresetFile presets = new BinaryPresetFile(binary);
+		String[] names = presets.getPresetNames();
+		int customIteration = 0;
+
+		/* Continue numbering after the highest custom preset, so that new custom presets do not clash */
+		for (String presetName : names) {
+
+			if (presetName.matches("Custom\\d{1,9}")) {
+				customIteration = Math.max(customIteration, Integer.parseInt(presetName.substring(6)) + 1);
+			}
+		}
+
+		try (BufferedWriter writeFile = new BufferedWriter(new FileWriter(text))) {
+
+			for (int i = 0; i < names.length; i++) {
+				BitGrid pattern = new BitGrid(presets.getWidth(names[i]), presets.getHeight(names[i]));
+				int dropped = 0;
+				presets.load(names[i], pattern, 0, 0);
+
+				if (i > 0) {
+					writeFile.newLine();
+				}
+				writeFile.write("#");	// Start of a preset definition
+				writeFile.newLine();
+				writeFile.write(names[i]);
+				writeFile.newLine();
+
+				for (int row = 0; row < pattern.getHeight(); row++) {
+
+					for (int column = 0; column < pattern.getWidth(); column++) {
+
+						if (!pattern.isAlive(row, column)) {
+							continue;
+						}
+						if (row >= Life.WORLD_EDGE || column >= Life.WORLD_EDGE) {
+							dropped++;
+							continue;
+						}
+						writeFile.write(Integer.toString(row*Life.WORLD_EDGE + column));
+						writeFile.newLine();
+					}
+				}
+
+				writeFile.write("?");	// End of the preset definition
+				writeFile.newLine();
+				writeFile.write(Integer.toString(customIteration));
+
+				if (dropped > 0) {
+					System.err.println("Warning: " + dropped + " Cells of " + names[i] + " lie outside of the " + Life.WORLD_EDGE + "x" + Life.WORLD_EDGE + " world and were left out.");
+				}
+			}
+		}
+
+		return names.length;
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: java PresetConverter INPUT OUTPUT");
+			System.exit(1);
+		}
+
+		File input = new File(args[0]);
+		File output = new File(args[1]);
+
+		try {
+			if (BinaryPresetFile.isBinary(input)) {
+				System.out.println("Converted " + binaryToText(input, output) + " presets to text.");
+
+			} else {
+				System.out.println("Converted " + textToBinary(input, output) + " presets to binary.");
+
+			}
+
+		} catch (IOException e) {
+			System.out.println("Error converting file.");
+			System.err.println("IOException: " + e.getMessage());
+			System.exit(1);
+
+		}
+	}
+}
@@ -1,19 +1,43 @@
 /**
  * PresetFile Class
  * Defines, stores, and provides several preset options, as well as any custom designed preset options.
+ * The file is read once into an in-memory catalog of names and coordinates, which is kept up to date as presets are saved. When the file is changed by someone else, only what was added to it is read.
+ * The file is a journal that is only ever appended to: each new preset is written as one record, with a checksum, under a lock on the file, so that several programs may save presets into it at once, and a crash while saving can only leave an unfinished record at the end, which is skipped.
  */
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
 
 public class PresetFile {
 	private File presets;
 	private int customIteration;	// Custom name for a new preset (ie. Custom0, Custom1, ...)
+	/* In-memory catalog of the file */
+	private ArrayList<String> names;	// Preset names in the order of the file, starting with "Clear"
+	private HashMap<String, int[]> coordinates;	// Preset name -> coordinates of its living Cells
+	private long catalogModified;	// Modification time and length of the file when the catalog was read, used to notice changes on disk
+	private long catalogLength;
+	private long parsed;	// Position in the file up to which it has been read into the catalog; anything after it is unfinished
 
 	/**
 	 * Creates a new presets file object that is able to provide various preset options.
 	 */
 	public PresetFile() {
-		presets = new File("presets.txt");
+		this(new File("presets.txt"));
+	}
+
+	/**
+	 * Creates a presets file object that reads and saves presets in the given file.
+	 * @param presets
+	 */
+	public PresetFile(File presets) {
+		this.presets = presets;
 	}
 
 	/**
@@ -21,160 +45,388 @@ public class PresetFile {
 	 * @return presetNames - an array of all of the preset names.
 	 */
 	public String[] getPresetNames() {
-		boolean reachedEndPreset = false;
-		String line;
-		String[] presetNames;
-		ArrayList<String> names = new ArrayList<String>();
-		FileReader in;
-		BufferedReader readFile;
-
-		names.add("Clear");
-		try {
-			in = new FileReader(presets);
-			readFile = new BufferedReader(in);
+		synchronized (PresetFile.class) {	// The catalog is read and changed under the same monitor as createNewPreset
+			refreshCatalog();
+
+			return names.toArray(new String[names.size()]);
+		}
+	}
+
+	/**
+	 * Returns the corresponding coordinates of the preset selected.
+	 * @return presetCoordinates - an array of coordinates that match the preset.
+	 */
+	public int[] getPresetCoordinates(String presetName) {
+		int[] presetCoordinates;
+		synchronized (PresetFile.class) {
+			refreshCatalog();
+			presetCoordinates = coordinates.get(presetName);
+		}
+
+		if (presetCoordinates == null) {	// Unknown presets, as well as "Clear", have no living Cells
+			return new int[0];
+		}
+
+		return presetCoordinates.clone();	// Callers may change the array, the catalog must not
+	}
+
+	/**
+	 * Returns whether there is a preset of the given name.
+	 * @param presetName
+	 * @return found
+	 */
+	public boolean hasPreset(String presetName) {
+		synchronized (PresetFile.class) {
+			refreshCatalog();
+
+			return presetName.equals("Clear") || coordinates.containsKey(presetName);
+		}
+	}
+
+	/**
+	 * Creates and saves a new custom preset with the new coordinates given. The new name of the preset is also returned.
+	 * The preset is appended to the file as a single record with a checksum, and forced to disk, while holding a lock on the file, so that other programs saving presets at the same time can neither interleave with it nor take the same name. Only the presets saved by others since the catalog was last read are read first, so saving costs the same however many presets the file holds.
+	 * @param newPresetCoordinates
+	 * @param newPresetName - the name to save under, or null for the next free custom name (ie. Custom0, Custom1, ...). A name that is already taken is replaced by a custom name too.
+	 * @return newPresetName
+	 */
+	public String createNewPreset(int[] newPresetCoordinates, String newPresetName) {
+		synchronized (PresetFile.class) {	// File locks are held by the whole program, so threads of this one take turns first
+
+			try (FileChannel channel = FileChannel.open(presets.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+				FileLock lock = channel.lock();	// Held until the record is on disk
+				try {
+					/* Catch up with any presets saved by others, now that no one else can save */
+					if (names == null || channel.size() < parsed) {
+						readCatalog(channel, 0);
+
+					} else {
+						readCatalog(channel, parsed);
+
+					}
+
+					/* If the new preset name is a duplicate, or none was given, take the next free custom name */
+					if (newPresetName == null || newPresetName.equals("Clear") || newPresetName.equals("#") || coordinates.containsKey(newPresetName)) {	// A name of "#" would read as the start of another preset
+						do {
+							newPresetName = "Custom" + customIteration;	// Name of the new custom preset
+							customIteration++;
+						} while (coordinates.containsKey(newPresetName));
+					}
+
+					/* Append the record, starting on a line of its own */
+					long end = channel.size();
+					ByteArrayOutputStream record = new ByteArrayOutputStream();
+					if (end > 0 && lastByte(channel, end) != '\n') {
+						record.write('\n');
+					}
+					int recordStart = record.size();
+					record.write(("#\n" + newPresetName + "\n").getBytes(StandardCharsets.UTF_8));
+					for (int i = 0; i < newPresetCoordinates.length; i++) {
+						record.write((newPresetCoordinates[i] + "\n").getBytes(StandardCharsets.US_ASCII));	// Write each coordinate in.
+					}
+					record.write("?\n".getBytes(StandardCharsets.US_ASCII));	// End of the preset definition
 
-			while ((line = readFile.readLine()) != null) {	// Reads until the entire file has been read
+					/* Followed by the checksum of the record, signed so that it cannot be mistaken for the iteration number of the next custom preset name that comes after it */
+					CRC32 checksum = new CRC32();
+					checksum.update(record.toByteArray(), recordStart, record.size() - recordStart);
+					int crc = (int) checksum.getValue();
+					record.write(((crc < 0 ? "" : "+") + crc + "\n" + customIteration + "\n").getBytes(StandardCharsets.US_ASCII));
+
+					ByteBuffer bytes = ByteBuffer.wrap(record.toByteArray());
+					while (bytes.hasRemaining()) {
+						end += channel.write(bytes, end);
+					}
+					channel.force(false);
 
-				if (line.equals("#")) {		// "#" is the start of a preset definition
-					line = readFile.readLine();		// Name of the preset is just after the "#"
-					names.add(line);
-					reachedEndPreset = false;
+					/* Add the new preset to the catalog, rather than reading the file again */
+					addToCatalog(newPresetName, newPresetCoordinates.clone());
+					parsed = end;
+					catalogModified = presets.lastModified();
+					catalogLength = end;
 
-				} else if (line.equals("?")) {	// "?" is the end of a preset definition
-					reachedEndPreset = true;
+				} finally {
+					lock.release();
 
-				} else if (reachedEndPreset) {
-					customIteration = Integer.parseInt(line);	// After the end of each custom preset (as well as the last default preset), there will be a number that signifies the iteration number of the custom presets. This remains so that the custom presets that are saved are named as follows: "Custom0", "Custom1", "Custom2", ... and so on.
 				}
+
+			} catch (IOException e) {
+				System.out.println("Error writing file.");
+				System.err.println("IOException: " + e.getMessage());
+
 			}
+		}
+
+		return newPresetName;
+	}
+
+	/**
+	 * Returns the last byte of the file before the given position.
+	 * @param channel
+	 * @param end
+	 * @return lastByte
+	 * @throws IOException
+	 */
+	private static byte lastByte(FileChannel channel, long end) throws IOException {
+		ByteBuffer last = ByteBuffer.allocate(1);
+		channel.read(last, end - 1);
+
+		return last.get(0);
+	}
+
+	/**
+	 * Reads the file into the catalog if it has not been read yet, or reads what was added to it if its modification time or length has changed since it was read. A file that got shorter was replaced, and is read again from the start.
+	 * Must be called while holding the PresetFile class monitor, as createNewPreset does.
+	 */
+	private void refreshCatalog() {
+		if (names != null && presets.lastModified() == catalogModified && presets.length() == catalogLength) {
+			return;
+		}
 
-			readFile.close();
-			in.close();
+		try (FileChannel channel = FileChannel.open(presets.toPath(), StandardOpenOption.READ)) {
+			readCatalog(channel, names == null || channel.size() < parsed ? 0 : parsed);
 
-		} catch (FileNotFoundException e) {
+		} catch (NoSuchFileException e) {
 			System.out.println("File does not exist or could not be found.");
-			System.err.println("FileNotFoundException: " + e.getMessage());
+			System.err.println("NoSuchFileException: " + e.getMessage());
+			readCatalog(null, 0);
 
 		} catch (IOException e) {
 			System.out.println("Error reading file.");
 			System.err.println("IOException: " + e.getMessage());
+			if (names == null) {
+				readCatalog(null, 0);
+			}
 
 		}
-		
-		presetNames = new String[names.size()];
-		for (int i = 0; i < names.size(); i++) {
-			presetNames[i] = names.get(i);
-		}
-
-		return presetNames;
 	}
 
 	/**
-	 * Returns the corresponding coordinates of the preset selected.
-	 * @return presetCoordinates - an array of coordinates that match the preset.
+	 * Reads the presets in the file from the given position into the catalog, starting afresh if the position is 0.
+	 * Each preset is a "#" line, a name line, a line per coordinate and a "?" line, which may be followed by a signed checksum of the preset and by the iteration number of the next custom preset name. A preset whose checksum does not match, or that is broken off by another preset, is skipped, and reading carries on from the "#" line that broke it off, even where that line stands in for the name or the checksum. A preset that runs to the end of the file without being finished, as when the program saving it crashed or is still saving it, is left off, and read again from its start next time; so is one that ends at its "?" line or in the middle of its checksum line, as only presets saved before checksums were added have no checksum, and they are always followed by an iteration number.
+	 * @param channel - or null to start with an empty catalog.
+	 * @param from - position in the file to read from, at the start of a line.
 	 */
-	public int[] getPresetCoordinates(String presetName) {
-		boolean reachedEndPreset = false;
-		int[] presetCoordinates;
-		String line;
-		ArrayList<Integer> coords = new ArrayList<Integer>();
-		FileReader in;
-		BufferedReader readFile;
+	private void readCatalog(FileChannel channel, long from) {
+		if (from == 0) {
+			names = new ArrayList<String>();
+			coordinates = new HashMap<String, int[]>();
+			names.add("Clear");
+			customIteration = 0;
+			parsed = 0;
+		}
+		catalogModified = presets.lastModified();
+		catalogLength = presets.length();
+		if (channel == null) {
+			return;
+		}
 
+		byte[] bytes;
 		try {
-			in = new FileReader(presets);
-			readFile = new BufferedReader(in);
-			
-			while ((line = readFile.readLine()) != null) {	// Reads until the entire file has been read
-				
-				if (line.equals("#")) {		// "#" is the start of a new preset definition
-					reachedEndPreset = false;
-					line = readFile.readLine();		// line now contains the name of the next preset
-
-					if (presetName.equals(line)) {	// Checks if the preset name in line is the same as the one requested
-						
-						while (!(line = readFile.readLine()).equals("?")) {		// Until the end of the preset definition is reached, represented by "?"
-
-							int cellNum = Integer.parseInt(line);
-							coords.add(cellNum);
-
-						}
-					}
+			long size = channel.size();
+			if (size - from > Integer.MAX_VALUE) {
+				throw new IOException("Presets file is too large: " + presets);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) (size - from));
+			while (buffer.hasRemaining()) {
 
+				if (channel.read(buffer, from + buffer.position()) < 0) {
+					break;
 				}
 			}
-			
-			readFile.close();
-			in.close();
-			
-		} catch (FileNotFoundException e) {
-			System.out.println("File does not exist or could not be found.");
-			System.err.println("FileNotFoundException: " + e.getMessage());
+			bytes = buffer.array();
+			catalogLength = size;
 
 		} catch (IOException e) {
 			System.out.println("Error reading file.");
 			System.err.println("IOException: " + e.getMessage());
+			return;
 
 		}
 
-		presetCoordinates = new int[coords.size()];
-		for (int coordinate = 0; coordinate < coords.size(); coordinate++) {
-			presetCoordinates[coordinate] = coords.get(coordinate);	// Copy the cell coordinate
+		int position = 0;
+		while (position < bytes.length) {
+			int lineEnd = lineEnd(bytes, position);
+			if (lineEnd < 0) {
+				/* The last line is unfinished; a bare number is the iteration trailer of a file written before presets had checksums */
+				Integer iteration = parseNumber(bytes, position, bytes.length);
+				if (iteration != null) {
+					customIteration = Math.max(customIteration, iteration);
+				}
+				break;
+			}
+
+			if (!isLine(bytes, position, lineEnd, "#")) {	// Blank lines and stray trailers between presets
+				Integer iteration = parseNumber(bytes, position, lineEnd);
+				if (iteration != null) {
+					customIteration = Math.max(customIteration, iteration);
+				}
+				position = lineEnd + 1;
+				parsed = from + position;
+				continue;
+			}
 
-		}
+			/* "#" is the start of a preset definition, with the name of the preset just after it */
+			int recordStart = position;
+			int nameEnd = lineEnd(bytes, lineEnd + 1);
+			if (nameEnd < 0) {
+				break;	// Unfinished
+			}
+			if (isLine(bytes, lineEnd + 1, nameEnd, "#")) {
+				position = lineEnd + 1;
+				parsed = from + position;
+				continue;	// Torn right after its "#" line; the next preset starts on the line that should have been the name
+			}
+			String presetName = trimmed(bytes, lineEnd + 1, nameEnd);
+			position = nameEnd + 1;
+
+			/* Until the end of the preset definition is reached, represented by "?" */
+			ArrayList<Integer> coords = new ArrayList<Integer>();
+			boolean finished = false;
+			boolean broken = false;
+			while ((lineEnd = lineEnd(bytes, position)) >= 0) {
+				if (isLine(bytes, position, lineEnd, "?")) {
+					finished = true;
+					position = lineEnd + 1;
+					break;
+				}
 
-		return presetCoordinates;
+				Integer coordinate = parseNumber(bytes, position, lineEnd);
+				if (coordinate == null) {
+					broken = true;	// Torn off by the next preset, or damaged
+					break;
+				}
+				coords.add(coordinate);
+				position = lineEnd + 1;
+			}
+			if (broken) {
+				parsed = from + position;
+				continue;	// Read on from the line that broke it, which may start the next preset
+			}
+			if (!finished) {
+				break;	// Unfinished
+			}
+
+			/* A checksum, if present, must match the preset from its "#" line to its "?" line */
+			lineEnd = lineEnd(bytes, position);
+			if (lineEnd < 0 && (position == bytes.length || bytes[position] == '+' || bytes[position] == '-')) {
+				break;	// Torn before its checksum line was finished, so unfinished; only the unsigned iteration trailer of an older file may end it unfinished
+			}
+			if (lineEnd >= 0 && isLine(bytes, position, lineEnd, "#")) {
+				parsed = from + position;
+				continue;	// Torn before its checksum line, with the next preset straight after it
+			}
+			if (lineEnd >= 0 && (bytes[position] == '+' || bytes[position] == '-')) {
+				Long saved = parseChecksum(bytes, position, lineEnd);
+				CRC32 checksum = new CRC32();
+				checksum.update(bytes, recordStart, position - recordStart);
+
+				position = lineEnd + 1;
+				if (saved == null || saved != (int) checksum.getValue()) {
+					parsed = from + position;
+					continue;	// Damaged
+				}
+			}
+
+			int[] presetCoordinates = new int[coords.size()];
+			for (int coordinate = 0; coordinate < coords.size(); coordinate++) {
+				presetCoordinates[coordinate] = coords.get(coordinate);	// Copy the cell coordinate
+			}
+			addToCatalog(presetName, presetCoordinates);
+			parsed = from + position;
+		}
 	}
 
 	/**
-	 * Creates and saves a new custom preset with the new coordinates given. The new name of the preset is also returned.
-	 * @param newPresetCoordinates
-	 * @return newPresetName
+	 * Returns the position of the end of the line starting at the given position, or -1 if the line is not finished.
 	 */
-	public String createNewPreset(int[] newPresetCoordinates, String newPresetName) {
-		FileWriter out;
-		BufferedWriter writeFile;
+	private static int lineEnd(byte[] bytes, int position) {
+		for (int i = position; i < bytes.length; i++) {
+			if (bytes[i] == '\n') {
+				return i;
+			}
+		}
+
+		return -1;
+	}
 
-		/* If the new preset name is a duplicate, as should be assessed by caller method, newPresetName should have the value of null, and thus should create a custom name */
-		if (newPresetName == null) {
-			newPresetName = "Custom" + customIteration;	// Name of the new custom preset
-			customIteration++;
+	/**
+	 * Returns a line as text, without a carriage return at its end.
+	 */
+	private static String trimmed(byte[] bytes, int start, int end) {
+		if (end > start && bytes[end - 1] == '\r') {
+			end--;
 		}
 
-		/* Write in file */
-		try {
-			out = new FileWriter(presets, true);
-			writeFile = new BufferedWriter(out);
+		return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+	}
 
-			writeFile.newLine();
-			writeFile.write("#");	// Start of a new preset definition
-			writeFile.newLine();
-			writeFile.write(newPresetName);	// Write the name of the new preset
-			writeFile.newLine();
-			for (int i = 0; i < newPresetCoordinates.length; i++) {
+	/**
+	 * Returns whether a line holds exactly the given text.
+	 */
+	private static boolean isLine(byte[] bytes, int start, int end, String text) {
+		return trimmed(bytes, start, end).equals(text);
+	}
 
-				String npcString = Integer.toString(newPresetCoordinates[i]);
-				writeFile.write(npcString);	// Write each coordinate in.
-				writeFile.newLine();
+	/**
+	 * Returns the number on a checksum line, a sign followed by digits, or null if the line is not one.
+	 */
+	private static Long parseChecksum(byte[] bytes, int start, int end) {
+		if (end > start && bytes[end - 1] == '\r') {
+			end--;
+		}
+		if (end - start < 2 || end - start > 11) {
+			return null;
+		}
 
+		long number = 0;
+		for (int i = start + 1; i < end; i++) {
+			if (bytes[i] < '0' || bytes[i] > '9') {
+				return null;
 			}
-			writeFile.write("?");	// End of the preset definition
-			writeFile.newLine();
-			writeFile.write(Integer.toString(customIteration));	// Reference to the iteration number of the next custom preset name
+			number = number*10 + (bytes[i] - '0');
+		}
 
-			writeFile.close();
-			out.close();
+		return bytes[start] == '-' ? -number : number;
+	}
 
-		} catch (FileNotFoundException e) {
-			System.out.println("File does not exist or could not be found.");
-			System.err.println("FileNotFoundException: " + e.getMessage());
+	/**
+	 * Returns the number on a line of digits, or null if the line is not a number.
+	 */
+	private static Integer parseNumber(byte[] bytes, int start, int end) {
+		if (end > start && bytes[end - 1] == '\r') {
+			end--;
+		}
+		if (end == start || end - start > 9) {
+			return null;
+		}
 
-		} catch (IOException e) {
-			System.out.println("Error writing file.");
-			System.err.println("IOException: " + e.getMessage());
+		int number = 0;
+		for (int i = start; i < end; i++) {
+			if (bytes[i] < '0' || bytes[i] > '9') {
+				return null;
+			}
+			number = number*10 + (bytes[i] - '0');
+		}
+
+		return number;
+	}
 
+	/**
+	 * Adds a preset to the catalog. A preset saved twice under the same name keeps the Cells of both, as scanning the file always did.
+	 * @param presetName
+	 * @param presetCoordinates
+	 */
+	private void addToCatalog(String presetName, int[] presetCoordinates) {
+		int[] existing = coordinates.get(presetName);
+		names.add(presetName);
+
+		if (existing != null) {
+			int[] merged = new int[existing.length + presetCoordinates.length];
+			System.arraycopy(existing, 0, merged, 0, existing.length);
+			System.arraycopy(presetCoordinates, 0, merged, existing.length, presetCoordinates.length);
+			presetCoordinates = merged;
 		}
 
-		return newPresetName;
+		coordinates.put(presetName, presetCoordinates);
 	}
 }
@@ -0,0 +1,23 @@
+/**
+ * PresetLoadEvent Class
+ * A JDK Flight Recorder event for loading a preset or pattern into a Life world, timed from the request to the last Cell being set.
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("life.PresetLoad")
+@Label("Preset Load")
+@Category("Game of Life")
+@Description("A preset or pattern file loaded into the world")
+@StackTrace(false)
+class PresetLoadEvent extends Event {
+	@Label("Preset")
+	String preset;
+
+	@Label("Population")
+	long population;
+}
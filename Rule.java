@@ -0,0 +1,263 @@
+/**
+ * Rule Class
+ * A Life-like rule in B/S notation, such as B3/S23 for Conway's Life or B36/S23 for HighLife: a dead Cell is born with any of the neighbor counts after the B, and a living Cell survives with any of the counts after the S.
+ * A rule is compiled once into the forms the engines need, so that simulating it never branches on the counts: a table of the next status of every 3x3 neighborhood for engines that look at one Cell at a time, and masks for the bit-sliced engines that turn the neighbor count bits of 64 Cells into their next statuses in a few bitwise operations.
+ */
+import java.util.LinkedHashMap;
+
+public class Rule {
+	public static final Rule CONWAY = new Rule(1 << 3, 1 << 2 | 1 << 3);
+	private static final LinkedHashMap<String, String> NAMED_RULES = new LinkedHashMap<String, String>();
+	private int birth;	// Bit n is set if a dead Cell with n neighbors is born
+	private int survive;	// Bit n is set if a living Cell with n neighbors survives
+	private byte[] table;	// Next status of every 3x3 neighborhood, with the Cell itself on bit 4
+	/* Masks for the bit-sliced engines, by neighbor count: every bit set if the count gives life, with the counts below 8 paired off by their lowest bit */
+	private long birthEven0, birthEven1, birthEven2, birthEven3;
+	private long birthOdd0, birthOdd1, birthOdd2, birthOdd3;
+	private long birthEight;
+	private long surviveEven0, surviveEven1, surviveEven2, surviveEven3;
+	private long surviveOdd0, surviveOdd1, surviveOdd2, surviveOdd3;
+	private long surviveEight;
+
+	static {
+		NAMED_RULES.put("Conway's Life", "B3/S23");
+		NAMED_RULES.put("HighLife", "B36/S23");
+		NAMED_RULES.put("Seeds", "B2/S");
+		NAMED_RULES.put("Day & Night", "B3678/S34678");
+		NAMED_RULES.put("Life without Death", "B3/S012345678");
+		NAMED_RULES.put("Maze", "B3/S12345");
+		NAMED_RULES.put("2x2", "B36/S125");
+		NAMED_RULES.put("Diamoeba", "B35678/S5678");
+		NAMED_RULES.put("Morley", "B368/S245");
+		NAMED_RULES.put("Anneal", "B4678/S35678");
+	}
+
+	/**
+	 * Compiles a rule from its birth and survival counts.
+	 * @param birth - bit n set if a dead Cell with n neighbors is born.
+	 * @param survive - bit n set if a living Cell with n neighbors survives.
+	 */
+	public Rule(int birth, int survive) {
+		if ((birth & ~0x1ff) != 0 || (survive & ~0x1ff) != 0) {
+			throw new IllegalArgumentException("Neighbor counts must be from 0 to 8");
+		}
+		if ((birth & 1) != 0) {
+			throw new IllegalArgumentException("Rules with B0 are not supported, as they bring the empty space around the world to life");
+		}
+
+		this.birth = birth;
+		this.survive = survive;
+
+		/* Table of every neighborhood */
+		table = new byte[512];
+		for (int neighborhood = 0; neighborhood < 512; neighborhood++) {
+			int neighbors = Integer.bitCount(neighborhood & ~(1 << 4));
+			boolean alive = (neighborhood & (1 << 4)) != 0;
+
+			table[neighborhood] = (byte) (next(alive, neighbors) ? 1 : 0);
+		}
+
+		/* Masks of the bit-sliced form, see apply */
+		birthEven0 = mask(birth, 0);
+		birthOdd0 = mask(birth, 0) ^ mask(birth, 1);
+		birthEven1 = mask(birth, 2);
+		birthOdd1 = mask(birth, 2) ^ mask(birth, 3);
+		birthEven2 = mask(birth, 4);
+		birthOdd2 = mask(birth, 4) ^ mask(birth, 5);
+		birthEven3 = mask(birth, 6);
+		birthOdd3 = mask(birth, 6) ^ mask(birth, 7);
+		birthEight = mask(birth, 8);
+		surviveEven0 = mask(survive, 0);
+		surviveOdd0 = mask(survive, 0) ^ mask(survive, 1);
+		surviveEven1 = mask(survive, 2);
+		surviveOdd1 = mask(survive, 2) ^ mask(survive, 3);
+		surviveEven2 = mask(survive, 4);
+		surviveOdd2 = mask(survive, 4) ^ mask(survive, 5);
+		surviveEven3 = mask(survive, 6);
+		surviveOdd3 = mask(survive, 6) ^ mask(survive, 7);
+		surviveEight = mask(survive, 8);
+	}
+
+	/**
+	 * Returns a word with every bit set if the given neighbor count is in the counts, or no bits set if not.
+	 */
+	private static long mask(int counts, int neighbors) {
+		return -(long) ((counts >>> neighbors) & 1);
+	}
+
+	/**
+	 * Reads a rule in B/S notation, such as "B3/S23", "b36/s23" or "B2/S". The older S/B notation of digits only, survival first ("23/3"), is read too, as is the name of one of the named rules.
+	 * @param notation
+	 * @return rule
+	 * @throws IllegalArgumentException if the notation is not a valid rule.
+	 */
+	public static Rule parse(String notation) {
+		String text = notation.trim();
+		if (NAMED_RULES.containsKey(text)) {
+			text = NAMED_RULES.get(text);
+		}
+
+		String[] parts = text.toUpperCase().split("/", -1);
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Not a rule in B/S notation: " + notation);
+		}
+
+		int birth;
+		int survive;
+		if (parts[0].startsWith("B") && parts[1].startsWith("S")) {
+			birth = counts(parts[0].substring(1), notation);
+			survive = counts(parts[1].substring(1), notation);
+
+		} else if (parts[0].startsWith("S") && parts[1].startsWith("B")) {
+			survive = counts(parts[0].substring(1), notation);
+			birth = counts(parts[1].substring(1), notation);
+
+		} else {
+			survive = counts(parts[0], notation);
+			birth = counts(parts[1], notation);
+
+		}
+
+		return new Rule(birth, survive);
+	}
+
+	/**
+	 * Reads a list of neighbor counts, such as "23", into a bit set.
+	 */
+	private static int counts(String digits, String notation) {
+		int counts = 0;
+
+		for (int i = 0; i < digits.length(); i++) {
+			char digit = digits.charAt(i);
+
+			if (digit < '0' || digit > '8') {
+				throw new IllegalArgumentException("Not a rule in B/S notation: " + notation);
+			}
+			counts |= 1 << (digit - '0');
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Returns the names of the well known rules, for choosing from in the UI. Each name may be given to parse.
+	 * @return names
+	 */
+	public static String[] getNamedRules() {
+		return NAMED_RULES.keySet().toArray(new String[NAMED_RULES.size()]);
+	}
+
+	/**
+	 * Returns the neighbor counts at which dead Cells are born.
+	 * @return birth - bit n set if a dead Cell with n neighbors is born.
+	 */
+	public int getBirth() {
+		return birth;
+	}
+
+	/**
+	 * Returns the neighbor counts at which living Cells survive.
+	 * @return survive - bit n set if a living Cell with n neighbors survives.
+	 */
+	public int getSurvive() {
+		return survive;
+	}
+
+	/**
+	 * Returns whether this is the rule of Conway's Life, B3/S23, for which the engines have hand-written paths.
+	 * @return conway
+	 */
+	public boolean isConway() {
+		return birth == CONWAY.birth && survive == CONWAY.survive;
+	}
+
+	/**
+	 * Returns whether a Cell is alive on the next day.
+	 * @param alive - whether the Cell is alive now.
+	 * @param neighbors - number of living neighbors, from 0 to 8.
+	 * @return alive
+	 */
+	public boolean next(boolean alive, int neighbors) {
+		return (((alive ? survive : birth) >>> neighbors) & 1) != 0;
+	}
+
+	/**
+	 * Returns the table of the next status of every 3x3 neighborhood. The neighborhood is read row by row from the top left, so bit (row + 1)*3 + column + 1 holds the Cell at the given offset, and bit 4 the Cell itself. The table must not be changed.
+	 * @return table - 512 entries of 0 or 1.
+	 */
+	byte[] getTable() {
+		return table;
+	}
+
+	/**
+	 * Returns the masks of the bit-sliced form, in the order apply uses them: the birth masks for counts 0 and 1, 2 and 3, 4 and 5, 6 and 7 as even and odd pairs, then for 8, followed by the survival masks in the same order. For engines that apply the rule to several words at once.
+	 * @return masks - 18 words, each either all set or all clear.
+	 */
+	long[] getMasks() {
+		return new long[] {birthEven0, birthOdd0, birthEven1, birthOdd1, birthEven2, birthOdd2, birthEven3, birthOdd3, birthEight,
+				surviveEven0, surviveOdd0, surviveEven1, surviveOdd1, surviveEven2, surviveOdd2, surviveEven3, surviveOdd3, surviveEight};
+	}
+
+	/**
+	 * Computes the next statuses of 64 Cells from the bits of their neighbor counts, as added up by a bit-sliced engine. Counts of 8 have all of the lower bits clear.
+	 * Each of birth and survival is a lookup of the count in eight constants, done as a tree of selections on the count bits, so the cost is the same for every rule.
+	 * @param current - the Cells themselves.
+	 * @param ones - bit 0 of the neighbor counts.
+	 * @param twos - bit 1 of the neighbor counts.
+	 * @param fours - bit 2 of the neighbor counts.
+	 * @param eights - bit 3 of the neighbor counts.
+	 * @return newWord
+	 */
+	long apply(long current, long ones, long twos, long fours, long eights) {
+		/* Select on the ones, then the twos, then the fours: a ^ ((a ^ b) & s) picks b where s is set and a elsewhere */
+		long birth01 = birthEven0 ^ (birthOdd0 & ones);
+		long birth23 = birthEven1 ^ (birthOdd1 & ones);
+		long birth45 = birthEven2 ^ (birthOdd2 & ones);
+		long birth67 = birthEven3 ^ (birthOdd3 & ones);
+		long birth03 = birth01 ^ ((birth01 ^ birth23) & twos);
+		long birth47 = birth45 ^ ((birth45 ^ birth67) & twos);
+		long born = birth03 ^ ((birth03 ^ birth47) & fours);
+		born ^= (born ^ birthEight) & eights;
+
+		long survive01 = surviveEven0 ^ (surviveOdd0 & ones);
+		long survive23 = surviveEven1 ^ (surviveOdd1 & ones);
+		long survive45 = surviveEven2 ^ (surviveOdd2 & ones);
+		long survive67 = surviveEven3 ^ (surviveOdd3 & ones);
+		long survive03 = survive01 ^ ((survive01 ^ survive23) & twos);
+		long survive47 = survive45 ^ ((survive45 ^ survive67) & twos);
+		long survived = survive03 ^ ((survive03 ^ survive47) & fours);
+		survived ^= (survived ^ surviveEight) & eights;
+
+		return born ^ ((born ^ survived) & current);
+	}
+
+	/**
+	 * Returns the rule in B/S notation, such as "B3/S23".
+	 * @return notation
+	 */
+	public String toString() {
+		StringBuilder notation = new StringBuilder("B");
+
+		for (int n = 0; n <= 8; n++) {
+			if ((birth & (1 << n)) != 0) {
+				notation.append(n);
+			}
+		}
+		notation.append("/S");
+		for (int n = 0; n <= 8; n++) {
+			if ((survive & (1 << n)) != 0) {
+				notation.append(n);
+			}
+		}
+
+		return notation.toString();
+	}
+
+	public boolean equals(Object other) {
+		return other instanceof Rule && ((Rule) other).birth == birth && ((Rule) other).survive == survive;
+	}
+
+	public int hashCode() {
+		return birth << 9 | survive;
+	}
+}
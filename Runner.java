@@ -0,0 +1,395 @@
+/**
+ * Runner Class
+ * Runs a simulation without any UI, for headless servers and batch jobs. Loads a preset or a random world, simulates a number of days on the chosen engine and board size, and reports the throughput and the final population.
+ * The presets file may be in either the text or the binary format, or be a single RLE or plaintext pattern file.
+ * With --stop-when-settled, the run ends early once the world dies out or starts repeating itself, as found by a CycleDetector. It needs an engine that steps day by day, so not hashlife.
+ * With --checkpoint, a checkpoint of the world is written every so many days (--checkpoint-every, 10000 by default) and at the end of the run. A run started again with --resume carries on from the checkpoint, with its size, rule and topology, up to the same total number of days, so a long run survives being restarted.
+ * With --metrics, the run is measured by SimulationMetrics, registered for JMX while it runs, and the step latencies and allocation are reported at the end. Step and preset load events are also recorded whenever a flight recording is on, as with java -XX:StartFlightRecording=filename=run.jfr Runner ...
+ * With --off-heap, the grids of the world are kept in native memory rather than on the Java heap; with --map, in a memory-mapped file, so the world may be larger than the memory of the machine. A run started again with the same --map file carries on straight from the generation it was last at. Both need java --add-modules jdk.incubator.foreign.
+ * With --stream, the generations are streamed live on the given port by a StreamServer, to browsers and to StreamClient, and --rate slows the run down to the given number of days per second so that it can be watched. It needs an engine that steps day by day, so not hashlife.
+ * The rule may be any Life-like rule in B/S notation, such as B36/S23, or the name of a well known one. The edges of the world may be dead, or wrap around as on a torus or a Klein bottle, except on the hashlife engine.
+ * Usage: java Runner [--preset NAME] [--file PRESETS] [--random DENSITY] [--seed N] [--engine NAME] [--threads N] [--width N] [--height N] [--generations N] [--rule B/S] [--topology dead|torus|klein] [--stop-when-settled] [--metrics] [--checkpoint FILE] [--checkpoint-every N] [--resume FILE] [--off-heap] [--map FILE] [--stream PORT] [--rate N]
+ */
+import java.io.File;
+import java.io.IOException;
+import javax.management.JMException;
+
+public class Runner {
+	private String presetName = "Clear";
+	private File presetsPath;
+	private double density = -1;	// Negative when a preset is used instead of a random world
+	private long seed = 1;
+	private String engineName = "bitslice";
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int width = Life.WORLD_EDGE;
+	private int height = Life.WORLD_EDGE;
+	private long generations = 1000;
+	private Rule rule = Rule.CONWAY;
+	private Topology topology = Topology.DEAD;
+	private boolean stopWhenSettled;
+	private boolean metrics;
+	private File checkpointPath;
+	private long checkpointInterval = 10000;
+	private File resumePath;
+	private boolean offHeap;
+	private File mapPath;
+	private int streamPort = -1;	// Negative unless the generations are streamed
+	private double rate;	// Days per second to slow the run down to, or 0 to run flat out
+
+	/**
+	 * Reads the settings of the run from the command line arguments.
+	 * @param args
+	 */
+	public Runner(String[] args) {
+		String engineGiven = null;	// The --engine option, if given, so that a second one cannot quietly replace it
+
+		for (int i = 0; i < args.length; i++) {
+			String value = i + 1 < args.length ? args[i + 1] : null;
+
+			switch (args[i]) {
+
+				case "--preset":
+					presetName = require(args[i], value);
+					break;
+
+				case "--file":
+					presetsPath = new File(require(args[i], value));
+					break;
+
+				case "--random":
+					density = Double.parseDouble(require(args[i], value));
+					break;
+
+				case "--seed":
+					seed = Long.parseLong(require(args[i], value));
+					break;
+
+				case "--engine":
+					engineName = require(args[i], value);
+					if (engineGiven != null && !engineGiven.equals(engineName)) {
+						throw new IllegalArgumentException("Only one engine may be given, not both " + engineGiven + " and " + engineName + ((engineGiven.equals("hashlife") && engineName.equals("sparse")) || (engineGiven.equals("sparse") && engineName.equals("hashlife")) ? "; the hashlife engine only jumps bounded worlds, and the sparse engine makes the world unbounded" : ""));
+					}
+					engineGiven = engineName;
+					break;
+
+				case "--threads":
+					threads = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--width":
+					width = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--height":
+					height = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--generations":
+					generations = Long.parseLong(require(args[i], value));
+					break;
+
+				case "--rule":
+					rule = Rule.parse(require(args[i], value));
+					break;
+
+				case "--topology":
+					topology = Topology.parse(require(args[i], value));
+					break;
+
+				case "--stop-when-settled":
+					stopWhenSettled = true;
+					i--;	// Takes no value
+					break;
+
+				case "--checkpoint":
+					checkpointPath = new File(require(args[i], value));
+					break;
+
+				case "--checkpoint-every":
+					checkpointInterval = Long.parseLong(require(args[i], value));
+					break;
+
+				case "--resume":
+					resumePath = new File(require(args[i], value));
+					break;
+
+				case "--metrics":
+					metrics = true;
+					i--;	// Takes no value
+					break;
+
+				case "--off-heap":
+					offHeap = true;
+					i--;	// Takes no value
+					break;
+
+				case "--map":
+					mapPath = new File(require(args[i], value));
+					break;
+
+				case "--stream":
+					streamPort = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--rate":
+					rate = Double.parseDouble(require(args[i], value));
+					break;
+
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+
+			}
+			i++;	// Skip the value of the option
+		}
+
+		if ((offHeap || mapPath != null) && !OffHeapWorld.isSupported()) {
+			throw new IllegalArgumentException("Off-heap worlds need the Foreign Memory API: java --add-modules jdk.incubator.foreign Runner ...");
+		}
+		if (streamPort >= 0 && engineName.equals("hashlife")) {
+			throw new IllegalArgumentException("The hashlife engine jumps straight to the last generation, so there are no days to stream; choose another engine with --stream");
+		}
+		if (stopWhenSettled && engineName.equals("hashlife")) {
+			throw new IllegalArgumentException("The hashlife engine jumps straight to the last generation, so it cannot stop when the world settles; choose another engine with --stop-when-settled");
+		}
+		if (engineName.equals("hashlife") && topology != Topology.DEAD) {
+			throw new IllegalArgumentException("The hashlife engine only jumps worlds with dead edges, not a " + topology.toString().toLowerCase() + "; choose another engine with --topology");
+		}
+	}
+
+	/**
+	 * Returns the value of an option, or throws an IllegalArgumentException if it is missing.
+	 * @param option
+	 * @param value
+	 * @return value
+	 */
+	private static String require(String option, String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Missing value for " + option);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Creates the step engine with the given name. "hashlife" and "sparse" are not step engines, and are handled by the run itself.
+	 * @param name - one of cell, bitslice, parallel or vector.
+	 * @param threads - number of threads for the parallel engine.
+	 * @return engine
+	 */
+	public static StepEngine createEngine(String name, int threads) {
+		switch (name) {
+
+			case "cell":
+				return new CellEngine();
+
+			case "bitslice":
+				return new BitSliceEngine();
+
+			case "parallel":
+				return new ParallelEngine(threads);
+
+			case "vector":
+				return new VectorEngine();
+
+			default:
+				throw new IllegalArgumentException("Unknown engine: " + name);
+
+		}
+	}
+
+	/**
+	 * Sets up the world, runs the simulation, and prints the results.
+	 */
+	public void run() throws IOException, JMException {
+		boolean binary = presetsPath != null && BinaryPresetFile.isBinary(presetsPath);
+		PresetFile presetFile = presetsPath == null || binary ? new PresetFile() : new PresetFile(presetsPath);
+		Checkpoint checkpoint = resumePath != null ? Checkpoint.read(resumePath) : null;
+		if (checkpoint != null && engineName.equals("hashlife") && checkpoint.getTopology() != Topology.DEAD) {
+			throw new IllegalArgumentException("The hashlife engine only jumps worlds with dead edges, not a " + checkpoint.getTopology().toString().toLowerCase() + " as in the checkpoint; choose another engine");
+		}
+
+		if (checkpoint != null) {	// The world carries on as it was
+			width = checkpoint.getGrid().getWidth();
+			height = checkpoint.getGrid().getHeight();
+		}
+		OffHeapWorld storage = null;
+		boolean remapped = mapPath != null && mapPath.exists() && checkpoint == null;	// The world carries on from the mapped file as it was
+		if (remapped) {
+			storage = OffHeapWorld.open(mapPath);
+			width = storage.getWidth();
+			height = storage.getHeight();
+
+		} else if (mapPath != null) {
+			storage = OffHeapWorld.create(mapPath, width, height);
+
+		} else if (offHeap) {
+			storage = OffHeapWorld.allocate(width, height);
+
+		}
+		Life simulation = storage != null ? new Life(storage, presetFile) : new Life(width, height, presetFile);
+		boolean jump = engineName.equals("hashlife");
+
+		/* Select the engine */
+		if (engineName.equals("sparse")) {
+			simulation.setUnbounded(true);
+
+		} else if (!jump) {
+			simulation.setEngine(createEngine(engineName, threads));
+
+		}
+
+		simulation.setRule(rule);
+		simulation.setTopology(topology);
+		if (metrics) {
+			simulation.setMetrics(new SimulationMetrics());
+			simulation.getMetrics().register("Runner");
+		}
+
+		/* Set up the starting world */
+		if (remapped) {
+			/* Already there, along with its day count */
+
+		} else if (checkpoint != null) {
+			simulation.restore(checkpoint);
+			rule = checkpoint.getRule();
+			topology = checkpoint.getTopology();
+
+		} else if (density >= 0) {
+			simulation.randomize(density, seed);
+
+		} else if (presetsPath != null && PatternFormat.isPatternFile(presetsPath.getName())) {
+			simulation.getPresetCoordinates(presetsPath.getPath());
+
+		} else if (binary && !presetName.equals("Clear")) {
+			simulation.loadPreset(new BinaryPresetFile(presetsPath), presetName);
+
+		} else {
+			simulation.getPresetCoordinates(presetName);
+
+		}
+		long startPopulation = simulation.getWorld().getPopulation();
+		long firstDay = simulation.getGeneration();
+		long simulated = Math.max(generations - firstDay, 0);
+		CheckpointWriter checkpoints = null;
+		if (checkpointPath != null) {
+			checkpoints = new CheckpointWriter(simulation, checkpointPath, checkpointInterval);
+			simulation.setCheckpointWriter(checkpoints);
+		}
+		if (stopWhenSettled) {
+			simulation.setDetectingCycles(CycleDetector.DEFAULT_HISTORY);
+		}
+		StreamServer stream = null;
+		if (streamPort >= 0) {
+			stream = new StreamServer(simulation, streamPort);
+			simulation.setStreamServer(stream);
+			System.out.println("Streaming on port " + stream.getPort());
+		}
+
+		/* Run the simulation */
+		long start = System.nanoTime();
+		if (jump) {
+			simulation.jump(simulated);
+
+		} else {
+			for (long day = firstDay; day < generations; day++) {
+				simulation.step();
+
+				if (rate > 0) {
+					long due = start + (long) ((day + 1 - firstDay) * 1e9 / rate);
+					long wait = due - System.nanoTime();
+					if (wait > 0) {
+						try {
+							Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							break;
+
+						}
+					}
+				}
+
+				if (stopWhenSettled && simulation.getCycleDetector().isSettled()) {
+					simulated = day + 1 - firstDay;	// Every day after this one is known already
+					break;
+				}
+			}
+
+		}
+		long elapsed = System.nanoTime() - start;
+		if (checkpoints != null) {
+			checkpoints.close();	// The last day is checkpointed too
+		}
+		if (stream != null) {
+			stream.close();	// The viewers are sent the last day first
+		}
+
+		if (simulation.getEngine() instanceof ParallelEngine) {
+			((ParallelEngine) simulation.getEngine()).shutdown();
+		}
+
+		/* Report the results */
+		double seconds = Math.max(elapsed, 1) / 1e9;
+		double cellsPerGeneration = (double) width * height;
+
+		System.out.println("Engine:          " + engineName + (simulation.getEngine() instanceof VectorEngine ? (VectorEngine.isSupported() ? " (" + VectorEngine.getLanes() + " words per vector)" : " (falling back to bitslice, run with --add-modules jdk.incubator.vector)") : ""));
+		System.out.println("Rule:            " + rule);
+		System.out.println("Topology:        " + topology);
+		System.out.println("World:           " + width + "x" + height + (checkpoint != null ? " resumed from " + resumePath + " at day " + firstDay : remapped ? " resumed from " + mapPath + " at day " + firstDay : density >= 0 ? " random " + density + " (seed " + seed + ")" : " preset " + presetName) + (storage == null ? "" : mapPath != null ? ", mapped to " + mapPath : ", off the heap"));
+		System.out.println("Generations:     " + simulated + (firstDay + simulated < generations ? " of " + (generations - firstDay) : ""));
+		System.out.printf("Time:            %.3f s%n", seconds);
+		System.out.printf("Generations/sec: %.1f%n", simulated / seconds);
+		System.out.printf("Cells/sec:       %.4g%n", simulated * cellsPerGeneration / seconds);
+		System.out.println("Population:      " + startPopulation + " -> " + simulation.getWorld().getPopulation());
+		if (simulation.getCycleDetector() != null) {
+			String settled = simulation.getCycleDetector().describe();
+			System.out.println("Settled:         " + (settled.isEmpty() ? "no" : settled + " from day " + (simulation.getGeneration() - simulation.getCycleDetector().getPeriod())));
+		}
+		if (checkpoints != null) {
+			System.out.println("Checkpoint:      " + checkpointPath + " at day " + checkpoints.getWritten());
+		}
+		if (stream != null) {
+			System.out.println("Stream:          port " + stream.getPort() + ", " + stream.getFramesSent() + " frames sent (" + stream.getKeyframes() + " keyframes encoded, " + stream.getFramesSkipped() + " frames skipped), " + stream.getBytesSent() + " bytes");
+		}
+		if (simulation.getMetrics() != null) {
+			System.out.println(simulation.getMetrics().summarize());
+			simulation.getMetrics().unregister();
+		}
+		if (storage != null) {
+			storage.close();	// Writes out the mapped file
+		}
+	}
+
+	public static void main(String[] args) {
+		Runner runner;
+
+		try {
+			runner = new Runner(args);
+
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java Runner [--preset NAME] [--file PRESETS] [--random DENSITY] [--seed N] [--engine cell|bitslice|parallel|vector|hashlife|sparse] [--threads N] [--width N] [--height N] [--generations N] [--rule B/S] [--topology dead|torus|klein] [--stop-when-settled] [--metrics] [--checkpoint FILE] [--checkpoint-every N] [--resume FILE] [--off-heap] [--map FILE] [--stream PORT] [--rate N]");
+			System.exit(1);
+			return;
+		}
+
+		try {
+			runner.run();
+
+		} catch (IOException e) {
+			System.out.println("Error reading file.");
+			System.err.println("IOException: " + e.getMessage());
+			System.exit(1);
+
+		} catch (JMException e) {
+			System.out.println("Error registering metrics.");
+			System.err.println("JMException: " + e.getMessage());
+			System.exit(1);
+
+		} catch (IllegalArgumentException e) {	// Options that only turn out not to fit together once a checkpoint is read
+			System.err.println(e.getMessage());
+			System.exit(1);
+
+		}
+	}
+}
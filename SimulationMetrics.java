@@ -0,0 +1,271 @@
+/**
+ * SimulationMetrics Class
+ * Measures what a Life world is doing while it runs: days per second, how long each day takes, the population with its births and deaths, the memory allocated per day, and how long presets take to load.
+ * The metrics are written by the thread that simulates and may be read from any other, such as a JMX connection from JConsole or JDK Mission Control once registered. A world without metrics pays nothing for them beyond a null check per day.
+ */
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class SimulationMetrics implements SimulationMetricsMBean {
+	private static final int BUCKETS = 40;	// Powers of two of nanoseconds, up to about 18 minutes
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	private com.sun.management.ThreadMXBean allocation;	// Null if the JVM cannot count the bytes allocated by a thread
+	private ObjectName name;
+	/* Written only by the simulating thread */
+	private volatile long generations;
+	private volatile double generationsPerSecond;
+	private long windowStart;
+	private long windowGenerations;
+	private volatile long population;	// Kept up from the births and deaths of each day, and only counted afresh after the world was edited
+	private volatile boolean edited = true;	// Set from any thread that edits the world; counted at the end of the first day too
+	private volatile long births;
+	private volatile long deaths;
+	private AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+	private volatile long latencyTotal;
+	private volatile long latencyMax;
+	private volatile long allocatedTotal;
+	private long stepStart;
+	private long allocatedAtStart;
+	private volatile long presetLoads;
+	private volatile long presetLoadTotal;
+	private volatile long lastPresetLoad;
+
+	/**
+	 * Initializes empty metrics.
+	 */
+	public SimulationMetrics() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		if (threads instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+			allocation = (com.sun.management.ThreadMXBean) threads;
+			allocation.setThreadAllocatedMemoryEnabled(true);
+		}
+		windowStart = System.nanoTime();
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server as life:type=Simulation,name=NAME, so that they can be watched live.
+	 * @param simulationName - tells simulations in the same JVM apart.
+	 * @throws JMException if the metrics cannot be registered, such as when the name is taken.
+	 */
+	public void register(String simulationName) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		name = ObjectName.getInstance("life:type=Simulation,name=" + ObjectName.quote(simulationName));
+		server.registerMBean(this, name);
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if they were registered.
+	 * @throws JMException
+	 */
+	public void unregister() throws JMException {
+		if (name != null) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			name = null;
+		}
+	}
+
+	/**
+	 * Marks the start of a day. Called by the simulating thread.
+	 */
+	void startStep() {
+		allocatedAtStart = allocatedBytes();
+		stepStart = System.nanoTime();
+	}
+
+	/**
+	 * Marks the end of a day, recording how it went. Called by the simulating thread.
+	 * @param world - the new generation.
+	 * @param changes - the changes made by the day, or null if changes are not being tracked.
+	 */
+	void endStep(Grid world, ChangeSet changes) {
+		long now = System.nanoTime();
+		long latency = now - stepStart;
+		long allocated = allocatedBytes() - allocatedAtStart;
+
+		latencyBuckets.lazySet(bucket(latency), latencyBuckets.get(bucket(latency)) + 1);	// Only this thread writes, so there is no lost update
+		latencyTotal += latency;
+		latencyMax = Math.max(latencyMax, latency);
+		allocatedTotal += Math.max(allocated, 0);
+		generations++;
+
+		if (edited || changes == null) {
+			edited = false;	// Cleared before counting, so that an edit made meanwhile is counted next time
+			population = world.getPopulation();
+
+		} else {
+			population += changes.getBirths() - changes.getDeaths();
+
+		}
+		births = changes != null ? changes.getBirths() : -1;
+		deaths = changes != null ? changes.getDeaths() : -1;
+
+		windowGenerations++;
+		if (now - windowStart >= NANOS_PER_SECOND) {
+			generationsPerSecond = windowGenerations * (double) NANOS_PER_SECOND / (now - windowStart);
+			windowStart = now;
+			windowGenerations = 0;
+		}
+	}
+
+	/**
+	 * Notes that the world was edited outside of a day, so that its population is counted afresh at the end of the next one.
+	 */
+	void edited() {
+		edited = true;
+	}
+
+	/**
+	 * Records the time taken to load a preset. Called by the thread that loaded it.
+	 * @param nanos
+	 * @param world - the world the preset was loaded into.
+	 */
+	void presetLoaded(long nanos, Grid world) {
+		presetLoads++;
+		presetLoadTotal += nanos;
+		lastPresetLoad = nanos;
+		edited = false;
+		population = world.getPopulation();
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the current thread, or 0 if they cannot be counted.
+	 * @return allocatedBytes
+	 */
+	private long allocatedBytes() {
+		return allocation != null ? allocation.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+	}
+
+	/**
+	 * Returns the histogram bucket of a latency: the power of two of nanoseconds below it.
+	 */
+	private static int bucket(long nanos) {
+		return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+	}
+
+	/**
+	 * Returns the latency that the given share of days were quicker than, taken as the middle of its bucket.
+	 * @param share - from 0 to 1.
+	 * @return micros
+	 */
+	private double percentile(double share) {
+		long[] histogram = getStepLatencyHistogram();
+		long total = 0;
+		for (long count : histogram) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long seen = 0;
+		for (int i = 0; i < histogram.length; i++) {
+			seen += histogram[i];
+
+			if (seen >= share * total) {
+				return 1.5 * (1L << i) / 1000.0;
+			}
+		}
+
+		return latencyMax / 1000.0;
+	}
+
+	public long getGenerations() {
+		return generations;
+	}
+
+	public double getGenerationsPerSecond() {
+		return generationsPerSecond;
+	}
+
+	public long getPopulation() {
+		return population;
+	}
+
+	public long getBirths() {
+		return births;
+	}
+
+	public long getDeaths() {
+		return deaths;
+	}
+
+	public double getStepLatencyMean() {
+		long count = generations;
+		return count == 0 ? 0 : latencyTotal / 1000.0 / count;
+	}
+
+	public double getStepLatencyP50() {
+		return percentile(0.5);
+	}
+
+	public double getStepLatencyP99() {
+		return percentile(0.99);
+	}
+
+	public double getStepLatencyMax() {
+		return latencyMax / 1000.0;
+	}
+
+	public long[] getStepLatencyHistogram() {
+		long[] histogram = new long[BUCKETS];
+
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = latencyBuckets.get(i);
+		}
+
+		return histogram;
+	}
+
+	public double getAllocatedBytesPerStep() {
+		if (allocation == null) {
+			return -1;
+		}
+
+		long count = generations;
+		return count == 0 ? 0 : (double) allocatedTotal / count;
+	}
+
+	public long getPresetLoads() {
+		return presetLoads;
+	}
+
+	public double getLastPresetLoadMillis() {
+		return lastPresetLoad / 1e6;
+	}
+
+	public double getMeanPresetLoadMillis() {
+		long count = presetLoads;
+		return count == 0 ? 0 : presetLoadTotal / 1e6 / count;
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			latencyBuckets.set(i, 0);
+		}
+
+		generations = 0;
+		generationsPerSecond = 0;
+		latencyTotal = 0;
+		latencyMax = 0;
+		allocatedTotal = 0;
+		presetLoads = 0;
+		presetLoadTotal = 0;
+		lastPresetLoad = 0;
+	}
+
+	/**
+	 * Summarizes the metrics in a few lines, for the end of a headless run.
+	 * @return summary
+	 */
+	public String summarize() {
+		return String.format("Step latency:    mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us%n", getStepLatencyMean(), getStepLatencyP50(), getStepLatencyP99(), getStepLatencyMax())
+				+ String.format("Allocation:      %.1f bytes/step%n", getAllocatedBytesPerStep())
+				+ String.format("Preset loads:    %d, mean %.3f ms", getPresetLoads(), getMeanPresetLoadMillis());
+	}
+}
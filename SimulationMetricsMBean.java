@@ -0,0 +1,95 @@
+/**
+ * SimulationMetricsMBean Interface
+ * The management interface of SimulationMetrics, as seen in JConsole or JDK Mission Control under life:type=Simulation. Times are in microseconds unless named otherwise.
+ */
+public interface SimulationMetricsMBean {
+
+	/**
+	 * Returns the number of days simulated since the metrics were last reset.
+	 * @return generations
+	 */
+	long getGenerations();
+
+	/**
+	 * Returns the number of days simulated per second, over the last second or so.
+	 * @return generationsPerSecond
+	 */
+	double getGenerationsPerSecond();
+
+	/**
+	 * Returns the number of living Cells after the last day.
+	 * @return population
+	 */
+	long getPopulation();
+
+	/**
+	 * Returns the number of Cells born on the last day.
+	 * @return births
+	 */
+	long getBirths();
+
+	/**
+	 * Returns the number of Cells that died on the last day.
+	 * @return deaths
+	 */
+	long getDeaths();
+
+	/**
+	 * Returns the mean time taken by a day.
+	 * @return mean
+	 */
+	double getStepLatencyMean();
+
+	/**
+	 * Returns the median time taken by a day, to within a factor of two.
+	 * @return median
+	 */
+	double getStepLatencyP50();
+
+	/**
+	 * Returns the time that 99% of days were quicker than, to within a factor of two.
+	 * @return p99
+	 */
+	double getStepLatencyP99();
+
+	/**
+	 * Returns the longest time taken by a day.
+	 * @return max
+	 */
+	double getStepLatencyMax();
+
+	/**
+	 * Returns the number of days that took each power of two of nanoseconds: entry i counts the days that took from 2^i up to 2^(i+1) nanoseconds.
+	 * @return histogram
+	 */
+	long[] getStepLatencyHistogram();
+
+	/**
+	 * Returns the mean number of bytes allocated by a day on the simulating thread, or -1 if the JVM cannot measure it.
+	 * @return allocatedBytes
+	 */
+	double getAllocatedBytesPerStep();
+
+	/**
+	 * Returns the number of presets loaded.
+	 * @return presetLoads
+	 */
+	long getPresetLoads();
+
+	/**
+	 * Returns the time taken by the last preset load, in milliseconds, including reading the presets file if it changed.
+	 * @return millis
+	 */
+	double getLastPresetLoadMillis();
+
+	/**
+	 * Returns the mean time taken by a preset load, in milliseconds.
+	 * @return millis
+	 */
+	double getMeanPresetLoadMillis();
+
+	/**
+	 * Starts every count from zero.
+	 */
+	void reset();
+}
@@ -0,0 +1,348 @@
+/**
+ * Simulator Class
+ * Steps a Life world on a thread of its own, so that the Swing event thread only ever draws. While the thread runs it owns the world; every other thread hands it edits to apply between days, and reads the world through snapshots.
+ * Snapshots are passed across with a lock-free triple buffer: the simulation thread fills a spare grid and swaps it into a shared slot, and the event thread swaps the slot for the grid it has finished drawing. Neither thread ever waits for the other, and a snapshot is never written while it is being drawn. A snapshot is only filled once the last one was taken, so when drawing falls behind the frames in between are skipped rather than queued.
+ * The simulator is started, stopped and handed edits from a single thread, usually the Swing event thread.
+ */
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+public class Simulator {
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	private Life life;
+	private volatile double targetRate;	// Days per second, or 0 to run as fast as possible
+	private volatile long generation;	// Days since the world was last edited
+	private volatile double measuredRate;	// Days per second actually reached
+	private volatile boolean running;
+	private volatile boolean stopWhenSettled;	// Stop stepping once the cycle detector of the world reports it settled
+	private boolean unpublished;	// The world changed since the last snapshot was filled
+	private Thread thread;
+	private ConcurrentLinkedQueue<Runnable> edits = new ConcurrentLinkedQueue<Runnable>();
+	/* Triple buffer of snapshots: one being filled, one waiting in the slot, and one being drawn */
+	private Snapshot back;
+	private AtomicReference<Snapshot> ready;
+	private Snapshot front;
+
+	/**
+	 * Initializes a stopped simulator for the given world.
+	 * @param life
+	 * @param targetRate - days per second, or 0 to run as fast as possible.
+	 */
+	public Simulator(Life life, double targetRate) {
+		this.life = life;
+		this.targetRate = targetRate;
+		back = new Snapshot(life.getWidth(), life.getHeight());
+		ready = new AtomicReference<Snapshot>(new Snapshot(life.getWidth(), life.getHeight()));
+		front = new Snapshot(life.getWidth(), life.getHeight());
+	}
+
+	/**
+	 * Returns the world being simulated. It may only be used directly while the simulator is stopped.
+	 * @return life
+	 */
+	public Life getLife() {
+		return life;
+	}
+
+	/**
+	 * Returns the target speed of the simulation.
+	 * @return targetRate - days per second, or 0 if the simulation runs as fast as possible.
+	 */
+	public double getTargetRate() {
+		return targetRate;
+	}
+
+	/**
+	 * Sets the target speed of the simulation, taking effect from the next day even while running.
+	 * @param targetRate - days per second, or 0 to run as fast as possible.
+	 */
+	public void setTargetRate(double targetRate) {
+		this.targetRate = Math.max(0, targetRate);
+	}
+
+	/**
+	 * Selects whether the simulation thread stops stepping once the world has settled, waiting for an edit or for stop. Only takes effect while the world is detecting cycles.
+	 * @param stopWhenSettled
+	 */
+	public void setStopWhenSettled(boolean stopWhenSettled) {
+		this.stopWhenSettled = stopWhenSettled;
+		LockSupport.unpark(thread);
+	}
+
+	/**
+	 * Returns whether the simulation thread stops stepping once the world has settled.
+	 * @return stopWhenSettled
+	 */
+	public boolean isStopWhenSettled() {
+		return stopWhenSettled;
+	}
+
+	/**
+	 * Returns the number of days simulated since the world was last edited.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Starts counting days from zero again, after the world was edited.
+	 */
+	public void resetGeneration() {
+		setGeneration(0);
+	}
+
+	/**
+	 * Sets the number of days simulated, in the simulator and in the world, as after restoring a checkpoint. Like an edit, it is only allowed on the simulation thread or while stopped.
+	 * @param generation
+	 */
+	public void setGeneration(long generation) {
+		this.generation = generation;
+		life.setGeneration(generation);
+	}
+
+	/**
+	 * Returns the speed the simulation actually reached over the last second or so while running.
+	 * @return measuredRate - days per second.
+	 */
+	public double getMeasuredRate() {
+		return measuredRate;
+	}
+
+	/**
+	 * Returns whether the simulation thread is running.
+	 * @return running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Simulates a single day on the calling thread. Only allowed while the simulator is stopped.
+	 */
+	public void step() {
+		if (running) {
+			throw new IllegalStateException("The simulation thread is running");
+		}
+
+		life.step();
+		generation++;
+	}
+
+	/**
+	 * Applies an edit to the world. While running, the edit is applied by the simulation thread before its next day, and shows up in the next snapshot; while stopped, it is applied straight away on the calling thread.
+	 * @param edit
+	 */
+	public void submit(Runnable edit) {
+		if (running) {
+			edits.add(edit);
+			LockSupport.unpark(thread);	// Do not wait out a slow day before applying it
+
+		} else {
+			edit.run();
+
+		}
+	}
+
+	/**
+	 * Starts simulating days on a new thread. Until stop is called, the world must only be used through submit and takeSnapshot.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+
+		running = true;
+		unpublished = true;	// The world may have changed while stopped
+		thread = new Thread(new Runnable() {
+			public void run() {
+				simulate();
+			}
+		}, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the simulation thread after its current day, and waits for it to finish. Edits submitted but not yet applied are applied first, after which the world may be used directly again.
+	 */
+	public synchronized void stop() {
+		if (!running) {
+			return;
+		}
+
+		running = false;
+		LockSupport.unpark(thread);
+		boolean interrupted = false;
+
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+
+			} catch (InterruptedException e) {
+				interrupted = true;	// Keep waiting, the world must not be shared
+
+			}
+		}
+		thread = null;
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the latest snapshot of the world, or null if there has been none since the last call. The snapshot stays unchanged until the next call, which hands it back to the simulation thread. Must only be called from a single thread, usually the Swing event thread.
+	 * @return snapshot
+	 */
+	public Snapshot takeSnapshot() {
+		if (!ready.get().fresh) {
+			return null;
+		}
+
+		/* Only the simulation thread replaces the slot, and always with a fresh snapshot, so this is still fresh */
+		front.fresh = false;
+		front = ready.getAndSet(front);
+		return front;
+	}
+
+	/**
+	 * Runs days on the simulation thread until stopped, keeping to the target speed.
+	 */
+	private void simulate() {
+		long deadline = System.nanoTime();
+		long rateStart = deadline;
+		long rateGenerations = 0;
+
+		while (running) {
+			applyEdits();
+
+			/* Once settled, wait for an edit to bring the world back to life */
+			if (stopWhenSettled && isSettled()) {
+				if (unpublished && !ready.get().fresh) {
+					publish();
+				}
+				LockSupport.parkNanos(NANOS_PER_SECOND / 60);
+				rateStart = System.nanoTime();
+				deadline = rateStart;
+				measuredRate = 0;
+				continue;
+			}
+
+			life.step();
+			generation++;
+			rateGenerations++;
+			unpublished = true;
+
+			/* Only fill a new snapshot once the last one was taken, so that no copies are made for frames that would be skipped */
+			if (!ready.get().fresh) {
+				publish();
+			}
+
+			long now = System.nanoTime();
+			if (now - rateStart >= NANOS_PER_SECOND) {
+				measuredRate = rateGenerations * (double) NANOS_PER_SECOND / (now - rateStart);
+				rateStart = now;
+				rateGenerations = 0;
+			}
+
+			/* Wait until the next day is due; a late day is not made up for by rushing the ones after it */
+			double rate = targetRate;
+			if (rate > 0) {
+				deadline += (long) (NANOS_PER_SECOND / rate);
+
+				if (deadline < now) {
+					deadline = now;
+				}
+				while (running && (now = System.nanoTime()) < deadline) {
+					if (applyEdits()) {
+						publish();	// Show edits without waiting for the next day
+					}
+					LockSupport.parkNanos(deadline - now);
+				}
+			}
+		}
+
+		applyEdits();
+	}
+
+	/**
+	 * Applies the submitted edits, in order.
+	 * @return applied - whether there were any.
+	 */
+	private boolean applyEdits() {
+		boolean applied = false;
+		Runnable edit;
+
+		while ((edit = edits.poll()) != null) {
+			edit.run();
+			applied = true;
+			unpublished = true;
+		}
+
+		return applied;
+	}
+
+	/**
+	 * Returns whether the cycle detector of the world reports it settled.
+	 * @return settled
+	 */
+	private boolean isSettled() {
+		CycleDetector detector = life.getCycleDetector();
+		return detector != null && detector.isSettled();
+	}
+
+	/**
+	 * Copies the world into the spare snapshot, and swaps it into the slot for the event thread to take.
+	 */
+	private void publish() {
+		CycleDetector detector = life.getCycleDetector();
+
+		back.grid.copyFrom(life.getWorld());
+		back.generation = generation;
+		back.settled = detector != null ? detector.describe() : "";
+		back.fresh = true;
+		back = ready.getAndSet(back);
+		unpublished = false;
+	}
+
+	/**
+	 * Snapshot Class
+	 * A copy of the world at some day, owned by whichever thread holds it.
+	 */
+	public static class Snapshot {
+		private BitGrid grid;
+		private long generation;
+		private String settled;
+		private boolean fresh;	// Filled since it was last taken
+
+		Snapshot(int width, int height) {
+			grid = new BitGrid(width, height);
+		}
+
+		/**
+		 * Returns the Cells of the world at the time of the snapshot.
+		 * @return grid
+		 */
+		public Grid getGrid() {
+			return grid;
+		}
+
+		/**
+		 * Returns the number of days since the world was last edited, at the time of the snapshot.
+		 * @return generation
+		 */
+		public long getGeneration() {
+			return generation;
+		}
+
+		/**
+		 * Returns how the world had settled at the time of the snapshot, as described by its cycle detector.
+		 * @return settled - empty if it had not settled, or if cycles are not being detected.
+		 */
+		public String getSettled() {
+			return settled;
+		}
+	}
+}
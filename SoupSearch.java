@@ -0,0 +1,557 @@
+/**
+ * SoupSearch Class
+ * Searches random soups for what they turn into. Each soup is a square of random Cells in the middle of an otherwise empty world, filled from the seed of the search and the number of the soup, so that any soup can be reproduced on its own. The soups are run on every core at once until they settle, and their outcomes are tallied in a census: the final population, the period, and the days taken to settle.
+ * The census is keyed by a canonical hash of the settled pattern, which is the same wherever the pattern lies in the world, however it is rotated or reflected, and whichever phase of an oscillator it ended in, so each distinct outcome is kept once however many soups reach it. The first soup found to reach an interesting outcome, one that oscillates with a period above 2 or takes long to settle, is exported as a preset, as is any soup that does not settle at all. The number of soups searched per second is reported every second while the search runs.
+ * Soups in worlds of up to Life.WORLD_EDGE Cells square are exported into the presets file, with the rule in their name, and larger ones as RLE pattern files in the patterns directory, with the rule in their header.
+ * Usage: java SoupSearch [--soups N] [--seed N] [--threads N] [--size N] [--soup-size N] [--density D] [--max-generations N] [--long-lived N] [--rule B/S] [--topology dead|torus|klein] [--file PRESETS] [--max-exports N] [--no-export] [--top N]
+ */
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SoupSearch {
+	private long seed = 1;
+	private long soups = 10000;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int size = Life.WORLD_EDGE;
+	private int soupSize = 16;
+	private double density = 0.5;
+	private long maxGenerations = 10000;	// Soups that have not settled by then are counted as unsettled
+	private long longLived = 1000;	// Soups that take this many days to settle are interesting
+	private Rule rule = Rule.CONWAY;
+	private Topology topology = Topology.DEAD;
+	private File presetsPath;
+	private boolean export = true;
+	private int maxExports = 100;
+	private int top = 20;	// Outcomes listed in the report
+	/* Results, shared by the workers */
+	private PresetFile presetFile;
+	private ConcurrentHashMap<Long, Outcome> census = new ConcurrentHashMap<Long, Outcome>();
+	private AtomicLong nextSoup = new AtomicLong();
+	private AtomicLong searched = new AtomicLong();
+	private AtomicLong unsettled = new AtomicLong();
+	private ArrayList<String> exported = new ArrayList<String>();	// Guarded by presetFile
+	private long startTime;
+	private volatile long elapsed;
+
+	/**
+	 * Reads the settings of the search from the command line arguments.
+	 * @param args
+	 */
+	public SoupSearch(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--no-export")) {	// The only option that takes no value
+				export = false;
+				continue;
+			}
+			String value = i + 1 < args.length ? args[i + 1] : null;
+
+			switch (args[i]) {
+
+				case "--soups":
+					soups = Long.parseLong(require(args[i], value));
+					break;
+
+				case "--seed":
+					seed = Long.parseLong(require(args[i], value));
+					break;
+
+				case "--threads":
+					threads = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--size":
+					size = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--soup-size":
+					soupSize = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--density":
+					density = Double.parseDouble(require(args[i], value));
+					break;
+
+				case "--max-generations":
+					maxGenerations = Long.parseLong(require(args[i], value));
+					break;
+
+				case "--long-lived":
+					longLived = Long.parseLong(require(args[i], value));
+					break;
+
+				case "--rule":
+					rule = Rule.parse(require(args[i], value));
+					break;
+
+				case "--topology":
+					topology = Topology.parse(require(args[i], value));
+					break;
+
+				case "--file":
+					presetsPath = new File(require(args[i], value));
+					break;
+
+				case "--max-exports":
+					maxExports = Integer.parseInt(require(args[i], value));
+					break;
+
+				case "--top":
+					top = Integer.parseInt(require(args[i], value));
+					break;
+
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+
+			}
+			i++;	// Skip the value of the option
+		}
+
+		if (threads < 1 || size < 1 || soupSize < 1 || soupSize > size) {
+			throw new IllegalArgumentException("There must be at least one thread, and the soup must fit in the world");
+		}
+		presetFile = presetsPath != null ? new PresetFile(presetsPath) : new PresetFile();
+	}
+
+	/**
+	 * Returns the value of an option, or throws an IllegalArgumentException if it is missing.
+	 * @param option
+	 * @param value
+	 * @return value
+	 */
+	private static String require(String option, String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Missing value for " + option);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Returns the seed that a soup is filled from, so that it can be reproduced with Life.randomize.
+	 * @param soup - number of the soup in the search.
+	 * @return seed
+	 */
+	public long soupSeed(long soup) {
+		return seed * 0x9E3779B97F4A7C15L + soup;	// SplittableRandom mixes its seed well, so neighboring seeds give unrelated soups
+	}
+
+	/**
+	 * Runs the search on its threads, reporting the progress every second, and returns once every soup has been searched.
+	 * @throws InterruptedException if interrupted while waiting for the threads.
+	 */
+	public void search() throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		long lastReport = System.nanoTime();
+		long lastSearched = 0;
+
+		startTime = lastReport;
+		for (int i = 0; i < threads; i++) {
+			pool.execute(new Runnable() {
+				public void run() {
+					searchSoups();
+				}
+			});
+		}
+		pool.shutdown();
+
+		/* Report the throughput over the last second, until the threads are done */
+		while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+			long now = System.nanoTime();
+			long count = searched.get();
+
+			System.out.printf("Soups: %d of %d, %.0f soups/s, %d outcomes, %d unsettled%n", count, soups, (count - lastSearched) * 1e9 / (now - lastReport), census.size(), unsettled.get());
+			lastReport = now;
+			lastSearched = count;
+		}
+
+		elapsed = System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Searches soups on the calling thread, taking the next soup not yet taken by another thread until there are none left.
+	 */
+	private void searchSoups() {
+		Life life = new Life(size, size, presetFile);
+		life.setEngine(new BitSliceEngine());
+		life.setRule(rule);
+		life.setTopology(topology);
+		life.setDetectingCycles(CycleDetector.DEFAULT_HISTORY);
+
+		for (long soup = nextSoup.getAndIncrement(); soup < soups; soup = nextSoup.getAndIncrement()) {
+			life.randomize(density, soupSeed(soup), soupSize, soupSize);
+			CycleDetector detector = life.getCycleDetector();	// Starts detecting afresh from the soup
+
+			while (!detector.isSettled() && detector.getGeneration() < maxGenerations) {
+				life.step();
+			}
+
+			if (!detector.isSettled()) {
+				unsettled.incrementAndGet();
+				export(life, soup, "unsettled after " + maxGenerations + " days");
+
+			} else {
+				int period = detector.getPeriod();
+				long settled = detector.getGeneration() - period;	// The first day of the cycle
+				long hash = 0;
+				long population = 0;
+
+				/* Key the outcome by the phase of the cycle with the lowest hash, so that every phase of an oscillator counts as the same outcome */
+				for (int phase = 0; phase < period; phase++) {
+					long phaseHash = canonicalHash(life.getWorld());
+
+					if (phase == 0 || phaseHash < hash) {
+						hash = phaseHash;
+						population = life.getWorld().getPopulation();
+					}
+					life.step();
+				}
+
+				Outcome outcome = census.get(hash);
+				boolean found = false;
+				if (outcome == null) {
+					Outcome created = new Outcome(hash, population, period);
+					outcome = census.putIfAbsent(hash, created);
+					found = outcome == null;
+					if (found) {
+						outcome = created;
+					}
+				}
+				outcome.add(soup, settled);
+
+				if (found && (period > 2 || settled >= longLived)) {
+					export(life, soup, outcome.describe() + ", settled on day " + settled);
+				}
+			}
+
+			searched.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Saves a soup as a preset, named after the seed of the search, the number of the soup and the rule, unless exporting is off or enough soups were exported already.
+	 * @param life - the world of the thread, which is reset to the soup.
+	 * @param soup - number of the soup.
+	 * @param outcome - description of what the soup turned into.
+	 */
+	private void export(Life life, long soup, String outcome) {
+		if (!export) {
+			return;
+		}
+
+		synchronized (presetFile) {
+			if (exported.size() >= maxExports) {
+				return;
+			}
+
+			life.randomize(density, soupSeed(soup), soupSize, soupSize);
+			String presetName = "Soup " + seed + "-" + soup + (size <= Life.WORLD_EDGE ? " " + rule : ".rle");	// Larger worlds do not fit in the presets file, and pattern files carry the rule in their header
+			presetName = life.createNewPreset(life.getWorldStatus(), presetName);
+			exported.add(presetName + ": " + outcome);
+		}
+	}
+
+	/**
+	 * Computes a hash of the living Cells of a world that does not depend on where they lie, nor on how they are rotated or reflected: the lowest of the hashes of the bounding box of the Cells under each of the 8 symmetries of the square.
+	 * @param grid
+	 * @return hash - 0 if nothing is alive.
+	 */
+	public static long canonicalHash(Grid grid) {
+		int top = grid.getHeight();
+		int bottom = -1;
+		int left = grid.getWidth();
+		int right = -1;
+
+		/* Find the bounding box a word at a time */
+		for (int row = 0; row < grid.getHeight(); row++) {
+
+			for (int word = 0; word < grid.getWordsPerRow(); word++) {
+				long bits = grid.getWord(row, word);
+
+				if (bits != 0) {
+					top = Math.min(top, row);
+					bottom = row;
+					left = Math.min(left, word*Grid.WORD_SIZE + Long.numberOfTrailingZeros(bits));
+					right = Math.max(right, word*Grid.WORD_SIZE + Grid.WORD_SIZE - 1 - Long.numberOfLeadingZeros(bits));
+				}
+			}
+		}
+		if (bottom < 0) {
+			return 0;
+		}
+
+		int rows = bottom - top + 1;
+		int columns = right - left + 1;
+		long lowest = 0;
+
+		for (int symmetry = 0; symmetry < 8; symmetry++) {
+			boolean transposed = (symmetry & 4) != 0;
+			int outRows = transposed ? columns : rows;
+			int outColumns = transposed ? rows : columns;
+			long hash = mix(outRows * 0x9E3779B97F4A7C15L + outColumns);
+			long bits = 0;
+			int count = 0;
+
+			/* Read the box row by row as it looks under the symmetry, 64 Cells at a time */
+			for (int outRow = 0; outRow < outRows; outRow++) {
+
+				for (int outColumn = 0; outColumn < outColumns; outColumn++) {
+					int row = transposed ? outColumn : outRow;
+					int column = transposed ? outRow : outColumn;
+					if ((symmetry & 1) != 0) {
+						row = rows - 1 - row;
+					}
+					if ((symmetry & 2) != 0) {
+						column = columns - 1 - column;
+					}
+
+					bits = bits << 1 | (grid.isAlive(top + row, left + column) ? 1 : 0);
+					count++;
+					if (count == Grid.WORD_SIZE) {
+						hash = mix(hash ^ bits);
+						bits = 0;
+						count = 0;
+					}
+				}
+			}
+			hash = mix(hash ^ bits);
+
+			if (symmetry == 0 || hash < lowest) {
+				lowest = hash;
+			}
+		}
+
+		return lowest;
+	}
+
+	/**
+	 * Scrambles the bits of a word, as the finalizer of SplitMix64 does.
+	 * @param bits
+	 * @return mixed
+	 */
+	private static long mix(long bits) {
+		bits = (bits ^ (bits >>> 30)) * 0xBF58476D1CE4E5B9L;
+		bits = (bits ^ (bits >>> 27)) * 0x94D049BB133111EBL;
+		return bits ^ (bits >>> 31);
+	}
+
+	/**
+	 * Returns the distinct outcomes found so far, most common first.
+	 * @return outcomes
+	 */
+	public ArrayList<Outcome> getCensus() {
+		ArrayList<Outcome> outcomes = new ArrayList<Outcome>(census.values());
+
+		Collections.sort(outcomes, new Comparator<Outcome>() {
+			public int compare(Outcome a, Outcome b) {
+				return a.getSoups() != b.getSoups() ? Long.compare(b.getSoups(), a.getSoups()) : Long.compare(a.getFirstSoup(), b.getFirstSoup());
+			}
+		});
+
+		return outcomes;
+	}
+
+	/**
+	 * Returns the number of soups searched so far.
+	 * @return searched
+	 */
+	public long getSearched() {
+		return searched.get();
+	}
+
+	/**
+	 * Returns the number of soups that did not settle within the maximum number of days.
+	 * @return unsettled
+	 */
+	public long getUnsettled() {
+		return unsettled.get();
+	}
+
+	/**
+	 * Returns the soups exported as presets, each as its preset name and outcome.
+	 * @return exported
+	 */
+	public ArrayList<String> getExported() {
+		synchronized (presetFile) {
+			return new ArrayList<String>(exported);
+		}
+	}
+
+	/**
+	 * Returns the number of soups searched per second over the whole search.
+	 * @return soupsPerSecond
+	 */
+	public double getSoupsPerSecond() {
+		long nanos = elapsed != 0 ? elapsed : System.nanoTime() - startTime;
+		return searched.get() * 1e9 / Math.max(nanos, 1);
+	}
+
+	/**
+	 * Prints the results of the search: the throughput, the most common outcomes, and the soups exported.
+	 */
+	public void report() {
+		ArrayList<Outcome> outcomes = getCensus();
+
+		System.out.println("Rule:            " + rule);
+		System.out.println("Topology:        " + topology);
+		System.out.println("Soups:           " + searched.get() + " of " + soupSize + "x" + soupSize + " at density " + density + " in " + size + "x" + size + " (seed " + seed + ")");
+		System.out.printf("Time:            %.3f s%n", elapsed / 1e9);
+		System.out.printf("Soups/sec:       %.1f on %d threads%n", getSoupsPerSecond(), threads);
+		System.out.println("Outcomes:        " + outcomes.size() + " distinct, " + unsettled.get() + " soups unsettled after " + maxGenerations + " days");
+		System.out.println();
+		System.out.printf("%-28s %10s %7s %10s %14s %10s  %s%n", "Outcome", "Soups", "Share", "Population", "Settled (mean)", "(max)", "First soup");
+
+		for (int i = 0; i < outcomes.size() && i < top; i++) {
+			Outcome outcome = outcomes.get(i);
+
+			System.out.printf("%-28s %10d %6.2f%% %10d %14.1f %10d  %d (seed %d)%n", outcome.describe(), outcome.getSoups(), 100.0 * outcome.getSoups() / Math.max(searched.get(), 1),
+					outcome.getPopulation(), outcome.getMeanSettled(), outcome.getMaxSettled(), outcome.getFirstSoup(), soupSeed(outcome.getFirstSoup()));
+		}
+
+		for (String soup : getExported()) {
+			System.out.println("Exported:        " + soup);
+		}
+	}
+
+	public static void main(String[] args) {
+		SoupSearch search;
+
+		try {
+			search = new SoupSearch(args);
+
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java SoupSearch [--soups N] [--seed N] [--threads N] [--size N] [--soup-size N] [--density D] [--max-generations N] [--long-lived N] [--rule B/S] [--topology dead|torus|klein] [--file PRESETS] [--max-exports N] [--no-export] [--top N]");
+			System.exit(1);
+			return;
+		}
+
+		try {
+			search.search();
+
+		} catch (InterruptedException e) {
+			System.err.println("Search interrupted.");
+			System.exit(1);
+
+		}
+		search.report();
+	}
+
+	/**
+	 * Outcome Class
+	 * A distinct pattern that soups settled into, with how many soups did and how long they took.
+	 */
+	public static class Outcome {
+		private long hash;
+		private long population;
+		private int period;
+		/* Tallied by every thread whose soups reach the outcome, guarded by this */
+		private long soups;
+		private long firstSoup = Long.MAX_VALUE;
+		private long settledTotal;
+		private long settledMax;
+
+		/**
+		 * Initializes an outcome that no soup has reached yet.
+		 * @param hash - canonical hash of the pattern.
+		 * @param population - living Cells in the phase the hash was taken from.
+		 * @param period - 1 for a still life, or for extinction.
+		 */
+		Outcome(long hash, long population, int period) {
+			this.hash = hash;
+			this.population = population;
+			this.period = period;
+		}
+
+		/**
+		 * Counts a soup that reached the outcome.
+		 * @param soup - number of the soup.
+		 * @param settled - day on which it settled.
+		 */
+		synchronized void add(long soup, long settled) {
+			soups++;
+			firstSoup = Math.min(firstSoup, soup);
+			settledTotal += settled;
+			settledMax = Math.max(settledMax, settled);
+		}
+
+		/**
+		 * Returns the canonical hash of the pattern.
+		 * @return hash
+		 */
+		public long getHash() {
+			return hash;
+		}
+
+		/**
+		 * Returns the number of living Cells in the pattern.
+		 * @return population
+		 */
+		public long getPopulation() {
+			return population;
+		}
+
+		/**
+		 * Returns the number of days the pattern takes to repeat itself.
+		 * @return period
+		 */
+		public int getPeriod() {
+			return period;
+		}
+
+		/**
+		 * Returns the number of soups that reached the outcome.
+		 * @return soups
+		 */
+		public synchronized long getSoups() {
+			return soups;
+		}
+
+		/**
+		 * Returns the lowest numbered soup that reached the outcome.
+		 * @return soup
+		 */
+		public synchronized long getFirstSoup() {
+			return firstSoup;
+		}
+
+		/**
+		 * Returns the mean day on which the soups settled.
+		 * @return days
+		 */
+		public synchronized double getMeanSettled() {
+			return soups == 0 ? 0 : (double) settledTotal / soups;
+		}
+
+		/**
+		 * Returns the latest day on which one of the soups settled.
+		 * @return days
+		 */
+		public synchronized long getMaxSettled() {
+			return settledMax;
+		}
+
+		/**
+		 * Describes the outcome, such as "period 3 oscillator of 48".
+		 * @return description
+		 */
+		public String describe() {
+			if (population == 0) {
+				return "extinct";
+
+			} else if (period == 1) {
+				return "still life of " + population;
+
+			} else {
+				return "period " + period + " oscillator of " + population;
+
+			}
+		}
+	}
+}
@@ -0,0 +1,489 @@
+/**
+ * SparseUniverse Class
+ * An unbounded world with no edges, stored as 64x64 tiles of Cells. Only tiles that contain life are kept, found through a primitive long-keyed hash map, and a day only simulates the tiles that changed in the last generation or border one that did.
+ * The cost of a day grows with the amount of activity, not with the area of the world.
+ */
+import java.util.Arrays;
+
+public class SparseUniverse {
+	private static final int TILE_EDGE = 64;	// A tile row is exactly one word
+	private static final int EMPTY_TILE = 0;	// Slot of a tile that is always dead, standing in for tiles that do not exist
+	private LongIntMap tiles;	// Tile position -> slot
+	private long[] tileKeys;	// Slot -> tile position
+	private long[] cells;	// Rows of every tile, slot after slot
+	private long[] nextCells;	// New rows of the tiles being simulated
+	private int[] freeSlots;
+	private int freeCount;
+	private int slotCount;
+	/* Tiles that changed in the last generation, and the tiles to simulate in the next one */
+	private int[] changed;
+	private int changedCount;
+	private int[] candidates;
+	private int candidateCount;
+	private int[] marks;	// Stamp of the last generation that a slot was listed in, so no slot is listed twice
+	/* Positions of the tiles that changed in the last day, and in the day before it, for storing only what changed */
+	private long[] changedKeys;
+	private int changedKeyCount;
+	private long[] previousChangedKeys;
+	private int previousChangedKeyCount;
+	private int stamp;
+	private long generation;
+	private Rule rule = Rule.CONWAY;
+
+	/**
+	 * Initializes an empty universe.
+	 */
+	public SparseUniverse() {
+		tiles = new LongIntMap(EMPTY_TILE);
+		tileKeys = new long[16];
+		cells = new long[16*TILE_EDGE];
+		nextCells = new long[16*TILE_EDGE];
+		freeSlots = new int[16];
+		changed = new int[16];
+		candidates = new int[16];
+		marks = new int[16];
+		changedKeys = new long[16];
+		previousChangedKeys = new long[16];
+		slotCount = 1;	// Slot 0 is the empty tile
+	}
+
+	/**
+	 * Returns the number of generations simulated.
+	 * @return generation
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Sets the rule that the following days are simulated with.
+	 * @param rule
+	 */
+	public void setRule(Rule rule) {
+		this.rule = rule;
+	}
+
+	/**
+	 * Returns the number of tiles currently stored.
+	 * @return tileCount
+	 */
+	public int getTileCount() {
+		return tiles.size();
+	}
+
+	/**
+	 * Returns the number of tiles that changed in the last generation.
+	 * @return activeTileCount
+	 */
+	public int getActiveTileCount() {
+		return changedCount;
+	}
+
+	/**
+	 * Counts the living Cells in the universe.
+	 * @return population
+	 */
+	public long getPopulation() {
+		long population = 0;
+
+		for (int i = TILE_EDGE; i < slotCount*TILE_EDGE; i++) {
+			population += Long.bitCount(cells[i]);
+		}
+
+		return population;
+	}
+
+	/**
+	 * Sets every Cell in the universe to dead.
+	 */
+	public void clear() {
+		tiles.clear();
+		Arrays.fill(cells, 0L);
+		Arrays.fill(nextCells, 0L);
+		slotCount = 1;
+		freeCount = 0;
+		changedCount = 0;
+		changedKeyCount = 0;
+		previousChangedKeyCount = 0;
+		generation = 0;
+	}
+
+	/**
+	 * Returns whether or not the Cell at the given position is alive.
+	 * @param x - column
+	 * @param y - row
+	 * @return alive
+	 */
+	public boolean isAlive(long x, long y) {
+		int slot = tiles.get(key(tileOf(x), tileOf(y)));
+		return (cells[slot*TILE_EDGE + (int) (y & 63)] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Sets the living status of the Cell at the given position.
+	 * @param x - column
+	 * @param y - row
+	 * @param alive
+	 */
+	public void setAlive(long x, long y, boolean alive) {
+		long key = key(tileOf(x), tileOf(y));
+		int slot = tiles.get(key);
+
+		if (slot == EMPTY_TILE) {
+			if (!alive) {
+				return;
+			}
+			slot = createTile(key);
+		}
+
+		int index = slot*TILE_EDGE + (int) (y & 63);
+		if (alive) {
+			cells[index] |= 1L << x;
+
+		} else {
+			cells[index] &= ~(1L << x);
+
+		}
+		markChanged(slot);
+	}
+
+	/**
+	 * Adds the living Cells of a grid to the universe, with the top left Cell of the grid placed at the given position.
+	 * @param grid
+	 * @param x
+	 * @param y
+	 */
+	public void load(Grid grid, long x, long y) {
+		for (int row = 0; row < grid.getHeight(); row++) {
+
+			for (int word = 0; word < grid.getWordsPerRow(); word++) {
+				long bits = grid.getWord(row, word);
+
+				while (bits != 0) {
+					int bit = Long.numberOfTrailingZeros(bits);
+					setAlive(x + word*Grid.WORD_SIZE + bit, y + row, true);
+					bits &= bits - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the part of the universe whose top left Cell is at the given position into a grid.
+	 * @param grid
+	 * @param x
+	 * @param y
+	 */
+	public void store(Grid grid, long x, long y) {
+		long edgeMask = BitGrid.lastWordMask(grid.getWidth());
+
+		for (int row = 0; row < grid.getHeight(); row++) {
+
+			for (int word = 0; word < grid.getWordsPerRow(); word++) {
+				long bits = rowWord(x + word*Grid.WORD_SIZE, y + row);
+
+				if (word == grid.getWordsPerRow() - 1) {
+					bits &= edgeMask;
+				}
+				grid.setWord(row, word, bits);
+
+			}
+		}
+	}
+
+	/**
+	 * Copies into a grid only the tiles of the part of the universe at the given position that changed in the last two days. The grid must hold that part as it was two days ago, untouched since, as the older grid of a window that is swapped with a newer one after every day does.
+	 * @param grid
+	 * @param x
+	 * @param y
+	 */
+	public void storeChanged(Grid grid, long x, long y) {
+		storeTiles(grid, x, y, previousChangedKeys, previousChangedKeyCount);
+		storeTiles(grid, x, y, changedKeys, changedKeyCount);
+	}
+
+	/**
+	 * Copies the words of a grid that overlap the given tiles from the part of the universe at the given position.
+	 * @param grid
+	 * @param x
+	 * @param y
+	 * @param keys - positions of the tiles.
+	 * @param count - number of tiles.
+	 */
+	private void storeTiles(Grid grid, long x, long y, long[] keys, int count) {
+		long edgeMask = BitGrid.lastWordMask(grid.getWidth());
+		int lastWord = grid.getWordsPerRow() - 1;
+
+		for (int i = 0; i < count; i++) {
+			long top = (long) (int) (keys[i] >> 32)*TILE_EDGE - y;	// Position of the tile in the grid
+			long left = (long) (int) keys[i]*TILE_EDGE - x;
+			if (top >= grid.getHeight() || top + TILE_EDGE <= 0 || left >= grid.getWidth() || left + TILE_EDGE <= 0) {
+				continue;	// Outside of the grid
+			}
+
+			int firstRow = (int) Math.max(top, 0);
+			int endRow = (int) Math.min(top + TILE_EDGE, grid.getHeight());
+			int firstWord = (int) Math.max(Math.floorDiv(left, Grid.WORD_SIZE), 0);
+			int endWord = (int) Math.min(Math.floorDiv(left + TILE_EDGE - 1, Grid.WORD_SIZE), lastWord);
+
+			for (int row = firstRow; row < endRow; row++) {
+
+				for (int word = firstWord; word <= endWord; word++) {
+					long bits = rowWord(x + word*Grid.WORD_SIZE, y + row);
+					grid.setWord(row, word, word == lastWord ? bits & edgeMask : bits);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the 64 Cells of a row starting at the given column, which may straddle two tiles.
+	 * @param x - column of the first Cell.
+	 * @param y - row
+	 * @return bits
+	 */
+	private long rowWord(long x, long y) {
+		int tileX = tileOf(x);
+		int tileY = tileOf(y);
+		int row = (int) (y & 63);
+		int shift = (int) (x & 63);
+		long bits = cells[tiles.get(key(tileX, tileY))*TILE_EDGE + row] >>> shift;
+
+		if (shift != 0) {
+			bits |= cells[tiles.get(key(tileX + 1, tileY))*TILE_EDGE + row] << (TILE_EDGE - shift);
+		}
+
+		return bits;
+	}
+
+	/**
+	 * Simulates another day. Only the tiles that changed in the last generation and their neighbors are simulated; every other tile would come out the same.
+	 */
+	public void step() {
+		collectCandidates();
+
+		for (int i = 0; i < candidateCount; i++) {
+			stepTile(candidates[i]);
+		}
+
+		/* Keep the tiles that changed, and forget the ones that died out */
+		changedCount = 0;
+		stamp++;
+		for (int i = 0; i < candidateCount; i++) {
+			int slot = candidates[i];
+			int base = slot*TILE_EDGE;
+			boolean same = true;
+			long any = 0;
+
+			for (int row = 0; row < TILE_EDGE; row++) {
+				same &= cells[base + row] == nextCells[base + row];
+				any |= nextCells[base + row];
+			}
+
+			if (!same) {
+				System.arraycopy(nextCells, base, cells, base, TILE_EDGE);
+				markChanged(slot);
+
+			} else if (any == 0) {
+				removeTile(slot);
+
+			}
+		}
+
+		/* Remember where the changed tiles are, as their slots may be freed and reused before they are stored */
+		long[] keys = previousChangedKeys;
+		previousChangedKeys = changedKeys;
+		previousChangedKeyCount = changedKeyCount;
+		changedKeys = keys.length < changedCount ? new long[changedCount*2] : keys;
+		for (int i = 0; i < changedCount; i++) {
+			changedKeys[i] = tileKeys[changed[i]];
+		}
+		changedKeyCount = changedCount;
+
+		generation++;
+	}
+
+	/**
+	 * Lists the tiles to simulate in the next day: every tile that changed, and every neighbor of one. Missing neighbors are created when living Cells on the shared edge could cause a birth there.
+	 */
+	private void collectCandidates() {
+		candidateCount = 0;
+		stamp++;
+
+		for (int i = 0; i < changedCount; i++) {
+			int slot = changed[i];
+			long key = tileKeys[slot];
+			int tileX = (int) key;
+			int tileY = (int) (key >> 32);
+
+			/* Find which edges of the tile have living Cells on them */
+			int base = slot*TILE_EDGE;
+			long left = 0;
+			long right = 0;
+			for (int row = 0; row < TILE_EDGE; row++) {
+				left |= cells[base + row] & 1;
+				right |= cells[base + row] >>> 63;
+			}
+			long top = cells[base];
+			long bottom = cells[base + TILE_EDGE - 1];
+
+			addCandidate(slot);
+			addNeighbor(tileX - 1, tileY - 1, top & 1);
+			addNeighbor(tileX, tileY - 1, top);
+			addNeighbor(tileX + 1, tileY - 1, top >>> 63);
+			addNeighbor(tileX - 1, tileY, left);
+			addNeighbor(tileX + 1, tileY, right);
+			addNeighbor(tileX - 1, tileY + 1, bottom & 1);
+			addNeighbor(tileX, tileY + 1, bottom);
+			addNeighbor(tileX + 1, tileY + 1, bottom >>> 63);
+		}
+	}
+
+	/**
+	 * Lists a neighbor of a changed tile for simulation, creating it first if it does not exist and the shared edge has life on it.
+	 * @param tileX
+	 * @param tileY
+	 * @param edge - non-zero if the changed tile has living Cells next to the neighbor.
+	 */
+	private void addNeighbor(int tileX, int tileY, long edge) {
+		long key = key(tileX, tileY);
+		int slot = tiles.get(key);
+
+		if (slot == EMPTY_TILE) {
+			if (edge == 0) {
+				return;
+			}
+			slot = createTile(key);
+		}
+
+		addCandidate(slot);
+	}
+
+	/**
+	 * Lists a tile for simulation, unless it is listed already.
+	 * @param slot
+	 */
+	private void addCandidate(int slot) {
+		if (marks[slot] == stamp) {
+			return;
+		}
+
+		marks[slot] = stamp;
+		if (candidateCount == candidates.length) {
+			candidates = Arrays.copyOf(candidates, candidateCount*2);
+		}
+		candidates[candidateCount++] = slot;
+	}
+
+	/**
+	 * Lists a tile as changed in this generation, unless it is listed already.
+	 * @param slot
+	 */
+	private void markChanged(int slot) {
+		if (marks[slot] == -stamp - 1) {
+			return;
+		}
+
+		marks[slot] = -stamp - 1;	// Negative stamps keep the changed list separate from the candidate list
+		if (changedCount == changed.length) {
+			changed = Arrays.copyOf(changed, changedCount*2);
+		}
+		changed[changedCount++] = slot;
+	}
+
+	/**
+	 * Simulates a day for a single tile, writing its new rows into the next cells.
+	 * @param slot
+	 */
+	private void stepTile(int slot) {
+		long key = tileKeys[slot];
+		int tileX = (int) key;
+		int tileY = (int) (key >> 32);
+		int north = tiles.get(key(tileX, tileY - 1))*TILE_EDGE;
+		int south = tiles.get(key(tileX, tileY + 1))*TILE_EDGE;
+		int west = tiles.get(key(tileX - 1, tileY))*TILE_EDGE;
+		int east = tiles.get(key(tileX + 1, tileY))*TILE_EDGE;
+		int northWest = tiles.get(key(tileX - 1, tileY - 1))*TILE_EDGE;
+		int northEast = tiles.get(key(tileX + 1, tileY - 1))*TILE_EDGE;
+		int southWest = tiles.get(key(tileX - 1, tileY + 1))*TILE_EDGE;
+		int southEast = tiles.get(key(tileX + 1, tileY + 1))*TILE_EDGE;
+		int base = slot*TILE_EDGE;
+		int last = TILE_EDGE - 1;
+		boolean conway = rule.isConway();
+
+		for (int row = 0; row < TILE_EDGE; row++) {
+			/* The rows above and below come from the tiles to the north and south at the edges */
+			long abovePrev = row > 0 ? cells[west + row - 1] : cells[northWest + last];
+			long above = row > 0 ? cells[base + row - 1] : cells[north + last];
+			long aboveNext = row > 0 ? cells[east + row - 1] : cells[northEast + last];
+			long belowPrev = row < last ? cells[west + row + 1] : cells[southWest];
+			long below = row < last ? cells[base + row + 1] : cells[south];
+			long belowNext = row < last ? cells[east + row + 1] : cells[southEast];
+
+			nextCells[base + row] = conway
+					? BitSliceEngine.nextWord(abovePrev, above, aboveNext, cells[west + row], cells[base + row], cells[east + row], belowPrev, below, belowNext)
+					: BitSliceEngine.nextWord(rule, abovePrev, above, aboveNext, cells[west + row], cells[base + row], cells[east + row], belowPrev, below, belowNext);
+		}
+	}
+
+	/**
+	 * Adds an empty tile at the given position and returns its slot.
+	 * @param key
+	 * @return slot
+	 */
+	private int createTile(long key) {
+		int slot;
+
+		if (freeCount > 0) {
+			slot = freeSlots[--freeCount];
+
+		} else {
+			if (slotCount == tileKeys.length) {
+				int capacity = slotCount*2;
+				tileKeys = Arrays.copyOf(tileKeys, capacity);
+				cells = Arrays.copyOf(cells, capacity*TILE_EDGE);
+				nextCells = Arrays.copyOf(nextCells, capacity*TILE_EDGE);
+				marks = Arrays.copyOf(marks, capacity);
+			}
+			slot = slotCount++;
+
+		}
+
+		tileKeys[slot] = key;
+		marks[slot] = 0;
+		tiles.put(key, slot);
+		return slot;
+	}
+
+	/**
+	 * Forgets a tile whose Cells are all dead, and frees its slot for reuse.
+	 * @param slot
+	 */
+	private void removeTile(int slot) {
+		tiles.remove(tileKeys[slot]);
+
+		if (freeCount == freeSlots.length) {
+			freeSlots = Arrays.copyOf(freeSlots, freeCount*2);
+		}
+		freeSlots[freeCount++] = slot;
+	}
+
+	/**
+	 * Returns the tile coordinate holding the given Cell coordinate.
+	 * @param coordinate
+	 * @return tile
+	 */
+	private static int tileOf(long coordinate) {
+		return (int) (coordinate >> 6);
+	}
+
+	/**
+	 * Packs the position of a tile into a single key.
+	 * @param tileX
+	 * @param tileY
+	 * @return key
+	 */
+	private static long key(int tileX, int tileY) {
+		return ((long) tileY << 32) | (tileX & 0xffffffffL);
+	}
+}
@@ -0,0 +1,20 @@
+/**
+ * StepEngine Interface
+ * Defines a way of simulating a day of the world. Every engine must produce exactly the same generations; they only differ in how quickly they get there.
+ * The neighbors of the Cells on the edges are read from the halo of the current world, which the Topology fills in before the step. A world whose halo was never filled in has dead edges.
+ */
+public interface StepEngine {
+
+	/**
+	 * Simulates a day of the current world, writing the new generation into the next world. Both worlds must be the same size, and the current world is left untouched.
+	 * @param current - the existing generation.
+	 * @param next - the grid that receives the new generation.
+	 */
+	void step(Grid current, Grid next);
+
+	/**
+	 * Sets the rule that the following days are simulated with. Engines start out with Conway's Life, B3/S23.
+	 * @param rule
+	 */
+	void setRule(Rule rule);
+}
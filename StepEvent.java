@@ -0,0 +1,50 @@
+/**
+ * StepEvent Class
+ * A JDK Flight Recorder event for a single day of a Life world. It is on by default, so a headless run started with -XX:StartFlightRecording records every day.
+ * Until a flight recorder is started in the JVM, no event is created at all: an event created before then is not compiled away, and costs large worlds a good part of their speed.
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("life.Step")
+@Label("Step")
+@Category("Game of Life")
+@Description("A day of the simulation")
+@StackTrace(false)
+class StepEvent extends Event {
+	@Label("Generation")
+	long generation;
+
+	@Label("Population")
+	long population;
+
+	@Label("Births")
+	@Description("Cells born on this day, or -1 if changes are not being tracked")
+	long births;
+
+	@Label("Deaths")
+	@Description("Cells that died on this day, or -1 if changes are not being tracked")
+	long deaths;
+
+	@Label("Engine")
+	String engine;
+
+	/**
+	 * Starts timing a day, if a flight recorder has been started.
+	 * @return event - or null if there is no flight recorder to record it.
+	 */
+	static StepEvent start() {
+		if (!FlightRecorder.isInitialized()) {
+			return null;
+		}
+
+		StepEvent event = new StepEvent();
+		event.begin();
+		return event;
+	}
+}
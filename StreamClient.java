@@ -0,0 +1,289 @@
+/**
+ * StreamClient Class
+ * A thin client for the StreamServer: connects to a streamed run, rebuilds the world from its keyframes and deltas, and reports the day, population and bytes received every second. Useful for watching a headless run from a terminal, and for checking a server on localhost.
+ * With --delay, the client sleeps after every frame, as a viewer on a slow connection would fall behind; the server then skips it ahead to fresh keyframes.
+ * Usage: java StreamClient [--host HOST] [--port N] [--frames N] [--delay MS]
+ */
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.InflaterInputStream;
+
+public class StreamClient {
+	private Socket socket;
+	private DataInputStream in;
+	private BitGrid grid;	// Null until the first keyframe
+	private long generation = -1;
+	private long frames;
+	private long keyframes;
+	private long bytes;
+
+	/**
+	 * Connects to a stream server.
+	 * @param host
+	 * @param port
+	 * @throws IOException if the server cannot be reached.
+	 */
+	public StreamClient(String host, int port) throws IOException {
+		socket = new Socket(host, port);
+		socket.getOutputStream().write("LIFE\n".getBytes(StandardCharsets.US_ASCII));
+		socket.getOutputStream().flush();
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 65536));
+	}
+
+	/**
+	 * Reads the next frame and applies it to the world.
+	 * @return read - false once the server has closed the stream.
+	 * @throws IOException if the connection fails or the frame is damaged.
+	 */
+	public boolean readFrame() throws IOException {
+		int length;
+
+		try {
+			length = in.readInt();
+
+		} catch (EOFException e) {
+			return false;
+
+		}
+
+		byte[] frame = new byte[length];
+		in.readFully(frame);
+		frames++;
+		bytes += length + 4;
+
+		if (frame[0] == 'K') {
+			readKeyframe(frame);
+
+		} else if (frame[0] == 'D') {
+			readDelta(frame);
+
+		} else {
+			throw new IOException("Unknown frame type: " + frame[0]);
+
+		}
+
+		return true;
+	}
+
+	/**
+	 * Replaces the world with a keyframe.
+	 * @param frame
+	 */
+	private void readKeyframe(byte[] frame) throws IOException {
+		DataInputStream header = new DataInputStream(new ByteArrayInputStream(frame, 1, 16));
+		generation = header.readLong();
+		int width = header.readInt();
+		int height = header.readInt();
+		int bytesPerRow = (width + 7) / 8;
+		byte[] row = new byte[bytesPerRow];
+
+		if (grid == null || grid.getWidth() != width || grid.getHeight() != height) {
+			grid = new BitGrid(width, height);
+		}
+
+		try (InputStream cells = new InflaterInputStream(new ByteArrayInputStream(frame, 17, frame.length - 17))) {
+			DataInputStream rows = new DataInputStream(cells);
+
+			for (int r = 0; r < height; r++) {
+				rows.readFully(row);
+
+				for (int word = 0; word < grid.getWordsPerRow(); word++) {
+					long bits = 0;
+
+					for (int i = 0; i < Long.BYTES && word*Long.BYTES + i < bytesPerRow; i++) {
+						bits |= (row[word*Long.BYTES + i] & 0xFFL) << (8*i);
+					}
+					grid.setWord(r, word, bits);
+				}
+			}
+		}
+		keyframes++;
+	}
+
+	/**
+	 * Flips the runs of Cells of a delta.
+	 * @param frame
+	 */
+	private void readDelta(byte[] frame) throws IOException {
+		if (grid == null) {
+			throw new IOException("Delta before the first keyframe");
+		}
+
+		long day = 0;
+		for (int i = 1; i <= 8; i++) {
+			day = day << 8 | (frame[i] & 0xFF);
+		}
+		generation = day;
+
+		int width = grid.getWidth();
+		long cell = 0;
+		int position = 9;
+		while (position < frame.length) {
+			long gap = 0;
+			long length = 0;
+			int shift = 0;
+
+			do {
+				gap |= (frame[position] & 0x7FL) << shift;
+				shift += 7;
+			} while ((frame[position++] & 0x80) != 0);
+			shift = 0;
+			do {
+				length |= (frame[position] & 0x7FL) << shift;
+				shift += 7;
+			} while ((frame[position++] & 0x80) != 0);
+
+			cell += gap;
+			for (long end = cell + length; cell < end; cell++) {
+				int row = (int) (cell / width);
+				int column = (int) (cell % width);
+				grid.setAlive(row, column, !grid.isAlive(row, column));
+			}
+		}
+	}
+
+	/**
+	 * Returns the world as rebuilt from the frames read so far.
+	 * @return grid - or null before the first keyframe.
+	 */
+	public Grid getGrid() {
+		return grid;
+	}
+
+	/**
+	 * Returns the day count of the last frame read.
+	 * @return generation - or -1 before the first keyframe.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Returns the number of frames read.
+	 * @return frames
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Returns the number of keyframes read.
+	 * @return keyframes
+	 */
+	public long getKeyframes() {
+		return keyframes;
+	}
+
+	/**
+	 * Returns the number of bytes read, framing included.
+	 * @return bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Disconnects from the server.
+	 */
+	public void close() {
+		try {
+			socket.close();
+
+		} catch (IOException e) {
+			/* Closed already */
+
+		}
+	}
+
+	public static void main(String[] args) {
+		String host = "localhost";
+		int port = StreamServer.DEFAULT_PORT;
+		long maxFrames = 0;	// 0 to read until the server closes the stream
+		long delay = 0;
+
+		try {
+			for (int i = 0; i < args.length; i += 2) {
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + args[i]);
+				}
+
+				switch (args[i]) {
+
+					case "--host":
+						host = args[i + 1];
+						break;
+
+					case "--port":
+						port = Integer.parseInt(args[i + 1]);
+						break;
+
+					case "--frames":
+						maxFrames = Long.parseLong(args[i + 1]);
+						break;
+
+					case "--delay":
+						delay = Long.parseLong(args[i + 1]);
+						break;
+
+					default:
+						throw new IllegalArgumentException("Unknown option: " + args[i]);
+
+				}
+			}
+
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java StreamClient [--host HOST] [--port N] [--frames N] [--delay MS]");
+			System.exit(1);
+			return;
+		}
+
+		StreamClient client = null;
+		try {
+			client = new StreamClient(host, port);
+			long lastReport = System.nanoTime();
+			long lastFrames = 0;
+			long lastBytes = 0;
+
+			while ((maxFrames == 0 || client.getFrames() < maxFrames) && client.readFrame()) {
+				if (delay > 0) {
+					Thread.sleep(delay);
+				}
+
+				long now = System.nanoTime();
+				if (now - lastReport >= 1000000000L) {
+					long frames = client.getFrames() - lastFrames;
+					System.out.printf("Day %d, population %d, %d frames, %.0f bytes/frame%n", client.getGeneration(), client.getGrid().getPopulation(), frames, (double) (client.getBytes() - lastBytes) / frames);
+					lastReport = now;
+					lastFrames = client.getFrames();
+					lastBytes = client.getBytes();
+				}
+			}
+
+			System.out.println("Day:             " + client.getGeneration());
+			System.out.println("Population:      " + (client.getGrid() != null ? client.getGrid().getPopulation() : 0));
+			System.out.println("Frames:          " + client.getFrames() + " (" + client.getKeyframes() + " keyframes)");
+			System.out.printf("Bytes:           %d (%.1f per frame)%n", client.getBytes(), (double) client.getBytes() / Math.max(client.getFrames(), 1));
+
+		} catch (IOException e) {
+			System.out.println("Error reading stream.");
+			System.err.println("IOException: " + e.getMessage());
+			System.exit(1);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+
+		} finally {
+			if (client != null) {
+				client.close();
+			}
+
+		}
+	}
+}
@@ -0,0 +1,677 @@
+/**
+ * StreamServer Class
+ * Streams the generations of a Life world live to viewers over TCP, so that a run on a headless machine can be watched from a browser, through WebSocket, or from a thin client such as StreamClient.
+ * A viewer first gets a keyframe of the whole world, compressed, and then a delta for every day: the runs of Cells that flipped, taken from the change set, so the bytes sent per day grow with the activity in the world rather than with its size. Each frame is encoded once, by the thread that steps the world, into a ring of the latest frames that every viewer reads from. The world never waits for the viewers: one that falls too far behind skips the frames it missed and carries on from a fresh keyframe, which is only encoded when a viewer asks for one.
+ * Browsers connect with a WebSocket to /stream, and are served the viewer page from viewer.html at /. Other clients send the line LIFE and then read the frames, each preceded by its length as an int.
+ *
+ * Frames (big-endian):
+ *   keyframe: byte 'K', long generation, int width, int height, then the rows of the world, (width + 7)/8 bytes each with column c in bit c%8 of byte c/8, compressed with Deflater
+ *   delta:    byte 'D', long generation, then runs of flipped Cells up to the end of the frame, each as the number of Cells since the end of the last run and the length of the run, in unsigned LEB128, counting Cells row by row
+ */
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+public class StreamServer {
+	public static final int DEFAULT_PORT = 8025;
+	public static final int DEFAULT_MAX_LAG = 32;
+	private static final int SEND_BUFFER = 65536;	// Bytes the socket may hold for a viewer, kept small so that a slow viewer blocks its thread and falls behind rather than piling frames up in the network
+	private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+	private Life life;
+	private ServerSocket server;
+	private File page = new File("viewer.html");
+	private int maxLag = DEFAULT_MAX_LAG;	// Frames a viewer may fall behind before it skips to a keyframe
+	/* The ring of the latest frames, guarded by this */
+	private Frame[] frames = new Frame[2*DEFAULT_MAX_LAG];
+	private long newest = -1;	// Number of the newest frame
+	private boolean keyframeWanted;	// A viewer is waiting for a keyframe
+	private boolean closed;
+	private boolean broken = true;	// The world changed other than by a step since the last frame
+	private byte[] buffer = new byte[4096];	// Scratch space the deltas are encoded in
+	private CopyOnWriteArrayList<Viewer> viewers = new CopyOnWriteArrayList<Viewer>();
+	private AtomicLong framesSent = new AtomicLong();
+	private AtomicLong framesSkipped = new AtomicLong();
+	private AtomicLong bytesSent = new AtomicLong();
+	private AtomicLong keyframes = new AtomicLong();
+	private Thread acceptor;
+
+	/**
+	 * Initializes a server that streams the given world on the given port, and starts accepting viewers. The world must be given the server with Life.setStreamServer.
+	 * @param life
+	 * @param port - 0 for any free port.
+	 * @throws IOException if the port cannot be listened on.
+	 */
+	public StreamServer(Life life, int port) throws IOException {
+		this.life = life;
+		server = new ServerSocket(port);
+
+		acceptor = new Thread(new Runnable() {
+			public void run() {
+				acceptViewers();
+			}
+		}, "Stream server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 * @return port
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Returns the number of frames a viewer may fall behind the world before it skips to a fresh keyframe.
+	 * @return frames
+	 */
+	public synchronized int getMaxLag() {
+		return maxLag;
+	}
+
+	/**
+	 * Sets the number of frames a viewer may fall behind the world before it skips to a fresh keyframe. The ring keeps twice as many frames.
+	 * @param frames - at least 1.
+	 */
+	public synchronized void setMaxLag(int frames) {
+		if (frames < 1) {
+			throw new IllegalArgumentException("Viewers must be allowed to fall at least a frame behind");
+		}
+
+		maxLag = frames;
+		this.frames = new Frame[2*frames];	// Viewers find the frames they wanted gone, and skip to a keyframe
+		notifyAll();
+	}
+
+	/**
+	 * Sets the page served to browsers that ask for /.
+	 * @param page
+	 */
+	public void setViewerPage(File page) {
+		this.page = page;
+	}
+
+	/**
+	 * Returns the number of viewers connected.
+	 * @return viewers
+	 */
+	public int getViewerCount() {
+		return viewers.size();
+	}
+
+	/**
+	 * Returns the number of frames sent, to all viewers together.
+	 * @return frames
+	 */
+	public long getFramesSent() {
+		return framesSent.get();
+	}
+
+	/**
+	 * Returns the number of frames skipped by viewers that fell behind, all viewers together.
+	 * @return frames
+	 */
+	public long getFramesSkipped() {
+		return framesSkipped.get();
+	}
+
+	/**
+	 * Returns the number of bytes of frames sent, to all viewers together.
+	 * @return bytes
+	 */
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * Returns the number of keyframes encoded.
+	 * @return keyframes
+	 */
+	public long getKeyframes() {
+		return keyframes.get();
+	}
+
+	/**
+	 * Notes that the world was changed other than by a step, so that the next frame is a keyframe for every viewer.
+	 */
+	void edited() {
+		broken = true;
+	}
+
+	/**
+	 * Encodes the generation the world has just stepped to as a frame, unless nobody is watching. Called by the world after every day.
+	 */
+	void stepped() {
+		if (viewers.isEmpty()) {
+			broken = true;	// Nobody needs the deltas, and the next viewer starts from a keyframe
+			return;
+		}
+
+		boolean wanted;
+		synchronized (this) {
+			wanted = keyframeWanted;
+			keyframeWanted = false;
+		}
+
+		Frame frame = new Frame(life.getGeneration());
+		if (!broken) {
+			frame.delta = encodeDelta(life.getChanges(), life.getWidth(), frame.generation);
+		}
+		if (broken || wanted) {
+			frame.keyframe = encodeKeyframe(life.getWorld(), frame.generation);
+			keyframes.incrementAndGet();
+		}
+		broken = false;
+		publish(frame);
+	}
+
+	/**
+	 * Adds a frame to the ring as the newest, and wakes the viewers waiting for it.
+	 * @param frame
+	 */
+	private synchronized void publish(Frame frame) {
+		newest++;
+		frame.number = newest;
+		frames[(int) (newest % frames.length)] = frame;
+		notifyAll();
+	}
+
+	/**
+	 * Encodes the Cells flipped by a day as runs, row by row across the whole world.
+	 * @param changes
+	 * @param width - number of columns in the world.
+	 * @param generation
+	 * @return frame
+	 */
+	private byte[] encodeDelta(ChangeSet changes, int width, long generation) {
+		int position = 0;
+		long end = 0;	// Cell just past the last run written
+		long runStart = -1;	// First Cell of the run being gathered, or -1
+		long runEnd = 0;
+
+		buffer[position++] = 'D';
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buffer[position++] = (byte) (generation >>> shift);
+		}
+
+		for (int i = 0; i < changes.size(); i++) {
+			long base = (long) changes.getRow(i)*width + (long) changes.getWord(i)*Grid.WORD_SIZE;
+			long flips = changes.getFlips(i);
+
+			while (flips != 0) {
+				int bit = Long.numberOfTrailingZeros(flips);
+				int length = Long.numberOfTrailingZeros(~(flips >>> bit));	// Flipped bits in a row from there
+				long start = base + bit;
+
+				if (start == runEnd && runStart >= 0) {	// Carries on from the last run, across words and rows
+					runEnd += length;
+
+				} else {
+					if (runStart >= 0) {
+						position = writeRun(position, runStart - end, runEnd - runStart);
+						end = runEnd;
+					}
+					runStart = start;
+					runEnd = start + length;
+
+				}
+				flips = length == Grid.WORD_SIZE ? 0 : flips & ~(((1L << length) - 1) << bit);
+			}
+		}
+		if (runStart >= 0) {
+			position = writeRun(position, runStart - end, runEnd - runStart);
+		}
+
+		return Arrays.copyOf(buffer, position);
+	}
+
+	/**
+	 * Writes a run into the scratch buffer, growing it as needed.
+	 * @param position - where to write it.
+	 * @param gap - Cells since the end of the last run.
+	 * @param length - Cells in the run.
+	 * @return position - just past the run.
+	 */
+	private int writeRun(int position, long gap, long length) {
+		if (position + 20 > buffer.length) {	// Two numbers of at most 10 bytes each
+			buffer = Arrays.copyOf(buffer, buffer.length*2);
+		}
+
+		position = writeNumber(position, gap);
+		return writeNumber(position, length);
+	}
+
+	/**
+	 * Writes a number into the scratch buffer, 7 bits to a byte, lowest first, with the top bit set on every byte but the last.
+	 * @param position
+	 * @param value
+	 * @return position - just past the number.
+	 */
+	private int writeNumber(int position, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer[position++] = (byte) (value | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+
+		return position;
+	}
+
+	/**
+	 * Encodes the whole world as a compressed keyframe.
+	 * @param grid
+	 * @param generation
+	 * @return frame
+	 */
+	private static byte[] encodeKeyframe(Grid grid, long generation) {
+		int width = grid.getWidth();
+		int bytesPerRow = (width + 7) / 8;
+		byte[] row = new byte[grid.getWordsPerRow()*Long.BYTES];
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte('K');
+			out.writeLong(generation);
+			out.writeInt(width);
+			out.writeInt(grid.getHeight());
+
+			DeflaterOutputStream compressed = new DeflaterOutputStream(out, deflater, 65536);
+			for (int r = 0; r < grid.getHeight(); r++) {
+
+				for (int word = 0; word < grid.getWordsPerRow(); word++) {
+					long bits = grid.getWord(r, word);
+
+					for (int i = 0; i < Long.BYTES; i++) {
+						row[word*Long.BYTES + i] = (byte) (bits >>> (8*i));	// Lowest columns first
+					}
+				}
+				compressed.write(row, 0, bytesPerRow);
+			}
+			compressed.finish();
+
+		} catch (IOException e) {
+			throw new IllegalStateException(e);	// Not thrown by a ByteArrayOutputStream
+
+		} finally {
+			deflater.end();	// A Deflater handed to a DeflaterOutputStream is not ended by it, and holds native memory until it is
+
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Accepts viewers until the server is closed, giving each its own thread.
+	 */
+	private void acceptViewers() {
+		int count = 0;
+
+		while (true) {
+			Socket socket;
+
+			try {
+				socket = server.accept();
+
+			} catch (IOException e) {
+				return;	// Closed
+
+			}
+
+			final Viewer viewer = new Viewer(socket);
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					viewer.serve();
+				}
+			}, "Stream viewer " + ++count);
+			thread.setDaemon(true);
+			viewer.thread = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Waits for the next frame a viewer should be sent: the delta it needs next, or a keyframe if it has none yet or fell too far behind.
+	 * @param viewer
+	 * @return frame - or null once the server is closed and the viewer has caught up.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	private synchronized Frame nextFrame(Viewer viewer) throws InterruptedException {
+		while (true) {
+			if (viewer.next >= 0 && viewer.next <= newest) {
+				Frame frame = frames[(int) (viewer.next % frames.length)];
+
+				if (newest - viewer.next < maxLag && frame != null && frame.number == viewer.next && frame.delta != null) {
+					viewer.next++;
+					return frame;
+				}
+
+				/* Fell behind, or the world was edited: skip to a keyframe from here on */
+				viewer.skippedFrom = viewer.next;
+				viewer.keyframeFrom = frame != null && frame.number == viewer.next && frame.delta == null ? viewer.next : newest;	// A keyframe of the newest frame, such as the last one before closing, is as fresh as any to come
+				viewer.next = -1;
+			}
+
+			if (viewer.next < 0) {
+				/* Take the newest keyframe that is recent enough, or ask for one with the next frame */
+				for (long number = newest; number >= Math.max(Math.max(viewer.keyframeFrom, newest - frames.length + 1), 0); number--) {
+					Frame frame = frames[(int) (number % frames.length)];
+
+					if (frame != null && frame.number == number && frame.keyframe != null) {
+						if (viewer.skippedFrom >= 0) {
+							framesSkipped.addAndGet(number - viewer.skippedFrom);
+							viewer.skippedFrom = -1;
+						}
+						viewer.next = number + 1;
+						viewer.keyframe = true;
+						return frame;
+					}
+				}
+				keyframeWanted = true;
+			}
+
+			if (closed) {
+				return null;
+			}
+			wait();
+		}
+	}
+
+	/**
+	 * Stops accepting viewers, lets those connected catch up with the last generation for up to a second, then disconnects them. The last generation is sent again as a final frame with a keyframe, so that viewers too far behind for the deltas still end on it. Called by the thread that steps the world, once it has stopped stepping.
+	 */
+	public void close() {
+		if (!viewers.isEmpty()) {
+			Frame frame = new Frame(life.getGeneration());
+
+			if (!broken) {
+				frame.delta = new byte[9];	// No Cells flipped, for the viewers that are up to date
+				frame.delta[0] = 'D';
+				for (int i = 1; i <= 8; i++) {
+					frame.delta[i] = (byte) (frame.generation >>> (64 - 8*i));
+				}
+			}
+			frame.keyframe = encodeKeyframe(life.getWorld(), frame.generation);
+			keyframes.incrementAndGet();
+			publish(frame);
+		}
+
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+
+		try {
+			server.close();
+
+		} catch (IOException e) {
+			/* Closing anyway */
+
+		}
+
+		long deadline = System.currentTimeMillis() + 1000;
+		for (Viewer viewer : viewers) {
+			try {
+				viewer.thread.join(Math.max(deadline - System.currentTimeMillis(), 1));
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+
+			}
+		}
+		for (Viewer viewer : viewers) {
+			viewer.disconnect();
+		}
+	}
+
+	/**
+	 * Returns the Sec-WebSocket-Accept answer to a WebSocket key.
+	 * @param key
+	 * @return accept
+	 */
+	private static String acceptKey(String key) {
+		try {
+			MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+			return Base64.getEncoder().encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);	// Every JDK has SHA-1
+
+		}
+	}
+
+	/**
+	 * Frame Class
+	 * A generation of the world as encoded for the viewers: the delta from the generation before it, and a keyframe if one was needed.
+	 */
+	private static class Frame {
+		private long number;	// Counts the frames encoded
+		private long generation;
+		private byte[] delta;	// Null if the world was edited since the frame before
+		private byte[] keyframe;	// Null unless a viewer needed one
+
+		Frame(long generation) {
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * Viewer Class
+	 * A connection to a viewer, with the thread that sends it frames.
+	 */
+	private class Viewer {
+		private Socket socket;
+		private OutputStream out;
+		private Thread thread;
+		private boolean webSocket;
+		private long next = -1;	// Number of the frame whose delta is sent next, or -1 if a keyframe is needed first
+		private long keyframeFrom;	// Number of the oldest frame whose keyframe will do
+		private long skippedFrom = -1;	// Number of the first frame skipped while waiting for a keyframe, or -1
+		private boolean keyframe;	// The frame just taken is to be sent as its keyframe
+
+		Viewer(Socket socket) {
+			this.socket = socket;
+		}
+
+		/**
+		 * Reads the request of the viewer, then streams frames to it until it disconnects or the server is closed.
+		 */
+		void serve() {
+			try {
+				socket.setSoTimeout(5000);	// Only while reading the request
+				socket.setSendBufferSize(SEND_BUFFER);
+				socket.setTcpNoDelay(true);
+				String request = readRequest(socket.getInputStream());
+				socket.setSoTimeout(0);
+				out = new BufferedOutputStream(socket.getOutputStream(), 65536);
+
+				if (request.startsWith("LIFE")) {
+					stream();
+
+				} else if (request.startsWith("GET ")) {
+					String key = header(request, "Sec-WebSocket-Key");
+
+					if (key != null) {
+						out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+						webSocket = true;
+						stream();
+
+					} else {
+						servePage(request);
+
+					}
+				}
+
+			} catch (IOException e) {
+				/* The viewer went away */
+
+			} catch (InterruptedException e) {
+				/* Closing */
+
+			}
+
+			viewers.remove(this);
+			disconnect();
+		}
+
+		/**
+		 * Sends frames as they come, flushing whenever it has caught up with the world.
+		 */
+		private void stream() throws IOException, InterruptedException {
+			synchronized (StreamServer.this) {
+				keyframeFrom = newest;
+			}
+			viewers.add(this);
+
+			while (true) {
+				Frame frame = nextFrame(this);
+				if (frame == null) {
+					out.flush();
+					return;
+				}
+
+				send(keyframe ? frame.keyframe : frame.delta);
+				keyframe = false;
+
+				boolean caughtUp;
+				synchronized (StreamServer.this) {
+					caughtUp = next > newest || closed;
+				}
+				if (caughtUp) {
+					out.flush();
+				}
+			}
+		}
+
+		/**
+		 * Writes a frame, as a binary WebSocket message or preceded by its length.
+		 * @param message
+		 */
+		private void send(byte[] message) throws IOException {
+			if (webSocket) {
+				out.write(0x82);	// Final fragment of a binary message
+				if (message.length < 126) {
+					out.write(message.length);
+
+				} else if (message.length < 65536) {
+					out.write(126);
+					out.write(message.length >>> 8);
+					out.write(message.length);
+
+				} else {
+					out.write(127);
+					for (int shift = 56; shift >= 0; shift -= 8) {
+						out.write((int) ((long) message.length >>> shift));
+					}
+
+				}
+
+			} else {
+				for (int shift = 24; shift >= 0; shift -= 8) {
+					out.write(message.length >>> shift);
+				}
+
+			}
+
+			out.write(message);
+			framesSent.incrementAndGet();
+			bytesSent.addAndGet(message.length);
+		}
+
+		/**
+		 * Answers a plain HTTP request with the viewer page, or not found.
+		 * @param request
+		 */
+		private void servePage(String request) throws IOException {
+			String path = request.split(" ")[1];
+
+			if ((path.equals("/") || path.equals("/index.html")) && page.isFile()) {
+				byte[] body = Files.readAllBytes(page.toPath());
+				out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/html; charset=utf-8\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+				out.write(body);
+
+			} else {
+				out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+			}
+			out.flush();
+		}
+
+		/**
+		 * Closes the connection, which also stops the thread if it is blocked writing.
+		 */
+		void disconnect() {
+			try {
+				socket.close();
+
+			} catch (IOException e) {
+				/* Closed already */
+
+			}
+		}
+	}
+
+	/**
+	 * Reads a request: the line LIFE, or the lines of an HTTP request up to the blank line ending its headers.
+	 * @param in
+	 * @return request
+	 * @throws IOException if the connection fails or the request is too long.
+	 */
+	private static String readRequest(InputStream in) throws IOException {
+		StringBuilder request = new StringBuilder();
+
+		while (request.length() < 8192) {
+			int c = in.read();
+			if (c < 0) {
+				throw new IOException("Connection closed during the request");
+			}
+			request.append((char) c);
+
+			if (c == '\n') {
+				String text = request.toString();
+
+				if (text.equals("LIFE\n") || text.equals("LIFE\r\n") || text.endsWith("\r\n\r\n")) {
+					return text;
+				}
+			}
+		}
+
+		throw new IOException("Request too long");
+	}
+
+	/**
+	 * Returns the value of a header of an HTTP request, ignoring the case of its name.
+	 * @param request
+	 * @param name
+	 * @return value - or null if there is no such header.
+	 */
+	private static String header(String request, String name) {
+		for (String line : request.split("\r\n")) {
+			int colon = line.indexOf(':');
+
+			if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(name)) {
+				return line.substring(colon + 1).trim();
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * Topology Enum
+ * Decides what lies beyond the edges of a bounded world: dead Cells, the opposite edge (a torus), or the opposite edge on the left and right but the mirrored opposite edge at the top and bottom (a Klein bottle).
+ * The Cells beyond the edges are copied into the halo of the world once per generation, before the step, so that the engines read the neighbors of edge Cells like any others, with no bounds checks or wrapping in their loops.
+ * When the width of the world is not a multiple of 64, the column beyond the right edge lies in the unused bits of the last word of each row. That ghost column is only there for the step, and is cleared again by clearGhosts.
+ */
+public enum Topology {
+	DEAD("Dead edge"),
+	TORUS("Torus"),
+	KLEIN_BOTTLE("Klein bottle");
+
+	private String name;
+
+	/**
+	 * Initializes a topology with the name shown in the UI.
+	 * @param name
+	 */
+	Topology(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the topology of the given name, as shown in the UI or given on the command line: "dead", "torus" or "klein" will do.
+	 * @param name
+	 * @return topology
+	 * @throws IllegalArgumentException if there is no such topology.
+	 */
+	public static Topology parse(String name) {
+		String lower = name.trim().toLowerCase();
+
+		for (Topology topology : values()) {
+
+			if (topology.name.toLowerCase().equals(lower) || topology.name().toLowerCase().equals(lower) || topology.name.toLowerCase().startsWith(lower + " ")) {
+				return topology;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown topology: " + name);
+	}
+
+	/**
+	 * Fills in the halo of the world with the Cells beyond its edges, ready for a step.
+	 * @param grid
+	 */
+	public void refreshHalo(Grid grid) {
+		int height = grid.getHeight();
+		int wordsPerRow = grid.getWordsPerRow();
+		int used = grid.getWidth() % Grid.WORD_SIZE;	// Bits of the last word inside the world, or 0 if all of them are
+		int lastBit = (grid.getWidth() - 1) % Grid.WORD_SIZE;
+
+		if (this == DEAD) {
+			for (int word = -1; word <= wordsPerRow; word++) {
+				grid.setWord(-1, word, 0);
+				grid.setWord(height, word, 0);
+			}
+			for (int row = 0; row < height; row++) {
+				grid.setWord(row, -1, 0);
+				grid.setWord(row, wordsPerRow, 0);
+			}
+			return;
+		}
+
+		/* Halo rows: the opposite edge, mirrored on a Klein bottle */
+		for (int word = 0; word < wordsPerRow; word++) {
+
+			if (this == TORUS) {
+				grid.setWord(-1, word, grid.getWord(height - 1, word));
+				grid.setWord(height, word, grid.getWord(0, word));
+
+			} else {
+				grid.setWord(-1, word, mirroredWord(grid, height - 1, word));
+				grid.setWord(height, word, mirroredWord(grid, 0, word));
+
+			}
+		}
+
+		/* Halo columns, for the halo rows as well so that the corners are filled in: the last column to the left, and the first column to the right */
+		for (int row = -1; row <= height; row++) {
+			long first = grid.getWord(row, 0) & 1;
+			long last = (grid.getWord(row, wordsPerRow - 1) >>> lastBit) & 1;
+
+			grid.setWord(row, -1, last << 63);
+			if (used == 0) {
+				grid.setWord(row, wordsPerRow, first);
+
+			} else {
+				grid.setWord(row, wordsPerRow, 0);
+				grid.setWord(row, wordsPerRow - 1, grid.getWord(row, wordsPerRow - 1) | first << used);	// Ghost column
+
+			}
+		}
+	}
+
+	/**
+	 * Clears the ghost column from the unused bits past the right edge of the world, after a step. The halo rows may keep theirs.
+	 * @param grid
+	 */
+	public void clearGhosts(Grid grid) {
+		if (this == DEAD || grid.getWidth() % Grid.WORD_SIZE == 0) {
+			return;
+		}
+
+		int lastWord = grid.getWordsPerRow() - 1;
+		long edgeMask = BitGrid.lastWordMask(grid.getWidth());
+
+		for (int row = 0; row < grid.getHeight(); row++) {
+			grid.setWord(row, lastWord, grid.getWord(row, lastWord) & edgeMask);
+		}
+	}
+
+	/**
+	 * Returns a word of a row mirrored from left to right, so that column c holds what was in column width - 1 - c.
+	 * @param grid
+	 * @param row
+	 * @param word
+	 * @return bits
+	 */
+	private static long mirroredWord(Grid grid, int row, int word) {
+		int wordsPerRow = grid.getWordsPerRow();
+		int pad = wordsPerRow*Grid.WORD_SIZE - grid.getWidth();	// Unused bits at the end of the row
+
+		/* Reversing the whole row puts the unused bits first, so shift them back out */
+		long low = Long.reverse(grid.getWord(row, wordsPerRow - 1 - word));
+		if (pad == 0) {
+			return low;
+		}
+		long high = word + 1 < wordsPerRow ? Long.reverse(grid.getWord(row, wordsPerRow - 2 - word)) : 0;
+
+		return (low >>> pad) | (high << (Grid.WORD_SIZE - pad));
+	}
+
+	/**
+	 * Returns the name of the topology, as shown in the UI.
+	 * @return name
+	 */
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * VectorEngine Class
+ * Simulates a day on several words of 64 Cells at a time, using the SIMD instructions of the processor through the JDK Vector API: 4 words per instruction with AVX2, 8 with AVX-512. The adder network is the same as the bit-sliced engine's, run on whole vectors of words, and the neighbor words on either side are read as vectors one word to the left and right, which the halo keeps inside the array.
+ * The Vector API is an incubator module, so it is only there when the JVM is started with --add-modules jdk.incubator.vector. Without it, or on a processor with no vector registers, or on a grid other than a BitGrid, the engine quietly falls back to the bit-sliced engine, which gives the same generations.
+ */
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorEngine implements StepEngine {
+	private static final int LANES = findLanes();	// Words per vector, or 1 if the Vector API cannot be used
+	private BitSliceEngine scalar = new BitSliceEngine();	// For the words past the last whole vector, and the fallback
+	private Rule rule = Rule.CONWAY;
+	private long[] masks = Rule.CONWAY.getMasks();
+
+	/**
+	 * Returns whether days are simulated on vectors, rather than falling back to the bit-sliced engine.
+	 * @return supported
+	 */
+	public static boolean isSupported() {
+		return LANES > 1;
+	}
+
+	/**
+	 * Returns the number of words simulated per instruction.
+	 * @return lanes - 1 if the engine falls back to the bit-sliced engine.
+	 */
+	public static int getLanes() {
+		return LANES;
+	}
+
+	/**
+	 * Returns the number of words in the preferred vectors of the processor, or 1 if the Vector API is not there.
+	 * @return lanes
+	 */
+	private static int findLanes() {
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			return 1;
+		}
+
+		try {
+			return Kernel.SPECIES.length();
+
+		} catch (LinkageError e) {
+			return 1;
+
+		}
+	}
+
+	public void setRule(Rule rule) {
+		this.rule = rule;
+		masks = rule.getMasks();
+		scalar.setRule(rule);
+	}
+
+	public void step(Grid current, Grid next) {
+		stepRows(current, next, 0, current.getHeight());
+	}
+
+	/**
+	 * Simulates a day for a band of rows only. Rows outside of the band are read but never written, so separate bands may be simulated at the same time.
+	 * @param current - the existing generation.
+	 * @param next - the grid that receives the new generation.
+	 * @param fromRow - first row of the band.
+	 * @param toRow - row just past the end of the band.
+	 */
+	public void stepRows(Grid current, Grid next, int fromRow, int toRow) {
+		if (LANES > 1 && current instanceof BitGrid && next instanceof BitGrid) {
+			Kernel.stepRows((BitGrid) current, (BitGrid) next, fromRow, toRow, rule.isConway() ? null : masks, rule);
+
+		} else {
+			scalar.stepRows(current, next, fromRow, toRow);
+
+		}
+	}
+
+	/**
+	 * Kernel Class
+	 * The vector code itself, kept apart so that it is only loaded once the Vector API is known to be there.
+	 * The adder network is written out inside the loops rather than called, as the JIT only turns vector operations into single instructions once everything around them is inlined, and a method of this size is not inlined by default.
+	 */
+	private static class Kernel {
+		private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+		/**
+		 * Simulates a day for a band of rows, a vector of words at a time, and finishes each row with the bit-sliced kernel.
+		 * @param masks - the masks of the rule, or null for Conway's Life.
+		 * @param rule - the rule, for the words past the last whole vector.
+		 */
+		static void stepRows(BitGrid current, BitGrid next, int fromRow, int toRow, long[] masks, Rule rule) {
+			long[] in = current.getArray();
+			long[] out = next.getArray();
+			int wordsPerRow = current.getWordsPerRow();
+			int vectorEnd = SPECIES.loopBound(wordsPerRow);
+			long edgeMask = BitGrid.lastWordMask(current.getWidth());
+
+			for (int row = fromRow; row < toRow; row++) {
+				int above = current.index(row - 1, 0);
+				int middle = current.index(row, 0);
+				int below = current.index(row + 1, 0);
+
+				if (masks == null) {
+					conwayRow(in, out, above, middle, below, vectorEnd);
+
+				} else {
+					ruleRow(in, out, above, middle, below, vectorEnd, masks);
+
+				}
+
+				/* The words past the last whole vector, one at a time */
+				for (int word = vectorEnd; word < wordsPerRow; word++) {
+					out[middle + word] = masks == null
+							? BitSliceEngine.nextWord(in[above + word - 1], in[above + word], in[above + word + 1], in[middle + word - 1], in[middle + word], in[middle + word + 1], in[below + word - 1], in[below + word], in[below + word + 1])
+							: BitSliceEngine.nextWord(rule, in[above + word - 1], in[above + word], in[above + word + 1], in[middle + word - 1], in[middle + word], in[middle + word + 1], in[below + word - 1], in[below + word], in[below + word + 1]);
+				}
+
+				out[middle + wordsPerRow - 1] &= edgeMask;	// Keep the bits past the right edge of the world dead
+			}
+		}
+
+		/**
+		 * Simulates a day for the whole vectors of a row under Conway's Life, with the adder network of BitSliceEngine.nextWord.
+		 * @param in - words of the current generation.
+		 * @param out - words of the new generation.
+		 * @param above - index of the first word of the row above.
+		 * @param middle - index of the first word of the row.
+		 * @param below - index of the first word of the row below.
+		 * @param vectorEnd - number of words in the whole vectors.
+		 */
+		private static void conwayRow(long[] in, long[] out, int above, int middle, int below, int vectorEnd) {
+			for (int word = 0; word < vectorEnd; word += SPECIES.length()) {
+				LongVector aboveWords = LongVector.fromArray(SPECIES, in, above + word);
+				LongVector current = LongVector.fromArray(SPECIES, in, middle + word);
+				LongVector belowWords = LongVector.fromArray(SPECIES, in, below + word);
+
+				/* Line up the west and east neighbors of every Cell with the Cell itself, reading the words on either side as vectors one word over */
+				LongVector aboveWest = aboveWords.lanewise(VectorOperators.LSHL, 1).or(LongVector.fromArray(SPECIES, in, above + word - 1).lanewise(VectorOperators.LSHR, 63));
+				LongVector aboveEast = aboveWords.lanewise(VectorOperators.LSHR, 1).or(LongVector.fromArray(SPECIES, in, above + word + 1).lanewise(VectorOperators.LSHL, 63));
+				LongVector west = current.lanewise(VectorOperators.LSHL, 1).or(LongVector.fromArray(SPECIES, in, middle + word - 1).lanewise(VectorOperators.LSHR, 63));
+				LongVector east = current.lanewise(VectorOperators.LSHR, 1).or(LongVector.fromArray(SPECIES, in, middle + word + 1).lanewise(VectorOperators.LSHL, 63));
+				LongVector belowWest = belowWords.lanewise(VectorOperators.LSHL, 1).or(LongVector.fromArray(SPECIES, in, below + word - 1).lanewise(VectorOperators.LSHR, 63));
+				LongVector belowEast = belowWords.lanewise(VectorOperators.LSHR, 1).or(LongVector.fromArray(SPECIES, in, below + word + 1).lanewise(VectorOperators.LSHL, 63));
+
+				/* Add up each row of neighbors: full adders above and below, a half adder beside */
+				LongVector aboveHalf = aboveWest.lanewise(VectorOperators.XOR, aboveWords);
+				LongVector aboveOnes = aboveHalf.lanewise(VectorOperators.XOR, aboveEast);
+				LongVector aboveTwos = aboveWest.and(aboveWords).or(aboveHalf.and(aboveEast));
+				LongVector middleOnes = west.lanewise(VectorOperators.XOR, east);
+				LongVector middleTwos = west.and(east);
+				LongVector belowHalf = belowWest.lanewise(VectorOperators.XOR, belowWords);
+				LongVector belowOnes = belowHalf.lanewise(VectorOperators.XOR, belowEast);
+				LongVector belowTwos = belowWest.and(belowWords).or(belowHalf.and(belowEast));
+
+				/* Add the three rows together. A count of 8 wraps to 0, which is dead either way */
+				LongVector onesHalf = aboveOnes.lanewise(VectorOperators.XOR, middleOnes);
+				LongVector ones = onesHalf.lanewise(VectorOperators.XOR, belowOnes);
+				LongVector onesCarry = aboveOnes.and(middleOnes).or(onesHalf.and(belowOnes));
+				LongVector twosHalf = aboveTwos.lanewise(VectorOperators.XOR, middleTwos);
+				LongVector twosSum = twosHalf.lanewise(VectorOperators.XOR, belowTwos);
+				LongVector twosCarry = aboveTwos.and(middleTwos).or(twosHalf.and(belowTwos));
+				LongVector twos = twosSum.lanewise(VectorOperators.XOR, onesCarry);
+				LongVector fours = twosCarry.lanewise(VectorOperators.XOR, twosSum.and(onesCarry));
+
+				/* Alive with 2 or 3 neighbors, or dead with exactly 3 */
+				twos.lanewise(VectorOperators.AND_NOT, fours).and(ones.or(current)).intoArray(out, middle + word);
+			}
+		}
+
+		/**
+		 * Simulates a day for the whole vectors of a row under any rule. The count is carried on into the eights, and looked up in the masks of the rule as Rule.apply does.
+		 * @param in - words of the current generation.
+		 * @param out - words of the new generation.
+		 * @param above - index of the first word of the row above.
+		 * @param middle - index of the first word of the row.
+		 * @param below - index of the first word of the row below.
+		 * @param vectorEnd - number of words in the whole vectors.
+		 * @param masks - the masks of the rule.
+		 */
+		private static void ruleRow(long[] in, long[] out, int above, int middle, int below, int vectorEnd, long[] masks) {
+			for (int word = 0; word < vectorEnd; word += SPECIES.length()) {
+				LongVector aboveWords = LongVector.fromArray(SPECIES, in, above + word);
+				LongVector current = LongVector.fromArray(SPECIES, in, middle + word);
+				LongVector belowWords = LongVector.fromArray(SPECIES, in, below + word);
+
+				LongVector aboveWest = aboveWords.lanewise(VectorOperators.LSHL, 1).or(LongVector.fromArray(SPECIES, in, above + word - 1).lanewise(VectorOperators.LSHR, 63));
+				LongVector aboveEast = aboveWords.lanewise(VectorOperators.LSHR, 1).or(LongVector.fromArray(SPECIES, in, above + word + 1).lanewise(VectorOperators.LSHL, 63));
+				LongVector west = current.lanewise(VectorOperators.LSHL, 1).or(LongVector.fromArray(SPECIES, in, middle + word - 1).lanewise(VectorOperators.LSHR, 63));
+				LongVector east = current.lanewise(VectorOperators.LSHR, 1).or(LongVector.fromArray(SPECIES, in, middle + word + 1).lanewise(VectorOperators.LSHL, 63));
+				LongVector belowWest = belowWords.lanewise(VectorOperators.LSHL, 1).or(LongVector.fromArray(SPECIES, in, below + word - 1).lanewise(VectorOperators.LSHR, 63));
+				LongVector belowEast = belowWords.lanewise(VectorOperators.LSHR, 1).or(LongVector.fromArray(SPECIES, in, below + word + 1).lanewise(VectorOperators.LSHL, 63));
+
+				LongVector aboveHalf = aboveWest.lanewise(VectorOperators.XOR, aboveWords);
+				LongVector aboveOnes = aboveHalf.lanewise(VectorOperators.XOR, aboveEast);
+				LongVector aboveTwos = aboveWest.and(aboveWords).or(aboveHalf.and(aboveEast));
+				LongVector middleOnes = west.lanewise(VectorOperators.XOR, east);
+				LongVector middleTwos = west.and(east);
+				LongVector belowHalf = belowWest.lanewise(VectorOperators.XOR, belowWords);
+				LongVector belowOnes = belowHalf.lanewise(VectorOperators.XOR, belowEast);
+				LongVector belowTwos = belowWest.and(belowWords).or(belowHalf.and(belowEast));
+
+				LongVector onesHalf = aboveOnes.lanewise(VectorOperators.XOR, middleOnes);
+				LongVector ones = onesHalf.lanewise(VectorOperators.XOR, belowOnes);
+				LongVector onesCarry = aboveOnes.and(middleOnes).or(onesHalf.and(belowOnes));
+				LongVector twosHalf = aboveTwos.lanewise(VectorOperators.XOR, middleTwos);
+				LongVector twosSum = twosHalf.lanewise(VectorOperators.XOR, belowTwos);
+				LongVector twosCarry = aboveTwos.and(middleTwos).or(twosHalf.and(belowTwos));
+				LongVector twos = twosSum.lanewise(VectorOperators.XOR, onesCarry);
+				LongVector fours = twosCarry.lanewise(VectorOperators.XOR, twosSum.and(onesCarry));
+				LongVector eights = twosCarry.and(twosSum).and(onesCarry);
+
+				/* Select on the ones, then the twos, then the fours, then the eights, for birth and survival alike */
+				LongVector birth01 = ones.and(masks[1]).lanewise(VectorOperators.XOR, masks[0]);
+				LongVector birth23 = ones.and(masks[3]).lanewise(VectorOperators.XOR, masks[2]);
+				LongVector birth45 = ones.and(masks[5]).lanewise(VectorOperators.XOR, masks[4]);
+				LongVector birth67 = ones.and(masks[7]).lanewise(VectorOperators.XOR, masks[6]);
+				LongVector birth03 = birth01.lanewise(VectorOperators.XOR, birth01.lanewise(VectorOperators.XOR, birth23).and(twos));
+				LongVector birth47 = birth45.lanewise(VectorOperators.XOR, birth45.lanewise(VectorOperators.XOR, birth67).and(twos));
+				LongVector born = birth03.lanewise(VectorOperators.XOR, birth03.lanewise(VectorOperators.XOR, birth47).and(fours));
+				born = born.lanewise(VectorOperators.XOR, born.lanewise(VectorOperators.XOR, masks[8]).and(eights));
+
+				LongVector survive01 = ones.and(masks[10]).lanewise(VectorOperators.XOR, masks[9]);
+				LongVector survive23 = ones.and(masks[12]).lanewise(VectorOperators.XOR, masks[11]);
+				LongVector survive45 = ones.and(masks[14]).lanewise(VectorOperators.XOR, masks[13]);
+				LongVector survive67 = ones.and(masks[16]).lanewise(VectorOperators.XOR, masks[15]);
+				LongVector survive03 = survive01.lanewise(VectorOperators.XOR, survive01.lanewise(VectorOperators.XOR, survive23).and(twos));
+				LongVector survive47 = survive45.lanewise(VectorOperators.XOR, survive45.lanewise(VectorOperators.XOR, survive67).and(twos));
+				LongVector survived = survive03.lanewise(VectorOperators.XOR, survive03.lanewise(VectorOperators.XOR, survive47).and(fours));
+				survived = survived.lanewise(VectorOperators.XOR, survived.lanewise(VectorOperators.XOR, masks[17]).and(eights));
+
+				born.lanewise(VectorOperators.XOR, born.lanewise(VectorOperators.XOR, survived).and(current)).intoArray(out, middle + word);
+			}
+		}
+	}
+}
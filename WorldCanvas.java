@@ -0,0 +1,283 @@
+/**
+ * WorldCanvas Class
+ * Draws the world of Cells onto a single component. The Cells are written straight into the pixels of an image, one pixel per Cell, which is then scaled onto the screen, so even worlds of millions of Cells can be animated smoothly.
+ * The world can be zoomed with the mouse wheel and panned by dragging, and clicking a Cell toggles it.
+ */
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+public class WorldCanvas extends JComponent {
+	private static final long serialVersionUID = 1L;
+	private static final int ALIVE = 0xffffff;	// White
+	private static final int DEAD = 0x000000;	// Black
+	private static final Color GRID_LINES = new Color(0x303030);
+	private static final int MIN_GRID_ZOOM = 8;	// Smallest zoom at which the lines between Cells are drawn
+	private static final double MAX_ZOOM = 64;
+	private BufferedImage image;
+	private int[] pixels;	// Pixels of the image, one per Cell, row after row
+	private int worldWidth;
+	private int worldHeight;
+	private double zoom;	// Screen pixels per Cell
+	private double offsetX;	// Screen position of the top left corner of the world
+	private double offsetY;
+	private CellListener listener;
+
+	/**
+	 * Initializes a canvas for a world of the given size, zoomed so that the world fits in roughly the given number of screen pixels.
+	 * @param worldWidth
+	 * @param worldHeight
+	 * @param screenSize
+	 */
+	public WorldCanvas(int worldWidth, int worldHeight, int screenSize) {
+		this.worldWidth = worldWidth;
+		this.worldHeight = worldHeight;
+		image = new BufferedImage(worldWidth, worldHeight, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		zoom = Math.min(MAX_ZOOM, (double) screenSize / Math.max(worldWidth, worldHeight));
+
+		setPreferredSize(new Dimension((int) Math.ceil(worldWidth*zoom), (int) Math.ceil(worldHeight*zoom)));
+		setOpaque(true);
+		setBackground(Color.black);
+
+		MouseHandler handler = new MouseHandler();
+		addMouseListener(handler);
+		addMouseMotionListener(handler);
+		addMouseWheelListener(handler);
+	}
+
+	/**
+	 * Sets the listener that is told when a Cell is clicked.
+	 * @param listener
+	 */
+	public void setCellListener(CellListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Redraws every Cell of the world.
+	 * @param grid
+	 */
+	public void render(Grid grid) {
+		for (int row = 0; row < worldHeight; row++) {
+			renderRow(grid, row, 0, grid.getWordsPerRow());
+		}
+
+		repaint();
+	}
+
+	/**
+	 * Redraws only the Cells that flipped in the last generation, and repaints only the part of the screen that holds them.
+	 * @param grid - the new generation.
+	 * @param changes - the words that changed since the generation last drawn.
+	 */
+	public void render(Grid grid, ChangeSet changes) {
+		if (changes.size() == 0) {
+			return;
+		}
+
+		int top = Integer.MAX_VALUE;
+		int bottom = -1;
+		int left = Integer.MAX_VALUE;
+		int right = -1;
+
+		for (int i = 0; i < changes.size(); i++) {
+			int row = changes.getRow(i);
+			int word = changes.getWord(i);
+			long flips = changes.getFlips(i);
+			renderRow(grid, row, word, word + 1);
+
+			/* Grow the dirty region to the flipped Cells of the word */
+			top = Math.min(top, row);
+			bottom = Math.max(bottom, row);
+			left = Math.min(left, word*Grid.WORD_SIZE + Long.numberOfTrailingZeros(flips));
+			right = Math.max(right, word*Grid.WORD_SIZE + Grid.WORD_SIZE - 1 - Long.numberOfLeadingZeros(flips));
+		}
+
+		repaintCells(top, left, bottom, right);
+	}
+
+	/**
+	 * Repaints the part of the screen that shows the given block of Cells.
+	 * @param top
+	 * @param left
+	 * @param bottom - last row of the block.
+	 * @param right - last column of the block.
+	 */
+	private void repaintCells(int top, int left, int bottom, int right) {
+		int x = (int) Math.floor(offsetX + left*zoom) - 1;
+		int y = (int) Math.floor(offsetY + top*zoom) - 1;
+		int width = (int) Math.ceil((right - left + 1)*zoom) + 3;
+		int height = (int) Math.ceil((bottom - top + 1)*zoom) + 3;
+
+		repaint(x, y, width, height);
+	}
+
+	/**
+	 * Redraws a single Cell after it was changed, repainting only that Cell.
+	 * @param grid
+	 * @param row
+	 * @param column
+	 */
+	public void renderCell(Grid grid, int row, int column) {
+		int word = column / Grid.WORD_SIZE;
+
+		renderRow(grid, row, word, word + 1);
+		repaintCells(row, column, row, column);
+	}
+
+	/**
+	 * Writes the pixels of a range of words of a row of the world.
+	 * @param grid
+	 * @param row
+	 * @param fromWord
+	 * @param toWord - word just past the end of the range.
+	 */
+	void renderRow(Grid grid, int row, int fromWord, int toWord) {
+		int rowStart = row*worldWidth;
+
+		for (int word = fromWord; word < toWord; word++) {
+			long bits = grid.getWord(row, word);
+			int column = word*Grid.WORD_SIZE;
+			int end = Math.min(column + Grid.WORD_SIZE, worldWidth);
+
+			for (; column < end; column++) {
+				pixels[rowStart + column] = (bits & 1) != 0 ? ALIVE : DEAD;
+				bits >>>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the column of the Cell under the given screen position, which may lie outside of the world.
+	 * @param x
+	 * @return column
+	 */
+	public int columnAt(int x) {
+		return (int) Math.floor((x - offsetX) / zoom);
+	}
+
+	/**
+	 * Returns the row of the Cell under the given screen position, which may lie outside of the world.
+	 * @param y
+	 * @return row
+	 */
+	public int rowAt(int y) {
+		return (int) Math.floor((y - offsetY) / zoom);
+	}
+
+	protected void paintComponent(Graphics g) {
+		Graphics2D g2 = (Graphics2D) g;
+		g2.setColor(getBackground());
+		g2.fillRect(0, 0, getWidth(), getHeight());
+
+		/* Scale the image onto the screen, keeping each Cell a sharp square */
+		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		g2.drawImage(image, (int) Math.round(offsetX), (int) Math.round(offsetY), (int) Math.round(worldWidth*zoom), (int) Math.round(worldHeight*zoom), null);
+
+		/* Separate the Cells with lines when they are big enough, only across the visible part of the world */
+		if (zoom >= MIN_GRID_ZOOM) {
+			Rectangle clip = g2.getClipBounds() != null ? g2.getClipBounds() : new Rectangle(getSize());
+			int firstColumn = Math.max(0, columnAt(clip.x));
+			int lastColumn = Math.min(worldWidth, columnAt(clip.x + clip.width) + 1);
+			int firstRow = Math.max(0, rowAt(clip.y));
+			int lastRow = Math.min(worldHeight, rowAt(clip.y + clip.height) + 1);
+			int top = (int) Math.round(offsetY + firstRow*zoom);
+			int bottom = (int) Math.round(offsetY + lastRow*zoom);
+			int left = (int) Math.round(offsetX + firstColumn*zoom);
+			int right = (int) Math.round(offsetX + lastColumn*zoom);
+
+			g2.setColor(GRID_LINES);
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int x = (int) Math.round(offsetX + column*zoom);
+				g2.drawLine(x, top, x, bottom);
+			}
+			for (int row = firstRow; row <= lastRow; row++) {
+				int y = (int) Math.round(offsetY + row*zoom);
+				g2.drawLine(left, y, right, y);
+			}
+		}
+	}
+
+	/**
+	 * Changes the zoom, keeping the Cell under the given screen position in place.
+	 * @param newZoom
+	 * @param x
+	 * @param y
+	 */
+	private void zoomAt(double newZoom, int x, int y) {
+		double minZoom = Math.min(1.0, (double) Math.min(getWidth(), getHeight()) / Math.max(worldWidth, worldHeight));
+		newZoom = Math.max(minZoom, Math.min(MAX_ZOOM, newZoom));
+
+		offsetX = x - (x - offsetX) * newZoom / zoom;
+		offsetY = y - (y - offsetY) * newZoom / zoom;
+		zoom = newZoom;
+		repaint();
+	}
+
+	/**
+	 * CellListener Interface
+	 * Listens for Cells of the world being clicked.
+	 */
+	public interface CellListener {
+
+		/**
+		 * Handles a click on the Cell at the given row and column.
+		 * @param row
+		 * @param column
+		 */
+		void cellClicked(int row, int column);
+	}
+
+	/**
+	 * MouseHandler Class
+	 * Turns mouse events into zooming, panning and Cell clicks. A press and release without moving is a click; moving in between is a drag.
+	 */
+	class MouseHandler extends MouseAdapter {
+		private Point pressed;
+		private Point last;
+		private boolean dragged;
+
+		public void mousePressed(MouseEvent event) {
+			pressed = event.getPoint();
+			last = pressed;
+			dragged = false;
+		}
+
+		public void mouseDragged(MouseEvent event) {
+			if (last == null) {
+				return;
+			}
+
+			if (!dragged && pressed.distance(event.getPoint()) < 3) {
+				return;	// Small wobbles during a click are not a drag
+			}
+
+			dragged = true;
+			offsetX += event.getX() - last.x;
+			offsetY += event.getY() - last.y;
+			last = event.getPoint();
+			repaint();
+		}
+
+		public void mouseReleased(MouseEvent event) {
+			if (!dragged && pressed != null && SwingUtilities.isLeftMouseButton(event)) {
+				int row = rowAt(event.getY());
+				int column = columnAt(event.getX());
+
+				if (listener != null && row >= 0 && row < worldHeight && column >= 0 && column < worldWidth) {
+					listener.cellClicked(row, column);
+				}
+			}
+
+			pressed = null;
+			last = null;
+		}
+
+		public void mouseWheelMoved(MouseWheelEvent event) {
+			zoomAt(zoom * Math.pow(1.25, -event.getPreciseWheelRotation()), event.getX(), event.getY());
+		}
+	}
+}
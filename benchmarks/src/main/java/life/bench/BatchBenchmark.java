@@ -0,0 +1,96 @@
+package life.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BatchBenchmark Class
+ * Measures a day of many separate 20x20 boards, each as its own Life world on the bitslice engine and all together in a BoardBatch. Scores are in board-days per second. Random 20x20 boards settle within a few hundred days, and a settled board is retired from the batch and costs it nothing from then on, so every board the batch retires is filled with a new soup after the day it settled on, within the measured time. The batch then always runs all of its boards, as the Life worlds do, and pays for the refills on top.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(BatchBenchmark.BOARDS)
+public class BatchBenchmark {
+	static final int BOARDS = 4096;
+
+	@Param({"life", "batch"})
+	public String mode;
+
+	private Object[] lives;
+	private Object batch;
+	private long nextSeed = BOARDS;	// Seed of the next soup to refill a retired board with
+
+	@Setup(Level.Trial)
+	public void createBoards() throws Throwable {
+		if (mode.equals("batch")) {
+			batch = Model.newBatch(BOARDS);
+
+		} else {
+			Object presetFile = Model.newPresetFile(Model.bundledPresets());
+			lives = new Object[BOARDS];
+			for (int i = 0; i < BOARDS; i++) {
+				lives[i] = Model.newLife(20, 20, presetFile);
+				Model.setEngine(lives[i], Model.createEngine("bitslice", 1));
+			}
+
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void fillBoards() throws Throwable {
+		for (int i = 0; i < BOARDS; i++) {
+
+			if (batch != null) {
+				Model.randomizeBoard(batch, i, 0.3, i);
+
+			} else {
+				Model.randomize(lives[i], 0.3, i);
+
+			}
+		}
+	}
+
+	@Benchmark
+	public void step() throws Throwable {
+		if (batch != null) {
+			Model.stepBatch(batch);
+			if (Model.getActiveBoards(batch) < BOARDS) {
+				refillRetired();
+			}
+			return;
+		}
+
+		for (int i = 0; i < BOARDS; i++) {
+			Model.step(lives[i]);
+		}
+	}
+
+	/**
+	 * Fills every board that the batch has retired with a new soup.
+	 */
+	private void refillRetired() throws Throwable {
+		for (int i = 0; i < BOARDS; i++) {
+
+			if (!Model.isBoardActive(batch, i)) {
+				Model.randomizeBoard(batch, i, 0.3, nextSeed++);
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package life.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JumpBenchmark Class
+ * Measures Life.jump through HashLife on the bundled presets. Each call reloads the preset before jumping, so the remembered results of earlier calls are what is being measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JumpBenchmark {
+	@Param({"Glider", "Exploder", "Lightweight Spaceship", "Tumbler", "Caterer", "Figure Eight"})
+	public String pattern;
+
+	@Param({"1024", "1099511627776"})
+	public long generations;
+
+	private Object life;
+
+	@Setup
+	public void createWorld() throws Throwable {
+		life = Model.newLife(20, 20, Model.newPresetFile(Model.bundledPresets()));
+	}
+
+	@Benchmark
+	public void jump() throws Throwable {
+		Model.loadPreset(life, pattern);
+		Model.jump(life, generations);
+	}
+}
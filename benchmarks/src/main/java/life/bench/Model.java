@@ -0,0 +1,181 @@
+package life.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Model Class
+ * Gives the benchmarks access to the simulation classes. Those live in the default package, which JMH does not allow for benchmarks and which cannot be imported from a named package,
+ * so they are reached through constant method handles instead; the JIT inlines these just like direct calls.
+ */
+final class Model {
+	private static final MethodHandle NEW_LIFE;
+	private static final MethodHandle NEW_PRESET_FILE;
+	private static final MethodHandle CREATE_ENGINE;
+	private static final MethodHandle SET_ENGINE;
+	private static final MethodHandle SET_UNBOUNDED;
+	private static final MethodHandle STEP;
+	private static final MethodHandle JUMP;
+	private static final MethodHandle RANDOMIZE;
+	private static final MethodHandle LOAD_PRESET;
+	private static final MethodHandle GET_ENGINE;
+	private static final MethodHandle PRESET_NAMES;
+	private static final MethodHandle PRESET_COORDINATES;
+	private static final MethodHandle PARSE_RULE;
+	private static final MethodHandle SET_RULE;
+	private static final MethodHandle NEW_BATCH;
+	private static final MethodHandle RANDOMIZE_BOARD;
+	private static final MethodHandle STEP_BATCH;
+	private static final MethodHandle IS_BOARD_ACTIVE;
+	private static final MethodHandle ACTIVE_BOARDS;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> life = Class.forName("Life");
+			Class<?> presetFile = Class.forName("PresetFile");
+			Class<?> engine = Class.forName("StepEngine");
+			Class<?> runner = Class.forName("Runner");
+			Class<?> rule = Class.forName("Rule");
+			Class<?> batch = Class.forName("BoardBatch");
+
+			NEW_LIFE = generic(lookup.findConstructor(life, MethodType.methodType(void.class, int.class, int.class, presetFile)));
+			NEW_PRESET_FILE = generic(lookup.findConstructor(presetFile, MethodType.methodType(void.class, File.class)));
+			CREATE_ENGINE = generic(lookup.findStatic(runner, "createEngine", MethodType.methodType(engine, String.class, int.class)));
+			SET_ENGINE = generic(lookup.findVirtual(life, "setEngine", MethodType.methodType(void.class, engine)));
+			SET_UNBOUNDED = generic(lookup.findVirtual(life, "setUnbounded", MethodType.methodType(void.class, boolean.class)));
+			STEP = generic(lookup.findVirtual(life, "step", MethodType.methodType(void.class)));
+			JUMP = generic(lookup.findVirtual(life, "jump", MethodType.methodType(void.class, long.class)));
+			RANDOMIZE = generic(lookup.findVirtual(life, "randomize", MethodType.methodType(void.class, double.class, long.class)));
+			LOAD_PRESET = generic(lookup.findVirtual(life, "getPresetCoordinates", MethodType.methodType(boolean[][].class, String.class)));
+			GET_ENGINE = generic(lookup.findVirtual(life, "getEngine", MethodType.methodType(engine)));
+			PRESET_NAMES = generic(lookup.findVirtual(presetFile, "getPresetNames", MethodType.methodType(String[].class)));
+			PRESET_COORDINATES = generic(lookup.findVirtual(presetFile, "getPresetCoordinates", MethodType.methodType(int[].class, String.class)));
+			PARSE_RULE = generic(lookup.findStatic(rule, "parse", MethodType.methodType(rule, String.class)));
+			SET_RULE = generic(lookup.findVirtual(life, "setRule", MethodType.methodType(void.class, rule)));
+			NEW_BATCH = generic(lookup.findConstructor(batch, MethodType.methodType(void.class, int.class)));
+			RANDOMIZE_BOARD = generic(lookup.findVirtual(batch, "randomize", MethodType.methodType(void.class, int.class, double.class, long.class)));
+			STEP_BATCH = generic(lookup.findVirtual(batch, "step", MethodType.methodType(void.class)));
+			IS_BOARD_ACTIVE = generic(lookup.findVirtual(batch, "isActive", MethodType.methodType(boolean.class, int.class)));
+			ACTIVE_BOARDS = generic(lookup.findVirtual(batch, "getActiveCount", MethodType.methodType(int.class)));
+
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private Model() {
+	}
+
+	/**
+	 * Replaces every default-package type in a handle's signature with Object, so it can be called with invokeExact from here.
+	 */
+	private static MethodHandle generic(MethodHandle handle) {
+		MethodType type = handle.type();
+
+		for (int i = 0; i < type.parameterCount(); i++) {
+			Class<?> parameter = type.parameterType(i);
+			if (!parameter.isPrimitive() && !parameter.isArray() && parameter.getPackage().getName().isEmpty()) {
+				type = type.changeParameterType(i, Object.class);
+			}
+		}
+		Class<?> result = type.returnType();
+		if (!result.isPrimitive() && !result.isArray() && result.getPackage().getName().isEmpty()) {
+			type = type.changeReturnType(Object.class);
+		}
+
+		return handle.asType(type);
+	}
+
+	/**
+	 * Copies the bundled presets.txt into a temporary file, so that runs do not depend on the working directory.
+	 */
+	static File bundledPresets() throws IOException {
+		File copy = File.createTempFile("presets", ".txt");
+		copy.deleteOnExit();
+
+		try (InputStream in = Model.class.getResourceAsStream("/presets.txt")) {
+			Files.copy(in, copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return copy;
+	}
+
+	static Object newPresetFile(File file) throws Throwable {
+		return (Object) NEW_PRESET_FILE.invokeExact(file);
+	}
+
+	static Object newLife(int width, int height, Object presetFile) throws Throwable {
+		return (Object) NEW_LIFE.invokeExact(width, height, presetFile);
+	}
+
+	static Object createEngine(String name, int threads) throws Throwable {
+		return (Object) CREATE_ENGINE.invokeExact(name, threads);
+	}
+
+	static void setEngine(Object life, Object engine) throws Throwable {
+		SET_ENGINE.invokeExact(life, engine);
+	}
+
+	static Object getEngine(Object life) throws Throwable {
+		return (Object) GET_ENGINE.invokeExact(life);
+	}
+
+	static void setUnbounded(Object life, boolean unbounded) throws Throwable {
+		SET_UNBOUNDED.invokeExact(life, unbounded);
+	}
+
+	static void step(Object life) throws Throwable {
+		STEP.invokeExact(life);
+	}
+
+	static void jump(Object life, long generations) throws Throwable {
+		JUMP.invokeExact(life, generations);
+	}
+
+	static void randomize(Object life, double density, long seed) throws Throwable {
+		RANDOMIZE.invokeExact(life, density, seed);
+	}
+
+	static boolean[][] loadPreset(Object life, String name) throws Throwable {
+		return (boolean[][]) LOAD_PRESET.invokeExact(life, name);
+	}
+
+	static String[] presetNames(Object presetFile) throws Throwable {
+		return (String[]) PRESET_NAMES.invokeExact(presetFile);
+	}
+
+	static int[] presetCoordinates(Object presetFile, String name) throws Throwable {
+		return (int[]) PRESET_COORDINATES.invokeExact(presetFile, name);
+	}
+
+	static void setRule(Object life, String notation) throws Throwable {
+		Object rule = (Object) PARSE_RULE.invokeExact(notation);
+		SET_RULE.invokeExact(life, rule);
+	}
+
+	static Object newBatch(int boards) throws Throwable {
+		return (Object) NEW_BATCH.invokeExact(boards);
+	}
+
+	static void randomizeBoard(Object batch, int board, double density, long seed) throws Throwable {
+		RANDOMIZE_BOARD.invokeExact(batch, board, density, seed);
+	}
+
+	static void stepBatch(Object batch) throws Throwable {
+		STEP_BATCH.invokeExact(batch);
+	}
+
+	static boolean isBoardActive(Object batch, int board) throws Throwable {
+		return (boolean) IS_BOARD_ACTIVE.invokeExact(batch, board);
+	}
+
+	static int getActiveBoards(Object batch) throws Throwable {
+		return (int) ACTIVE_BOARDS.invokeExact(batch);
+	}
+}
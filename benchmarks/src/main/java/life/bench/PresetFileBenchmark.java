@@ -0,0 +1,88 @@
+package life.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PresetFileBenchmark Class
+ * Measures reading the preset names and coordinates from a presets file: the bundled presets.txt, and a large file with thousands of saved custom presets after it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PresetFileBenchmark {
+	private static final int LARGE_PRESETS = 10000;
+
+	@Param({"small", "large"})
+	public String file;
+
+	private Object presetFile;
+	private String lastPreset;
+
+	@Setup
+	public void createFile() throws Throwable {
+		File presets = Model.bundledPresets();
+
+		if (file.equals("large")) {
+			appendCustomPresets(presets, LARGE_PRESETS);
+		}
+
+		presetFile = Model.newPresetFile(presets);
+		String[] names = Model.presetNames(presetFile);
+		lastPreset = names[names.length - 1];	// The worst case for a scan from the top of the file
+	}
+
+	/**
+	 * Appends the given number of custom presets of random looking coordinates, in the same layout that PresetFile writes them.
+	 */
+	private static void appendCustomPresets(File presets, int count) throws IOException {
+		String last = new String(Files.readAllBytes(presets.toPath())).trim();
+		int iteration = Integer.parseInt(last.substring(last.lastIndexOf('\n') + 1).trim());
+
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(presets, true))) {
+			for (int i = 0; i < count; i++) {
+				out.newLine();
+				out.write("#");
+				out.newLine();
+				out.write("Custom" + iteration++);
+				out.newLine();
+				for (int cell = i % 7; cell < 400; cell += 7 + i % 13) {
+					out.write(Integer.toString(cell));
+					out.newLine();
+				}
+				out.write("?");
+				out.newLine();
+				out.write(Integer.toString(iteration));
+			}
+		}
+	}
+
+	@Benchmark
+	public String[] presetNames() throws Throwable {
+		return Model.presetNames(presetFile);
+	}
+
+	@Benchmark
+	public int[] presetCoordinates() throws Throwable {
+		return Model.presetCoordinates(presetFile, lastPreset);
+	}
+}
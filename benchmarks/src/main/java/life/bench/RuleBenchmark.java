@@ -0,0 +1,56 @@
+package life.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RuleBenchmark Class
+ * Measures a day of a random soup under different rules, to check that Conway's Life keeps the speed of its hand-written kernel and that every other rule costs the same as each other.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})	// For the vector engine
+@State(Scope.Thread)
+public class RuleBenchmark {
+	@Param({"cell", "bitslice", "vector"})
+	public String engine;
+
+	@Param({"B3/S23", "B36/S23", "B2/S", "B3678/S34678"})
+	public String rule;
+
+	@Param({"256", "2048"})
+	public int size;
+
+	private Object life;
+
+	@Setup(Level.Trial)
+	public void createWorld() throws Throwable {
+		life = Model.newLife(size, size, Model.newPresetFile(Model.bundledPresets()));
+		Model.setEngine(life, Model.createEngine(engine, 1));
+		Model.setRule(life, rule);
+	}
+
+	@Setup(Level.Iteration)
+	public void resetWorld() throws Throwable {
+		Model.randomize(life, 0.3, 42);
+	}
+
+	@Benchmark
+	public void step() throws Throwable {
+		Model.step(life);
+	}
+}
@@ -0,0 +1,88 @@
+package life.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * StepBenchmark Class
+ * Measures a single day of Life.step on every engine, board size and starting pattern side by side. The world is reset at the start of every iteration so that random soups do not settle down over the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})	// For the vector engine
+@State(Scope.Thread)
+public class StepBenchmark {
+	@Param({"cell", "bitslice", "vector", "parallel", "sparse"})
+	public String engine;
+
+	@Param({"20", "256", "2048"})
+	public int size;
+
+	@Param({"empty", "random30", "Glider", "Small Exploder", "Exploder", "10 Cell Row", "Lightweight Spaceship", "Tumbler", "Caterer", "Figure Eight"})
+	public String pattern;
+
+	private Object life;
+
+	@Setup(Level.Trial)
+	public void createWorld() throws Throwable {
+		File presets = Model.bundledPresets();
+		life = Model.newLife(size, size, Model.newPresetFile(presets));
+
+		if (engine.equals("sparse")) {
+			Model.setUnbounded(life, true);
+
+		} else {
+			Model.setEngine(life, Model.createEngine(engine, Runtime.getRuntime().availableProcessors()));
+
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void resetWorld() throws Throwable {
+		switch (pattern) {
+
+			case "empty":
+				Model.loadPreset(life, "Clear");
+				break;
+
+			case "random30":
+				Model.randomize(life, 0.3, 42);
+				break;
+
+			default:
+				Model.loadPreset(life, pattern);
+				break;
+
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void releaseEngine() throws Throwable {
+		Object stepEngine = Model.getEngine(life);
+
+		if (stepEngine.getClass().getName().equals("ParallelEngine")) {
+			stepEngine.getClass().getMethod("shutdown").invoke(stepEngine);
+		}
+	}
+
+	@Benchmark
+	public void step() throws Throwable {
+		Model.step(life);
+	}
+}
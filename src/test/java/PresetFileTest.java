@@ -0,0 +1,62 @@
+/**
+ * PresetFileTest Class
+ * Checks that the presets file, kept as a journal of appended records, still reads every complete preset saved after one that was torn off by a crash.
+ */
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class PresetFileTest {
+	private static final int[] GLIDER = {1, 22, 43, 41, 42};
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * A save torn off anywhere before its checksum must not take the preset saved after it down with it, whether that preset is read by the program that saved it or by another.
+	 * @param torn - what the torn save left in the file.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"#\n", "#", "#\nTorn\n", "#\nTorn\n12\n", "#\nTorn\n12", "#\nTorn\n12\n?\n", "#\nTorn\n12\n?\n+123"})
+	public void presetAfterTornSaveIsKept(String torn) throws IOException {
+		File presets = directory.resolve("presets.txt").toFile();
+		Files.write(presets.toPath(), torn.getBytes(StandardCharsets.UTF_8));
+
+		PresetFile saver = new PresetFile(presets);
+		String name = saver.createNewPreset(GLIDER, "Glider");
+
+		assertEquals("Glider", name);
+		for (PresetFile reader : new PresetFile[] {saver, new PresetFile(presets)}) {
+			assertTrue(Arrays.asList(reader.getPresetNames()).contains("Glider"));
+			assertArrayEquals(GLIDER, reader.getPresetCoordinates("Glider"));
+			assertFalse(reader.hasPreset("Torn"));
+		}
+	}
+
+	/**
+	 * Presets saved before records had checksums end with the iteration number of the next custom preset name, and must still be read.
+	 */
+	@Test
+	public void presetWithoutChecksumIsRead() throws IOException {
+		File presets = directory.resolve("presets.txt").toFile();
+		Files.write(presets.toPath(), "#\nBlinker\n1\n2\n3\n?\n4".getBytes(StandardCharsets.UTF_8));
+
+		PresetFile reader = new PresetFile(presets);
+
+		assertArrayEquals(new int[] {1, 2, 3}, reader.getPresetCoordinates("Blinker"));
+		assertEquals("Custom4", reader.createNewPreset(GLIDER, null));
+	}
+}
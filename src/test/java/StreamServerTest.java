@@ -0,0 +1,93 @@
+/**
+ * StreamServerTest Class
+ * Streams a run to a StreamClient on localhost that reads too slowly to keep up, and checks that it still ends on the last day of the run, Cell for Cell, once the server is closed.
+ */
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class StreamServerTest {
+	private static final int DAYS = 200;
+
+	/**
+	 * @param world - topology of the world, or "unbounded" for a window onto a sparse universe.
+	 */
+	@ParameterizedTest
+	@ValueSource(strings = {"klein", "unbounded"})
+	public void slowViewerEndsOnLastDay(String world) throws Exception {
+		Life life = new Life(1024, 768);
+		if (world.equals("unbounded")) {
+			life.setUnbounded(true);
+
+		} else {
+			life.setTopology(Topology.parse(world));
+
+		}
+		life.randomize(0.3, 42);
+
+		StreamServer server = new StreamServer(life, 0);
+		server.setMaxLag(4);
+		life.setStreamServer(server);
+
+		final StreamClient client = new StreamClient("localhost", server.getPort());
+		final CountDownLatch stepped = new CountDownLatch(1);
+		final AtomicReference<IOException> failure = new AtomicReference<IOException>();
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				try {
+					client.readFrame();
+					stepped.await();	// Stalls after the first keyframe until the run is over, so the client falls behind by more than the socket buffers hold
+
+					while (client.readFrame()) {
+						Thread.sleep(1);
+					}
+
+				} catch (IOException e) {
+					failure.set(e);
+
+				} catch (InterruptedException e) {
+					/* Stopped */
+
+				}
+			}
+		});
+		reader.start();
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (server.getViewerCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(1, server.getViewerCount());
+
+		for (int day = 0; day < DAYS; day++) {
+			life.step();
+		}
+		stepped.countDown();
+		server.close();
+		reader.join(10000);
+
+		assertFalse(reader.isAlive());
+		assertEquals(null, failure.get());
+		assertTrue(server.getFramesSkipped() > 0, "The client never fell behind");
+		assertEquals(DAYS, client.getGeneration());
+		assertNotNull(client.getGrid());
+
+		Grid expected = life.getWorld();
+		Grid received = client.getGrid();
+		for (int row = 0; row < expected.getHeight(); row++) {
+
+			for (int column = 0; column < expected.getWidth(); column++) {
+				assertEquals(expected.isAlive(row, column), received.isAlive(row, column), "Cell at row " + row + ", column " + column);
+			}
+		}
+		client.close();
+	}
+}